@@ -25,13 +25,23 @@ import 'dart:async';
 import 'dart:convert';
 import 'dart:core';
 import 'dart:io';
-import 'dart:typed_data' show Uint8List;
+import 'dart:typed_data' show ByteData, Endian, Uint8List;
 
 import 'tau_player_platform_interface.dart';
 import 'tau_platform_interface.dart';
 
 const MethodChannel _channel = MethodChannel('xyz.canardoux.tau_player');
 
+/// Android only : the progress and needSomeFood events, when the App called `setCompactEvents(enabled: true)`.
+/// Each message is a 40 bytes little-endian record : eventId, slotNo, state, success (int32), a, b (int64), c (float64)
+const BasicMessageChannel<ByteData> _eventChannel = BasicMessageChannel<ByteData>('xyz.canardoux.tau_player/events', BinaryCodec());
+
+/// Android only : one message for the progress of all the slots, when the App called `setProgressTicker()`
+const BasicMessageChannel<Object?> _progressChannel = BasicMessageChannel<Object?>('xyz.canardoux.tau_player/progress', StandardMessageCodec());
+
+const int _eventUpdateProgress = 1;
+const int _eventNeedSomeFood = 2;
+
 /// An implementation of [FlutterSoundPlayerPlatform] that uses method channels.
 class MethodChannelTauPlayer extends TauPlayerPlatform
 {
@@ -49,6 +59,53 @@ class MethodChannelTauPlayer extends TauPlayerPlatform
     {
       return channelMethodCallHandler(call)!;
     });
+    _eventChannel.setMessageHandler((ByteData? message) async
+    {
+      if (message != null)
+        compactEventHandler(message);
+      return ByteData(0);
+    });
+    _progressChannel.setMessageHandler((Object? message) async
+    {
+      if (message != null)
+        progressBatchHandler(message as Map);
+      return null;
+    });
+  }
+
+
+  void compactEventHandler(ByteData message)
+  {
+    int eventId = message.getInt32(0, Endian.little);
+    TauPlayerCallback aPlayer = getSession(message.getInt32(4, Endian.little));
+    aPlayer.updatePlaybackState(message.getInt32(8, Endian.little));
+    switch (eventId)
+    {
+      case _eventUpdateProgress:
+        {
+          aPlayer.updateProgress(duration: message.getInt64(24, Endian.little), position: message.getInt64(16, Endian.little));
+        }
+        break;
+
+      case _eventNeedSomeFood:
+        {
+          aPlayer.needSomeFood(message.getInt64(16, Endian.little));
+        }
+        break;
+    }
+  }
+
+
+  /// Parallel arrays : `slotNo`, `position` and `duration`
+  void progressBatchHandler(Map batch)
+  {
+    List<int> slots = batch['slotNo'] as List<int>;
+    List<int> positions = batch['position'] as List<int>;
+    List<int> durations = batch['duration'] as List<int>;
+    for (var i = 0; i < slots.length; ++i)
+    {
+      getSession(slots[i]).updateProgress(duration: durations[i], position: positions[i]);
+    }
   }
 
 
@@ -170,6 +227,20 @@ class MethodChannelTauPlayer extends TauPlayerPlatform
   }
 
 
+  Future<Map<String, dynamic>> invokeMethodMap (TauPlayerCallback callback, String methodName, Map<String, dynamic> call) async
+  {
+    call['slotNo'] = findSession(callback);
+    return (await _channel.invokeMethod(methodName, call) as Map).cast<String, dynamic>();
+  }
+
+
+  Future<List<int>> invokeMethodList (TauPlayerCallback callback, String methodName, Map<String, dynamic> call) async
+  {
+    call['slotNo'] = findSession(callback);
+    return (await _channel.invokeMethod(methodName, call) as List).cast<int>();
+  }
+
+
 
   @override
   Future<void>?   setLogLevel(TauPlayerCallback callback, Level logLevel)
@@ -230,9 +301,12 @@ class MethodChannelTauPlayer extends TauPlayerPlatform
   }
 
   @override
-  Future<int> startPlayer(TauPlayerCallback callback,  {Codec? codec, Uint8List? fromDataBuffer, String?  fromURI, int? numChannels, int? sampleRate})
+  Future<int> startPlayer(TauPlayerCallback callback,  {Codec? codec, Uint8List? fromDataBuffer, String?  fromURI, int? numChannels, int? sampleRate, Map<String, dynamic>? options})
   {
-     return  invokeMethod( callback, 'startPlayer', {'codec': codec!.index, 'fromDataBuffer': fromDataBuffer, 'fromURI': fromURI, 'numChannels': numChannels, 'sampleRate': sampleRate},) ;
+     Map<String, dynamic> args = {'codec': codec!.index, 'fromDataBuffer': fromDataBuffer, 'fromURI': fromURI, 'numChannels': numChannels, 'sampleRate': sampleRate};
+     if (options != null)
+       args.addAll(options);
+     return  invokeMethod( callback, 'startPlayer', args,) ;
   }
 
   @override
@@ -311,4 +385,145 @@ class MethodChannelTauPlayer extends TauPlayerPlatform
     return invokeMethodString( callback, 'getResourcePath',  Map<String, dynamic>(),) ;
   }
 
+  //===================================================================  Android only  ===================================================================
+
+  @override
+  Future<int> setExecutionMode(TauPlayerCallback callback, {required bool perSlotExecutor})
+  {
+    return invokeMethod( callback, 'setExecutionMode', {'perSlotExecutor': perSlotExecutor,},) ;
+  }
+
+  @override
+  Future<Map<String, dynamic>> getMetrics(TauPlayerCallback callback, )
+  {
+    return invokeMethodMap( callback, 'getMetrics',  Map<String, dynamic>(),) ;
+  }
+
+  @override
+  Future<Map<String, dynamic>> getCodecCapabilities(TauPlayerCallback callback, )
+  {
+    return invokeMethodMap( callback, 'getCodecCapabilities',  Map<String, dynamic>(),) ;
+  }
+
+  @override
+  Future<int> setProgressTicker(TauPlayerCallback callback, {Duration? duration})
+  {
+    return invokeMethod( callback, 'setProgressTicker', {'duration': (duration != null) ? duration.inMilliseconds : 0,},) ;
+  }
+
+  @override
+  Future<int> setCompactEvents(TauPlayerCallback callback, {required bool enabled})
+  {
+    return invokeMethod( callback, 'setCompactEvents', {'enabled': enabled,},) ;
+  }
+
+  @override
+  Future<List<int>> feedBatch(TauPlayerCallback callback, {required List<Uint8List> chunks, })
+  {
+    return invokeMethodList( callback, 'feedBatch', {'chunks': chunks,},) ;
+  }
+
+  @override
+  Future<int> setPcmCacheBudget(TauPlayerCallback callback, {int? budget})
+  {
+    return invokeMethod( callback, 'setPcmCacheBudget', {'budget': budget,},) ;
+  }
+
+  @override
+  Future<Map<String, dynamic>> getPcmCacheStats(TauPlayerCallback callback, )
+  {
+    return invokeMethodMap( callback, 'getPcmCacheStats',  Map<String, dynamic>(),) ;
+  }
+
+  @override
+  Future<String> preloadSound(TauPlayerCallback callback, {Codec? codec, Uint8List? fromDataBuffer, String? fromURI, String? fromBuffer, int? numChannels, int? sampleRate})
+  {
+    return invokeMethodString( callback, 'preloadSound', {'codec': (codec != null) ? codec.index : null, 'fromDataBuffer': fromDataBuffer, 'fromURI': fromURI, 'fromBuffer': fromBuffer,
+      'numChannels': numChannels, 'sampleRate': sampleRate,},) ;
+  }
+
+  @override
+  Future<String> registerBuffer(TauPlayerCallback callback, {required Uint8List data})
+  {
+    return invokeMethodString( callback, 'registerBuffer', {'data': data,},) ;
+  }
+
+  @override
+  Future<bool> isBufferRegistered(TauPlayerCallback callback, {required String key})
+  {
+    return invokeMethodBool( callback, 'isBufferRegistered', {'key': key,},) ;
+  }
+
+  @override
+  Future<int> releaseBuffer(TauPlayerCallback callback, {required String key})
+  {
+    return invokeMethod( callback, 'releaseBuffer', {'key': key,},) ;
+  }
+
+  @override
+  Future<int> setBufferRegistryBudget(TauPlayerCallback callback, {int? budget})
+  {
+    return invokeMethod( callback, 'setBufferRegistryBudget', {'budget': budget,},) ;
+  }
+
+  @override
+  Future<Map<String, dynamic>> getBufferRegistryStats(TauPlayerCallback callback, )
+  {
+    return invokeMethodMap( callback, 'getBufferRegistryStats',  Map<String, dynamic>(),) ;
+  }
+
+  @override
+  Future<int> startEffects(TauPlayerCallback callback, {int? maxVoices, int? sampleRate, int? blockSize})
+  {
+    return invokeMethod( callback, 'startEffects', {'maxVoices': maxVoices, 'sampleRate': sampleRate, 'blockSize': blockSize,},) ;
+  }
+
+  @override
+  Future<int> playVoice(TauPlayerCallback callback, {required String key, double? gain, double? pan, bool? loop})
+  {
+    return invokeMethod( callback, 'playVoice', {'key': key, 'gain': gain, 'pan': pan, 'loop': loop,},) ;
+  }
+
+  @override
+  Future<int> stopVoice(TauPlayerCallback callback, {int? voice})
+  {
+    return invokeMethod( callback, 'stopVoice', {'voice': voice,},) ;
+  }
+
+  @override
+  Future<int> openMixerBus(TauPlayerCallback callback, {int? sampleRate, int? blockSize})
+  {
+    return invokeMethod( callback, 'openMixerBus', {'sampleRate': sampleRate, 'blockSize': blockSize,},) ;
+  }
+
+  @override
+  Future<int> closeMixerBus(TauPlayerCallback callback, )
+  {
+    return invokeMethod( callback, 'closeMixerBus',  Map<String, dynamic>(),) ;
+  }
+
+  @override
+  Future<int> attachToBus(TauPlayerCallback callback, {int? ringBufferSize, int? numChannels, int? lowWatermark, int? highWatermark})
+  {
+    return invokeMethod( callback, 'attachToBus', {'ringBufferSize': ringBufferSize, 'numChannels': numChannels, 'lowWatermark': lowWatermark, 'highWatermark': highWatermark,},) ;
+  }
+
+  @override
+  Future<int> detachFromBus(TauPlayerCallback callback, )
+  {
+    return invokeMethod( callback, 'detachFromBus',  Map<String, dynamic>(),) ;
+  }
+
+  @override
+  Future<int> setBusMute(TauPlayerCallback callback, {required bool mute})
+  {
+    return invokeMethod( callback, 'setBusMute', {'mute': mute,},) ;
+  }
+
+  @override
+  Future<int> setBusSolo(TauPlayerCallback callback, {required bool solo})
+  {
+    return invokeMethod( callback, 'setBusSolo', {'solo': solo,},) ;
+  }
+
 }
\ No newline at end of file
@@ -18,6 +18,7 @@
  */
 
 import 'dart:async';
+import 'dart:typed_data' show ByteData, Endian;
 
 import 'package:logger/logger.dart' show Level , Logger;
 import 'package:flutter/services.dart';
@@ -27,6 +28,20 @@ import 'tau_recorder_platform_interface.dart';
 
 const MethodChannel _channel = MethodChannel('xyz.canardoux.tau_recorder');
 
+/// Android only : the progress events, when the App called `setCompactEvents(enabled: true)`.
+/// Each message is a 40 bytes little-endian record : eventId, slotNo, state, success (int32), a, b (int64), c (float64)
+const BasicMessageChannel<ByteData> _eventChannel = BasicMessageChannel<ByteData>('xyz.canardoux.tau_recorder/events', BinaryCodec());
+
+/// Android only : one message for the progress of all the slots, when the App called `setProgressTicker()`
+const BasicMessageChannel<Object?> _progressChannel = BasicMessageChannel<Object?>('xyz.canardoux.tau_recorder/progress', StandardMessageCodec());
+
+/// Android only : the recorded data of a slot started with the `binaryStream` option.
+/// Each message is a 16 bytes little-endian header (slotNo, sequence number, timestamp in micro-seconds) followed by the raw PCM data
+const String _streamChannelPrefix = 'xyz.canardoux.tau_recorder/stream/';
+const int _streamHeaderSize = 16;
+
+const int _eventRecorderProgress = 3;
+
 
 
 /// An implementation of [UrlLauncherPlatform] that uses method channels.
@@ -45,6 +60,47 @@ class MethodChannelTauRecorder extends TauRecorderPlatform
     {
       return channelMethodCallHandler(call)!;
     });
+    _eventChannel.setMessageHandler((ByteData? message) async
+    {
+      if (message != null)
+        compactEventHandler(message);
+      return ByteData(0);
+    });
+    _progressChannel.setMessageHandler((Object? message) async
+    {
+      if (message != null)
+        progressBatchHandler(message as Map);
+      return null;
+    });
+  }
+
+
+  void compactEventHandler(ByteData message)
+  {
+    TauRecorderCallback? aRecorder = getSession(message.getInt32(4, Endian.little));
+    if (message.getInt32(0, Endian.little) == _eventRecorderProgress)
+    {
+      aRecorder!.updateRecorderProgress(duration: message.getInt64(16, Endian.little), dbPeakLevel: message.getFloat64(32, Endian.little));
+    }
+  }
+
+
+  /// Parallel arrays : `slotNo`, `duration` and `dbPeakLevel`
+  void progressBatchHandler(Map batch)
+  {
+    List<int> slots = batch['slotNo'] as List<int>;
+    List<int> durations = batch['duration'] as List<int>;
+    List<double> levels = batch['dbPeakLevel'] as List<double>;
+    for (var i = 0; i < slots.length; ++i)
+    {
+      getSession(slots[i])!.updateRecorderProgress(duration: durations[i], dbPeakLevel: levels[i]);
+    }
+  }
+
+
+  BasicMessageChannel<ByteData> _streamChannel(int slotNo)
+  {
+    return BasicMessageChannel<ByteData>('$_streamChannelPrefix$slotNo', BinaryCodec());
   }
 
 
@@ -104,6 +160,18 @@ Future<dynamic>? channelMethodCallHandler(MethodCall call) {
         }
         break;
 
+        case "speechStarted":
+        {
+          aRecorder!.speechStarted(position: call.arguments['position'], preRoll: call.arguments['preRoll']);
+        }
+        break;
+
+        case "speechEnded":
+        {
+          aRecorder!.speechEnded(position: call.arguments['position'], duration: call.arguments['duration']);
+        }
+        break;
+
         case "log":
         {
           aRecorder!.log(Level.values[call.arguments['logLevel']], call.arguments['msg']);
@@ -148,6 +216,13 @@ Future<dynamic>? channelMethodCallHandler(MethodCall call) {
   }
 
 
+  Future<Map<String, dynamic>> invokeMethodMap (TauRecorderCallback callback, String methodName, Map<String, dynamic> call) async
+  {
+    call['slotNo'] = findSession(callback);
+    return (await _channel.invokeMethod(methodName, call) as Map).cast<String, dynamic>();
+  }
+
+
   @override
   Future<void>?   setLogLevel(TauRecorderCallback callback, Level logLevel)
   {
@@ -172,9 +247,11 @@ Future<dynamic>? channelMethodCallHandler(MethodCall call) {
 
 
   @override
-  Future<void> closeRecorder(TauRecorderCallback callback, )
+  Future<void> closeRecorder(TauRecorderCallback callback, ) async
   {
-    return invokeMethodVoid( callback, 'closeRecorder',  Map<String, dynamic>(),);
+    int slotNo = findSession(callback);
+    await invokeMethodVoid( callback, 'closeRecorder',  Map<String, dynamic>(),);
+    _streamChannel(slotNo).setMessageHandler(null);
   }
 
   @override
@@ -205,9 +282,10 @@ Future<dynamic>? channelMethodCallHandler(MethodCall call) {
         Codec? codec,
         bool? toStream,
         AudioSource? audioSource,
+        Map<String, dynamic>? options,
       })
   {
-    return invokeMethodVoid( callback, 'startRecorder',
+    Map<String, dynamic> args =
         {
                   'path': path,
                   'sampleRate': sampleRate,
@@ -216,7 +294,20 @@ Future<dynamic>? channelMethodCallHandler(MethodCall call) {
                   'codec': codec!.index,
                   'toStream': toStream! ? 1 : 0,
                   'audioSource': audioSource!.index,
-        },);
+        };
+    if (options != null)
+      args.addAll(options);
+    if (toStream == true && options?['binaryStream'] == true)
+    {
+      // The data are not sent by `recordingData` events, but on the binary channel of the slot
+      _streamChannel(findSession(callback)).setMessageHandler((ByteData? message) async
+      {
+        if (message != null)
+          callback.recordingData(data: message.buffer.asUint8List(message.offsetInBytes + _streamHeaderSize, message.lengthInBytes - _streamHeaderSize));
+        return ByteData(0);
+      });
+    }
+    return invokeMethodVoid( callback, 'startRecorder', args,);
   }
 
   @override
@@ -250,6 +341,50 @@ Future<dynamic>? channelMethodCallHandler(MethodCall call) {
     return invokeMethodString( callback, 'getRecordURL', {'path': path});
   }
 
+  //===================================================================  Android only  ===================================================================
+
+  @override
+  Future<void> setExecutionMode(TauRecorderCallback callback, {required bool perSlotExecutor})
+  {
+    return invokeMethodVoid( callback, 'setExecutionMode', {'perSlotExecutor': perSlotExecutor,},) ;
+  }
+
+  @override
+  Future<Map<String, dynamic>> getMetrics(TauRecorderCallback callback, )
+  {
+    return invokeMethodMap( callback, 'getMetrics',  Map<String, dynamic>(),) ;
+  }
+
+  @override
+  Future<Map<String, dynamic>> getCodecCapabilities(TauRecorderCallback callback, )
+  {
+    return invokeMethodMap( callback, 'getCodecCapabilities',  Map<String, dynamic>(),) ;
+  }
+
+  @override
+  Future<void> setProgressTicker(TauRecorderCallback callback, {Duration? duration})
+  {
+    return invokeMethodVoid( callback, 'setProgressTicker', {'duration': (duration != null) ? duration.inMilliseconds : 0,},) ;
+  }
+
+  @override
+  Future<void> setCompactEvents(TauRecorderCallback callback, {required bool enabled})
+  {
+    return invokeMethodVoid( callback, 'setCompactEvents', {'enabled': enabled,},) ;
+  }
+
+  @override
+  Future<Map<String, dynamic>> getBufferPoolStats(TauRecorderCallback callback, )
+  {
+    return invokeMethodMap( callback, 'getBufferPoolStats',  Map<String, dynamic>(),) ;
+  }
+
+  @override
+  Future<Map<String, dynamic>> getVadStats(TauRecorderCallback callback, )
+  {
+    return invokeMethodMap( callback, 'getVadStats',  Map<String, dynamic>(),) ;
+  }
+
 
 
 }
\ No newline at end of file
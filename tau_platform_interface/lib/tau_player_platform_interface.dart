@@ -183,7 +183,9 @@ abstract class TauPlayerPlatform extends PlatformInterface {
     throw UnimplementedError('setSubscriptionDuration() has not been implemented.');
   }
 
-  Future<int> startPlayer(TauPlayerCallback callback, {Codec? codec, Uint8List? fromDataBuffer, String?  fromURI, int? numChannels, int? sampleRate})
+  /// [options] are the Android only arguments of `startPlayer`, passed as is : `fromBuffer`, `fromCache`, `ringBufferSize`, `lowWatermark`, `highWatermark`,
+  /// `blockSize`, `streamCodec`, `resample`, `outputSampleRate`, `outputNumChannels`, `resampleQuality`, `memoryMap`
+  Future<int> startPlayer(TauPlayerCallback callback, {Codec? codec, Uint8List? fromDataBuffer, String?  fromURI, int? numChannels, int? sampleRate, Map<String, dynamic>? options})
   {
     throw UnimplementedError('startPlayer() has not been implemented.');
   }
@@ -248,4 +250,121 @@ abstract class TauPlayerPlatform extends PlatformInterface {
     throw UnimplementedError('invokeMethod() has not been implemented.');
   }
 
+  //===================================================================  Android only  ===================================================================
+
+  Future<int> setExecutionMode(TauPlayerCallback callback, {required bool perSlotExecutor})
+  {
+    throw UnimplementedError('setExecutionMode() has not been implemented.');
+  }
+
+  Future<Map<String, dynamic>> getMetrics(TauPlayerCallback callback, )
+  {
+    throw UnimplementedError('getMetrics() has not been implemented.');
+  }
+
+  Future<Map<String, dynamic>> getCodecCapabilities(TauPlayerCallback callback, )
+  {
+    throw UnimplementedError('getCodecCapabilities() has not been implemented.');
+  }
+
+  Future<int> setProgressTicker(TauPlayerCallback callback, {Duration? duration})
+  {
+    throw UnimplementedError('setProgressTicker() has not been implemented.');
+  }
+
+  Future<int> setCompactEvents(TauPlayerCallback callback, {required bool enabled})
+  {
+    throw UnimplementedError('setCompactEvents() has not been implemented.');
+  }
+
+  Future<List<int>> feedBatch(TauPlayerCallback callback, {required List<Uint8List> chunks, })
+  {
+    throw UnimplementedError('feedBatch() has not been implemented.');
+  }
+
+  Future<int> setPcmCacheBudget(TauPlayerCallback callback, {int? budget})
+  {
+    throw UnimplementedError('setPcmCacheBudget() has not been implemented.');
+  }
+
+  Future<Map<String, dynamic>> getPcmCacheStats(TauPlayerCallback callback, )
+  {
+    throw UnimplementedError('getPcmCacheStats() has not been implemented.');
+  }
+
+  Future<String> preloadSound(TauPlayerCallback callback, {Codec? codec, Uint8List? fromDataBuffer, String? fromURI, String? fromBuffer, int? numChannels, int? sampleRate})
+  {
+    throw UnimplementedError('preloadSound() has not been implemented.');
+  }
+
+  Future<String> registerBuffer(TauPlayerCallback callback, {required Uint8List data})
+  {
+    throw UnimplementedError('registerBuffer() has not been implemented.');
+  }
+
+  Future<bool> isBufferRegistered(TauPlayerCallback callback, {required String key})
+  {
+    throw UnimplementedError('isBufferRegistered() has not been implemented.');
+  }
+
+  Future<int> releaseBuffer(TauPlayerCallback callback, {required String key})
+  {
+    throw UnimplementedError('releaseBuffer() has not been implemented.');
+  }
+
+  Future<int> setBufferRegistryBudget(TauPlayerCallback callback, {int? budget})
+  {
+    throw UnimplementedError('setBufferRegistryBudget() has not been implemented.');
+  }
+
+  Future<Map<String, dynamic>> getBufferRegistryStats(TauPlayerCallback callback, )
+  {
+    throw UnimplementedError('getBufferRegistryStats() has not been implemented.');
+  }
+
+  Future<int> startEffects(TauPlayerCallback callback, {int? maxVoices, int? sampleRate, int? blockSize})
+  {
+    throw UnimplementedError('startEffects() has not been implemented.');
+  }
+
+  Future<int> playVoice(TauPlayerCallback callback, {required String key, double? gain, double? pan, bool? loop})
+  {
+    throw UnimplementedError('playVoice() has not been implemented.');
+  }
+
+  Future<int> stopVoice(TauPlayerCallback callback, {int? voice})
+  {
+    throw UnimplementedError('stopVoice() has not been implemented.');
+  }
+
+  Future<int> openMixerBus(TauPlayerCallback callback, {int? sampleRate, int? blockSize})
+  {
+    throw UnimplementedError('openMixerBus() has not been implemented.');
+  }
+
+  Future<int> closeMixerBus(TauPlayerCallback callback, )
+  {
+    throw UnimplementedError('closeMixerBus() has not been implemented.');
+  }
+
+  Future<int> attachToBus(TauPlayerCallback callback, {int? ringBufferSize, int? numChannels, int? lowWatermark, int? highWatermark})
+  {
+    throw UnimplementedError('attachToBus() has not been implemented.');
+  }
+
+  Future<int> detachFromBus(TauPlayerCallback callback, )
+  {
+    throw UnimplementedError('detachFromBus() has not been implemented.');
+  }
+
+  Future<int> setBusMute(TauPlayerCallback callback, {required bool mute})
+  {
+    throw UnimplementedError('setBusMute() has not been implemented.');
+  }
+
+  Future<int> setBusSolo(TauPlayerCallback callback, {required bool solo})
+  {
+    throw UnimplementedError('setBusSolo() has not been implemented.');
+  }
+
 }
@@ -69,6 +69,8 @@ abstract class TauRecorderCallback
   void stopRecorderCompleted(int? state, bool? success, String? url);
   void openRecorderCompleted(int? state, bool? success);
   void closeRecorderCompleted(int? state, bool? success);
+  void speechStarted({required int position, required int preRoll});
+  void speechEnded({required int position, required int duration});
   void log(Level logLevel, String msg);
 
 }
@@ -199,6 +201,8 @@ abstract class TauRecorderPlatform extends PlatformInterface {
     throw UnimplementedError('setSubscriptionDuration() has not been implemented.');
   }
 
+  /// [options] are the Android only arguments of `startRecorder`, passed as is : `binaryStream`, `coalesceMs`, `coalesceBytes`, `meter`, `meterOnly`,
+  /// `wavWriter`, `streamCodec`, `vad`, `vadFrameMs`, `vadThresholdDb`, `vadMinDb`, `vadZcrMax`, `vadStartMs`, `vadHangoverMs`, `vadPreRollMs`
   Future<void> startRecorder(TauRecorderCallback callback,
   {
   String? path,
@@ -208,6 +212,7 @@ abstract class TauRecorderPlatform extends PlatformInterface {
   Codec? codec,
   bool? toStream,
   AudioSource? audioSource,
+  Map<String, dynamic>? options,
   })
   {
     throw UnimplementedError('startRecorder() has not been implemented.');
@@ -238,5 +243,42 @@ abstract class TauRecorderPlatform extends PlatformInterface {
     throw UnimplementedError('getRecordURL() has not been implemented.');
   }
 
+  //===================================================================  Android only  ===================================================================
+
+  Future<void> setExecutionMode(TauRecorderCallback callback, {required bool perSlotExecutor})
+  {
+    throw UnimplementedError('setExecutionMode() has not been implemented.');
+  }
+
+  Future<Map<String, dynamic>> getMetrics(TauRecorderCallback callback, )
+  {
+    throw UnimplementedError('getMetrics() has not been implemented.');
+  }
+
+  Future<Map<String, dynamic>> getCodecCapabilities(TauRecorderCallback callback, )
+  {
+    throw UnimplementedError('getCodecCapabilities() has not been implemented.');
+  }
+
+  Future<void> setProgressTicker(TauRecorderCallback callback, {Duration? duration})
+  {
+    throw UnimplementedError('setProgressTicker() has not been implemented.');
+  }
+
+  Future<void> setCompactEvents(TauRecorderCallback callback, {required bool enabled})
+  {
+    throw UnimplementedError('setCompactEvents() has not been implemented.');
+  }
+
+  Future<Map<String, dynamic>> getBufferPoolStats(TauRecorderCallback callback, )
+  {
+    throw UnimplementedError('getBufferPoolStats() has not been implemented.');
+  }
+
+  Future<Map<String, dynamic>> getVadStats(TauRecorderCallback callback, )
+  {
+    throw UnimplementedError('getVadStats() has not been implemented.');
+  }
+
 
 }
\ No newline at end of file
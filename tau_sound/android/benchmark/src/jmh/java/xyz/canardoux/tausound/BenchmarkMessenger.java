@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.BinaryMessenger;
+
+
+/**
+ * A messenger without Dart side : each message is copied, as the Flutter messenger does, and then dropped.
+ */
+class BenchmarkMessenger implements BinaryMessenger
+{
+	final Map<String, BinaryMessageHandler> handlers = new HashMap<String, BinaryMessageHandler> ();
+	byte[]                                  copy     = new byte[4096];
+	long                                    nbMessages;
+	long                                    nbBytes;
+
+
+	@Override
+	public void send ( String channel, ByteBuffer message )
+	{
+		send ( channel, message, null );
+	}
+
+	@Override
+	public void send ( String channel, ByteBuffer message, BinaryReply callback )
+	{
+		++nbMessages;
+		if ( message == null )
+			return;
+		int size = message.position (); // Like the Flutter messenger : the position is the message size
+		if ( size > copy.length )
+			copy = new byte[size];
+		message.position ( 0 );
+		message.get ( copy, 0, size );
+		nbBytes += size;
+	}
+
+	@Override
+	public void setMessageHandler ( String channel, BinaryMessageHandler handler )
+	{
+		handlers.put ( channel, handler );
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodCall;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Cost of a Dart command, from `onMethodCall()` to the reply.
+ * In the per-slot executor mode, only the platform thread part is measured : the command is queued and runs later.
+ */
+@State ( Scope.Thread )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.SECONDS )
+public class DispatchBenchmark
+{
+	@Param ( { "false", "true" } )
+	boolean perSlotExecutor;
+
+	TauSoundPlayerManager manager;
+	Fixture.Sink          sink = new Fixture.Sink ();
+	MethodCall            getPlayerState;
+	MethodCall            setVolume;
+	MethodCall            getProgress;
+
+
+	@Setup
+	public void setup ()
+	{
+		Fixture.attach ( new BenchmarkMessenger () );
+		manager = TauSoundPlayerManager.TauSoundPlayerPlugin;
+		Fixture.openPlayer ( 0 );
+		manager.onMethodCall ( Fixture.call ( "setExecutionMode", 0, "perSlotExecutor", perSlotExecutor ), TauSoundManager.ignoredResult );
+		getPlayerState = Fixture.call ( "getPlayerState", 0 );
+		setVolume = Fixture.call ( "setVolume", 0, "volume", 0.5 );
+		getProgress = Fixture.call ( "getProgress", 0 );
+	}
+
+	@TearDown
+	public void tearDown ()
+	{
+		manager.onMethodCall ( Fixture.call ( "setExecutionMode", 0, "perSlotExecutor", false ), TauSoundManager.ignoredResult );
+	}
+
+	@Benchmark
+	public void getPlayerState ( Blackhole bh )
+	{
+		sink.bh = bh;
+		manager.onMethodCall ( getPlayerState, sink );
+	}
+
+	@Benchmark
+	public void setVolume ( Blackhole bh )
+	{
+		sink.bh = bh;
+		manager.onMethodCall ( setVolume, sink );
+	}
+
+	@Benchmark
+	public void getProgress ( Blackhole bh )
+	{
+		sink.bh = bh;
+		manager.onMethodCall ( getProgress, sink );
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Cost of the events sent to Dart : a compact binary record, or a map through the method channel.
+ */
+@State ( Scope.Thread )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.SECONDS )
+public class EventBenchmark
+{
+	@Param ( { "false", "true" } )
+	boolean compactEvents;
+
+	BenchmarkMessenger messenger;
+	TauSoundPlayer     player;
+	TauSoundRecorder   recorder;
+	long               position;
+
+
+	@Setup
+	public void setup ()
+	{
+		messenger = new BenchmarkMessenger ();
+		Fixture.attach ( messenger );
+		Fixture.setCompactEvents ( TauSoundPlayerManager.TauSoundPlayerPlugin, compactEvents );
+		Fixture.setCompactEvents ( TauSoundRecorderManager.TauSoundRecorderPlugin, compactEvents );
+		player = Fixture.openPlayer ( 0 );
+		recorder = Fixture.openRecorder ( 0 );
+	}
+
+	@Benchmark
+	public long updateProgress ()
+	{
+		player.updateProgress ( ++position, 60000 );
+		return messenger.nbBytes;
+	}
+
+	@Benchmark
+	public long needSomeFood ()
+	{
+		player.needSomeFood ( 4096 );
+		return messenger.nbBytes;
+	}
+
+	@Benchmark
+	public long updateRecorderProgress ()
+	{
+		recorder.updateRecorderProgressDbPeakLevel ( 42.0, ++position );
+		return messenger.nbBytes;
+	}
+}
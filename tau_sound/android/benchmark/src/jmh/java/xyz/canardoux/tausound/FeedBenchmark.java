@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodCall;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Cost of the feed path : `feed` and `feedBatch` commands, given directly to the engine or through the ring buffer.
+ * With a ring, the feeder thread drains it into the stub engine, which accepts everything.
+ */
+@State ( Scope.Thread )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.SECONDS )
+public class FeedBenchmark
+{
+	static final int BATCH = 8;
+
+	@Param ( { "1024", "8192" } )
+	int chunkSize;
+
+	@Param ( { "0", "262144" } )
+	int ringBufferSize;
+
+	TauSoundPlayerManager manager;
+	Fixture.Sink          sink = new Fixture.Sink ();
+	MethodCall            feed;
+	MethodCall            feedBatch;
+
+
+	@Setup
+	public void setup ()
+	{
+		Fixture.attach ( new BenchmarkMessenger () );
+		manager = TauSoundPlayerManager.TauSoundPlayerPlugin;
+		Fixture.openPlayer ( 0 );
+		MethodCall start = ( ringBufferSize > 0 )
+			? Fixture.call ( "startPlayer", 0, "codec", TauSoundPcmCache.CODEC_PCM16, "sampleRate", 44100, "numChannels", 1, "ringBufferSize", ringBufferSize )
+			: Fixture.call ( "startPlayer", 0, "codec", TauSoundPcmCache.CODEC_PCM16, "sampleRate", 44100, "numChannels", 1 );
+		manager.onMethodCall ( start, TauSoundManager.ignoredResult );
+		feed = Fixture.call ( "feed", 0, "data", new byte[chunkSize] );
+		List<byte[]> chunks = new ArrayList<byte[]> ();
+		for ( int i = 0; i < BATCH; ++i )
+		{
+			chunks.add ( new byte[chunkSize] );
+		}
+		feedBatch = Fixture.call ( "feedBatch", 0, "chunks", chunks );
+	}
+
+	@TearDown
+	public void tearDown ()
+	{
+		manager.onMethodCall ( Fixture.call ( "stopPlayer", 0 ), TauSoundManager.ignoredResult );
+	}
+
+	@Benchmark
+	public void feed ( Blackhole bh )
+	{
+		sink.bh = bh;
+		manager.onMethodCall ( feed, sink );
+	}
+
+	@Benchmark
+	@OperationsPerInvocation ( BATCH )
+	public void feedBatch ( Blackhole bh )
+	{
+		sink.bh = bh;
+		manager.onMethodCall ( feedBatch, sink );
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import android.content.Context;
+import android.os.Looper;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Helpers shared by the benchmarks : plugin setup on the benchmark thread, and method calls built like the Dart side does.
+ */
+class Fixture
+{
+	/**
+	 * A result which gives the reply to the JMH black hole, so that it is not optimized away.
+	 */
+	static class Sink implements Result
+	{
+		Blackhole bh;
+
+		@Override
+		public void success ( Object result )
+		{
+			bh.consume ( result );
+		}
+
+		@Override
+		public void error ( String errorCode, String errorMessage, Object errorDetails )
+		{
+			throw new IllegalStateException ( errorCode + " : " + errorMessage );
+		}
+
+		@Override
+		public void notImplemented ()
+		{
+			throw new IllegalStateException ( "notImplemented" );
+		}
+	}
+
+
+	static MethodCall call ( String method, int slotNo, Object... keyValues )
+	{
+		Map<String, Object> args = new HashMap<String, Object> ();
+		args.put ( "slotNo", slotNo );
+		for ( int i = 0; i < keyValues.length; i += 2 )
+		{
+			args.put ( (String) keyValues[i], keyValues[i + 1] );
+		}
+		return new MethodCall ( method, args );
+	}
+
+	/**
+	 * Attaches both managers to `messenger`, and makes the calling thread the platform thread.
+	 */
+	static void attach ( BenchmarkMessenger messenger )
+	{
+		Looper.prepareMainLooper ();
+		Context ctx = new Context ();
+		TauSoundPlayerManager.attachFlautoPlayer ( ctx, messenger );
+		TauSoundRecorderManager.attachFlautoRecorder ( ctx, messenger );
+		Result ignored = TauSoundManager.ignoredResult;
+		TauSoundPlayerManager.TauSoundPlayerPlugin.onMethodCall ( call ( "resetPlugin", 0 ), ignored );
+		TauSoundRecorderManager.TauSoundRecorderPlugin.onMethodCall ( call ( "resetPlugin", 0 ), ignored );
+	}
+
+	static MethodCall openSession ( String method, int slotNo )
+	{
+		return call ( method, slotNo, "focus", 0, "category", 0, "mode", 0, "device", 0, "audioFlags", 0 );
+	}
+
+	static TauSoundPlayer openPlayer ( int slotNo )
+	{
+		TauSoundPlayerManager.TauSoundPlayerPlugin.onMethodCall ( openSession ( "openPlayer", slotNo ), TauSoundManager.ignoredResult );
+		return (TauSoundPlayer) TauSoundPlayerManager.TauSoundPlayerPlugin.slots.get ( slotNo );
+	}
+
+	static TauSoundRecorder openRecorder ( int slotNo )
+	{
+		TauSoundRecorderManager.TauSoundRecorderPlugin.onMethodCall ( openSession ( "openRecorder", slotNo ), TauSoundManager.ignoredResult );
+		return (TauSoundRecorder) TauSoundRecorderManager.TauSoundRecorderPlugin.slots.get ( slotNo );
+	}
+
+	static void setCompactEvents ( MethodCallHandler manager, boolean enabled )
+	{
+		manager.onMethodCall ( call ( "setCompactEvents", 0, "enabled", enabled ), TauSoundManager.ignoredResult );
+	}
+}
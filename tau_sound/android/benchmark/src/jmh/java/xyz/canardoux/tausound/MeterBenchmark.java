@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Cost of the recorder metering stage, per recorded chunk. It must not allocate.
+ */
+@State ( Scope.Thread )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.SECONDS )
+public class MeterBenchmark
+{
+	@Param ( { "1", "2" } )
+	int numChannels;
+
+	TauSoundMeter        meter;
+	TauSoundMeter.Values values = new TauSoundMeter.Values ();
+	byte[]               chunk;
+
+
+	@Setup
+	public void setup ()
+	{
+		meter = new TauSoundMeter ( 48000, numChannels );
+		chunk = new byte[960 * numChannels * 2]; // 20 ms
+		for ( int i = 0; i < chunk.length / 2; ++i )
+		{
+			short s = (short) ( 16000 * Math.sin ( i * 0.05 ) );
+			chunk[2 * i] = (byte) s;
+			chunk[2 * i + 1] = (byte) ( s >> 8 );
+		}
+	}
+
+	@Benchmark
+	public double process ()
+	{
+		meter.process ( chunk, 0, chunk.length );
+		meter.read ( values );
+		return values.loudness;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Cost of the recorded chunks path, from the engine callback to the channel :
+ * as a map on the method channel, on the binary stream channel, or coalesced in pooled frames.
+ */
+@State ( Scope.Thread )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.SECONDS )
+public class RecordBenchmark
+{
+	@Param ( { "map", "binary", "coalesced" } )
+	String mode;
+
+	@Param ( { "640", "3200" } )
+	int chunkSize;
+
+	BenchmarkMessenger messenger;
+	TauSoundRecorder   recorder;
+	byte[]             chunk;
+
+
+	@Setup
+	public void setup ()
+	{
+		messenger = new BenchmarkMessenger ();
+		Fixture.attach ( messenger );
+		recorder = Fixture.openRecorder ( 0 );
+		TauSoundRecorderManager.TauSoundRecorderPlugin.onMethodCall ( Fixture.call ( "startRecorder", 0,
+			"codec", TauSoundPcmCache.CODEC_PCM16,
+			"sampleRate", 16000,
+			"numChannels", 1,
+			"bitRate", 16000,
+			"path", null,
+			"audioSource", 0,
+			"toStream", 1,
+			"binaryStream", !"map".equals ( mode ),
+			"coalesceMs", "coalesced".equals ( mode ) ? 100 : 0 ), TauSoundManager.ignoredResult );
+		chunk = new byte[chunkSize];
+	}
+
+	@TearDown
+	public void tearDown ()
+	{
+		TauSoundRecorderManager.TauSoundRecorderPlugin.onMethodCall ( Fixture.call ( "stopRecorder", 0 ), TauSoundManager.ignoredResult );
+	}
+
+	@Benchmark
+	public long recordingData ()
+	{
+		recorder.recordingData ( chunk );
+		return messenger.nbBytes;
+	}
+}
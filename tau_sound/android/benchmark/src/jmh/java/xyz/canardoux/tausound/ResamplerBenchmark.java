@@ -0,0 +1,66 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Cost of the feed conversion stage, per fed chunk of 20 ms : 22.05 kHz stereo (a TTS output) to the 48 kHz device rate.
+ * It must not allocate.
+ */
+@State ( Scope.Thread )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.SECONDS )
+public class ResamplerBenchmark
+{
+	@Param ( { "0", "1", "2" } )
+	int quality;
+
+	@Param ( { "1", "2" } )
+	int outChannels;
+
+	TauSoundResampler resampler;
+	byte[]            chunk;
+	byte[]            out;
+
+
+	@Setup
+	public void setup ()
+	{
+		resampler = new TauSoundResampler ( 22050, 2, 48000, outChannels, quality );
+		chunk = new byte[441 * 2 * 2];
+		for ( int i = 0; i < chunk.length / 2; ++i )
+		{
+			short s = (short) ( 16000 * Math.sin ( i * 0.05 ) );
+			chunk[2 * i] = (byte) s;
+			chunk[2 * i + 1] = (byte) ( s >> 8 );
+		}
+		out = new byte[2 * resampler.outputSize ( chunk.length )];
+	}
+
+	@Benchmark
+	public int convert ()
+	{
+		return resampler.convert ( chunk, 0, chunk.length, out, 0 );
+	}
+}
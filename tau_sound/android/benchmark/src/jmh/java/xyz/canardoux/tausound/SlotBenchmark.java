@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodCall;
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Cost of finding the session of a slot : by slot number, by handle, and from a method call.
+ */
+@State ( Scope.Thread )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.SECONDS )
+public class SlotBenchmark
+{
+	@Param ( { "1", "32" } )
+	int nbSlots;
+
+	TauSoundSlotTable table;
+	int[]             handles;
+	MethodCall[]      calls;
+	int               index;
+
+
+	@Setup
+	public void setup ()
+	{
+		Fixture.attach ( new BenchmarkMessenger () );
+		table = TauSoundPlayerManager.TauSoundPlayerPlugin.slots;
+		handles = new int[nbSlots];
+		calls = new MethodCall[nbSlots];
+		for ( int i = 0; i < nbSlots; ++i )
+		{
+			handles[i] = Fixture.openPlayer ( i ).handle;
+			calls[i] = Fixture.call ( "getPlayerState", i );
+		}
+	}
+
+	int next ()
+	{
+		index = ( index + 1 ) % nbSlots;
+		return index;
+	}
+
+	@Benchmark
+	public TauSoundSession get ()
+	{
+		return table.get ( next () );
+	}
+
+	@Benchmark
+	public TauSoundSession lookup ()
+	{
+		return table.lookup ( handles[next ()] );
+	}
+
+	@Benchmark
+	public TauSoundSession getSession ()
+	{
+		return TauSoundPlayerManager.TauSoundPlayerPlugin.getSession ( calls[next ()] );
+	}
+}
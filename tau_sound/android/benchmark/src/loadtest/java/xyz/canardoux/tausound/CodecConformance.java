@@ -0,0 +1,230 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.Arrays;
+
+
+/**
+ * Conformance checks of the stream codecs (TauSoundStreamCodec) :
+ *  - G.711 : reference values of the ITU-T G.711 tables, and the round trip of the 256 codes,
+ *  - IMA ADPCM : a vector computed by hand from the IMA/DVI reference algorithm, and the SNR of a tone,
+ *  - for all the codecs : the result does not depend on how the stream is cut, and in place encoding works.
+ *
+ *     ./gradlew :benchmark:codecConformance
+ */
+public class CodecConformance
+{
+	static int failures = 0;
+
+	static void check ( boolean ok, String what )
+	{
+		if ( !ok )
+		{
+			++failures;
+			System.out.println ( "FAILED : " + what );
+		}
+	}
+
+	public static void main ( String[] args )
+	{
+		g711 ();
+		ima ();
+		for ( int type = TauSoundStreamCodec.ULAW; type <= TauSoundStreamCodec.IMA_ADPCM; ++type )
+		{
+			chunking ( type, 1 );
+			chunking ( type, 2 );
+		}
+		System.out.println ( ( failures == 0 ) ? "Stream codecs : all checks passed" : "Stream codecs : " + failures + " failures" );
+		System.exit ( ( failures == 0 ) ? 0 : 1 );
+	}
+
+	static void g711 ()
+	{
+		// ITU-T G.711, table 2a (μ-law) and table 1a (A-law), as 16 bits linear values
+		int[][] ulaw = { { 0x00, -32124 }, { 0x01, -31100 }, { 0x02, -30076 }, { 0x03, -29052 }, { 0x7F, 0 }, { 0x80, 32124 }, { 0xFE, 8 }, { 0xFF, 0 } };
+		int[][] alaw = { { 0x00, -5504 }, { 0x01, -5248 }, { 0x02, -6016 }, { 0x03, -5760 }, { 0x55, -8 }, { 0xD5, 8 }, { 0x2A, -32256 }, { 0xAA, 32256 } };
+		for ( int[] v : ulaw )
+			check ( TauSoundStreamCodec.ulawToLinear ( (byte) v[0] ) == v[1], "μ-law decode of " + Integer.toHexString ( v[0] ) );
+		for ( int[] v : alaw )
+			check ( TauSoundStreamCodec.alawToLinear ( (byte) v[0] ) == v[1], "A-law decode of " + Integer.toHexString ( v[0] ) );
+
+		int[][] ulawEnc = { { 0, 0xFF }, { 32767, 0x80 }, { -32768, 0x00 } };
+		int[][] alawEnc = { { 0, 0xD5 }, { 32767, 0xAA }, { -32768, 0x2A } };
+		for ( int[] v : ulawEnc )
+			check ( ( TauSoundStreamCodec.linearToUlaw ( v[0] ) & 0xFF ) == v[1], "μ-law encode of " + v[0] );
+		for ( int[] v : alawEnc )
+			check ( ( TauSoundStreamCodec.linearToAlaw ( v[0] ) & 0xFF ) == v[1], "A-law encode of " + v[0] );
+
+		// Every code is a reconstruction level : it must encode to itself. μ-law 0x7F is the negative zero
+		for ( int c = 0; c < 256; ++c )
+		{
+			if ( c != 0x7F )
+				check ( ( TauSoundStreamCodec.linearToUlaw ( TauSoundStreamCodec.ulawToLinear ( (byte) c ) ) & 0xFF ) == c, "μ-law round trip of " + c );
+			check ( ( TauSoundStreamCodec.linearToAlaw ( TauSoundStreamCodec.alawToLinear ( (byte) c ) ) & 0xFF ) == c, "A-law round trip of " + c );
+		}
+
+		// The quantization error is bounded by half a step of the segment
+		for ( int x = -32768; x <= 32767; ++x )
+		{
+			int u = TauSoundStreamCodec.ulawToLinear ( TauSoundStreamCodec.linearToUlaw ( x ) );
+			int a = TauSoundStreamCodec.alawToLinear ( TauSoundStreamCodec.linearToAlaw ( x ) );
+			if ( Math.abs ( u - x ) > Math.max ( 8, Math.abs ( x ) / 16 + 132 ) || Math.abs ( a - x ) > Math.max ( 16, Math.abs ( x ) / 16 + 16 ) )
+			{
+				check ( false, "G.711 error for " + x + " : μ-law " + u + ", A-law " + a );
+				break;
+			}
+		}
+	}
+
+	static void ima ()
+	{
+		// From a zero state : step 7 -> code 7, predictor 11, index 8 (step 16) -> code 7, predictor 41, index 16 (step 34) -> code 7, predictor 104
+		TauSoundStreamCodec enc = new TauSoundStreamCodec ( TauSoundStreamCodec.IMA_ADPCM, 1 );
+		byte[] out = new byte[4];
+		int n = enc.encode ( pcm ( 1000, 1000, 1000 ), 0, 6, out, 0 );
+		n += enc.flush ( out, n );
+		check ( n == 2 && out[0] == 0x77 && out[1] == 0x07, "IMA ADPCM encode of 1000, 1000, 1000 : " + hex ( out, n ) );
+		TauSoundStreamCodec dec = new TauSoundStreamCodec ( TauSoundStreamCodec.IMA_ADPCM, 1 );
+		byte[] pcm = new byte[8];
+		dec.decode ( out, 0, 2, pcm, 0 );
+		check ( sample ( pcm, 0 ) == 11 && sample ( pcm, 1 ) == 41 && sample ( pcm, 2 ) == 104, "IMA ADPCM decode : " + sample ( pcm, 0 ) + ", " + sample ( pcm, 1 ) + ", " + sample ( pcm, 2 ) );
+
+		enc = new TauSoundStreamCodec ( TauSoundStreamCodec.IMA_ADPCM, 1 );
+		enc.encode ( pcm ( -1000, 0 ), 0, 4, out, 0 );
+		check ( ( out[0] & 0x0F ) == 0x0F, "IMA ADPCM sign bit" );
+
+		// A 1 kHz tone at 16 kHz
+		byte[] tone = new byte[2 * 16000];
+		for ( int i = 0; i < 16000; ++i )
+			TauSoundStreamCodec.putSample ( tone, 2 * i, (int) ( 16000 * Math.sin ( 2 * Math.PI * 1000 * i / 16000 ) ) );
+		double snr = snr ( TauSoundStreamCodec.IMA_ADPCM, tone, 1 );
+		check ( snr > 20, "IMA ADPCM SNR of a tone : " + snr + " dB" );
+		System.out.printf ( "SNR of a 1 kHz tone : IMA ADPCM %.1f dB, μ-law %.1f dB, A-law %.1f dB%n",
+			snr, snr ( TauSoundStreamCodec.ULAW, tone, 1 ), snr ( TauSoundStreamCodec.ALAW, tone, 1 ) );
+
+		// The channels are independent : a silent right channel stays silent
+		byte[] stereo = new byte[2 * tone.length];
+		for ( int i = 0; i < 16000; ++i )
+			System.arraycopy ( tone, 2 * i, stereo, 4 * i, 2 );
+		byte[] decoded = roundTrip ( TauSoundStreamCodec.IMA_ADPCM, stereo, 2 );
+		int maxRight = 0;
+		for ( int i = 0; i < 16000; ++i )
+			maxRight = Math.max ( maxRight, Math.abs ( sample ( decoded, 2 * i + 1 ) ) );
+		check ( maxRight == 0, "IMA ADPCM stereo : right channel " + maxRight );
+	}
+
+	/**
+	 * Encoding and decoding a stream cut in odd pieces gives the same bytes as in one call, and in place encoding gives the same bytes too
+	 */
+	static void chunking ( int type, int numChannels )
+	{
+		byte[] pcm = new byte[4 * 4801];
+		java.util.Random random = new java.util.Random ( 42 );
+		for ( int i = 0; i < pcm.length / 2; ++i )
+			TauSoundStreamCodec.putSample ( pcm, 2 * i, (int) ( 8000 * Math.sin ( i * 0.07 ) + random.nextGaussian () * 500 ) );
+
+		TauSoundStreamCodec whole = new TauSoundStreamCodec ( type, numChannels );
+		byte[] expected = new byte[whole.encodedSize ( pcm.length ) + 1];
+		int n = whole.encode ( pcm, 0, pcm.length, expected, 0 );
+		n += whole.flush ( expected, n );
+
+		TauSoundStreamCodec pieces = new TauSoundStreamCodec ( type, numChannels );
+		byte[] actual = new byte[expected.length];
+		int m = 0;
+		int[] sizes = { 1, 3, 7, 160, 33, 2 };
+		for ( int offset = 0, k = 0; offset < pcm.length; ++k )
+		{
+			int len = Math.min ( sizes[k % sizes.length], pcm.length - offset );
+			m += pieces.encode ( pcm, offset, len, actual, m );
+			offset += len;
+		}
+		m += pieces.flush ( actual, m );
+		check ( m == n && Arrays.equals ( Arrays.copyOf ( expected, n ), Arrays.copyOf ( actual, m ) ), "codec " + type + " x" + numChannels + " : chunked encoding" );
+
+		byte[] inPlace = pcm.clone ();
+		TauSoundStreamCodec same = new TauSoundStreamCodec ( type, numChannels );
+		int p = same.encode ( inPlace, 0, inPlace.length, inPlace, 0 );
+		p += same.flush ( inPlace, p );
+		check ( p == n && Arrays.equals ( Arrays.copyOf ( expected, n ), Arrays.copyOf ( inPlace, p ) ), "codec " + type + " x" + numChannels + " : in place encoding" );
+
+		TauSoundStreamCodec dec1 = new TauSoundStreamCodec ( type, numChannels );
+		byte[] d1 = new byte[dec1.decodedSize ( n )];
+		dec1.decode ( expected, 0, n, d1, 0 );
+		TauSoundStreamCodec dec2 = new TauSoundStreamCodec ( type, numChannels );
+		byte[] d2 = new byte[d1.length];
+		int q = 0;
+		for ( int offset = 0, k = 0; offset < n; ++k )
+		{
+			int len = Math.min ( sizes[k % sizes.length], n - offset );
+			q += dec2.decode ( expected, offset, len, d2, q );
+			offset += len;
+		}
+		check ( Arrays.equals ( d1, d2 ), "codec " + type + " x" + numChannels + " : chunked decoding" );
+	}
+
+	static byte[] roundTrip ( int type, byte[] pcm, int numChannels )
+	{
+		TauSoundStreamCodec enc = new TauSoundStreamCodec ( type, numChannels );
+		byte[] coded = new byte[enc.encodedSize ( pcm.length ) + 1];
+		int n = enc.encode ( pcm, 0, pcm.length, coded, 0 );
+		n += enc.flush ( coded, n );
+		TauSoundStreamCodec dec = new TauSoundStreamCodec ( type, numChannels );
+		byte[] out = new byte[dec.decodedSize ( n )];
+		dec.decode ( coded, 0, n, out, 0 );
+		return out;
+	}
+
+	static double snr ( int type, byte[] pcm, int numChannels )
+	{
+		byte[] out = roundTrip ( type, pcm, numChannels );
+		double signal = 0;
+		double noise = 0;
+		for ( int i = 0; i < pcm.length / 2; ++i )
+		{
+			double x = sample ( pcm, i );
+			double e = sample ( out, i ) - x;
+			signal += x * x;
+			noise += e * e;
+		}
+		return 10 * Math.log10 ( signal / Math.max ( noise, 1e-9 ) );
+	}
+
+	static byte[] pcm ( int... samples )
+	{
+		byte[] b = new byte[2 * samples.length];
+		for ( int i = 0; i < samples.length; ++i )
+			TauSoundStreamCodec.putSample ( b, 2 * i, samples[i] );
+		return b;
+	}
+
+	static int sample ( byte[] b, int i )
+	{
+		return (short) ( ( b[2 * i] & 0xFF ) | ( b[2 * i + 1] << 8 ) );
+	}
+
+	static String hex ( byte[] b, int n )
+	{
+		StringBuilder sb = new StringBuilder ();
+		for ( int i = 0; i < n; ++i )
+			sb.append ( String.format ( "%02x ", b[i] ) );
+		return sb.toString ();
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.Arrays;
+
+
+/**
+ * Records durations, and computes their percentiles. Not thread safe : only used on the dart thread.
+ */
+class LatencyRecorder
+{
+	static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+	long[] samples = new long[1 << 16];
+	int    count   = 0;
+
+
+	void record ( long nanos )
+	{
+		if ( count == samples.length )
+			samples = Arrays.copyOf ( samples, 2 * count );
+		samples[count++] = nanos;
+	}
+
+	/**
+	 * Returns "p50 .. µs, p90 .. µs, p99 .. µs, p99.9 .. µs, max .. µs"
+	 */
+	String summary ()
+	{
+		if ( count == 0 )
+			return "no sample";
+		long[] a = Arrays.copyOf ( samples, count );
+		Arrays.sort ( a );
+		StringBuilder sb = new StringBuilder ();
+		for ( double p : PERCENTILES )
+		{
+			int i = (int) Math.min ( count - 1, Math.ceil ( p / 100.0 * count ) - 1 );
+			sb.append ( "p" ).append ( ( p == Math.floor ( p ) ) ? String.valueOf ( (int) p ) : String.valueOf ( p ) );
+			sb.append ( " " ).append ( a[Math.max ( i, 0 )] / 1000 ).append ( " µs, " );
+		}
+		sb.append ( "max " ).append ( a[count - 1] / 1000 ).append ( " µs" );
+		return sb.toString ();
+	}
+}
@@ -0,0 +1,456 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.StandardMessageCodec;
+import xyz.canardoux.TauNative.FakeDevice;
+
+
+/**
+ * The fake Dart side of the load test : sends the commands of a scenario, and checks the replies and the events.
+ *
+ * The replies and the events are all handled on the dart thread. The checks are :
+ * - every command gets a reply (otherwise it is lost)
+ * - the progress values of each slot never go back (otherwise the events are out of order)
+ * - the recorded data of each slot are the ramp produced by the fake recorder (otherwise data were lost or reordered)
+ * - the sequence numbers of the binary stream channels have no gap, and do not go back
+ * - the bytes accepted by `feed` (and by `needSomeFood` after a refused chunk) are the bytes counted by the plugin,
+ *   and, once the stream is drained, the bytes played by the engine
+ */
+class LoadDriver implements LoopbackMessenger.DartSide
+{
+	static final int  MAX_IN_FLIGHT   = 2000;
+	static final long REPLY_TIMEOUT   = 10000000000L; // 10 s
+
+	/**
+	 * What the Dart side knows about one slot. Only used on the dart thread, except `reset`.
+	 */
+	static class Slot
+	{
+		volatile boolean reset    = true;
+		long             position;
+		long             recorderDuration;
+		long             samples;  // Number of recorded samples received
+		int              sequence; // Next expected stream sequence
+		long             accepted; // Bytes accepted, as Dart counts them
+		boolean          starving; // `feed` returned 0 : Dart waits for needSomeFood
+
+		void resetIfNeeded ()
+		{
+			if ( reset )
+			{
+				reset = false;
+				position = -1;
+				recorderDuration = -1;
+				samples = 0;
+				sequence = 0;
+				accepted = 0;
+				starving = false;
+			}
+		}
+	}
+
+	final LoopbackMessenger       messenger = new LoopbackMessenger ( this );
+	final Slot[]                  players   = new Slot[TauSoundSlotTable.CAPACITY];
+	final Slot[]                  recorders = new Slot[TauSoundSlotTable.CAPACITY];
+	final Map<Long, String>       inFlight  = new ConcurrentHashMap<Long, String> ();
+	final AtomicInteger           nbInFlight = new AtomicInteger ();
+	long                          nextId    = 0;
+
+	// Written on the dart thread only
+	final LatencyRecorder         replyLatency  = new LatencyRecorder ();
+	final LatencyRecorder         eventLatency  = new LatencyRecorder (); // From the send by the platform side to the Dart handler
+	final LatencyRecorder         streamLatency = new LatencyRecorder (); // From the stream header timestamp to the Dart handler
+	final Map<String, Long>       events        = new TreeMap<String, Long> ();
+	final Map<String, Long>       errors        = new TreeMap<String, Long> ();
+	long                          nbReplies;
+	long                          nbEvents;
+	long                          outOfOrder;
+	long                          lostSequences;
+	long                          discontinuities;
+	long                          checkedStreams;
+	long                          byteMismatches;
+
+	// Written on the sender thread only
+	long                          nbSent;
+	long                          nbStalls;
+
+
+	/* ctor */ LoadDriver ()
+	{
+		for ( int i = 0; i < TauSoundSlotTable.CAPACITY; ++i )
+		{
+			players[i] = new Slot ();
+			recorders[i] = new Slot ();
+		}
+	}
+
+	Slot slot ( String channel, int slotNo )
+	{
+		return channel.startsWith ( LoadScenario.RECORDER ) ? recorders[slotNo] : players[slotNo];
+	}
+
+	static void count ( Map<String, Long> map, String key )
+	{
+		Long n = map.get ( key );
+		map.put ( key, ( n == null ) ? 1 : n + 1 );
+	}
+
+	// =========================================================== commands =========================================================
+
+	void send ( final String channel, final int slotNo, final String method, final Map<String, Object> args )
+	{
+		while ( nbInFlight.get () >= MAX_IN_FLIGHT )
+		{
+			++nbStalls;
+			LockSupport.parkNanos ( 100000 );
+		}
+		if ( method.startsWith ( "start" ) )
+			slot ( channel, slotNo ).reset = true; // The previous phase has been drained : no old event can arrive now
+		Map<String, Object> a = new HashMap<String, Object> ( args );
+		a.put ( "slotNo", slotNo );
+		final Long id = nextId++;
+		final long t0 = System.nanoTime ();
+		inFlight.put ( id, method );
+		nbInFlight.incrementAndGet ();
+		++nbSent;
+		messenger.sendFromDart ( channel, StandardMessageCodec.INSTANCE.encodeMessage ( Arrays.asList ( method, a ) ), new BinaryMessenger.BinaryReply ()
+		{
+			@Override
+			public void reply ( ByteBuffer reply )
+			{
+				replyLatency.record ( System.nanoTime () - t0 );
+				++nbReplies;
+				inFlight.remove ( id );
+				nbInFlight.decrementAndGet ();
+				List<?> r = ( reply == null ) ? null : (List<?>) StandardMessageCodec.INSTANCE.decodeMessage ( reply );
+				if ( r == null )
+					count ( errors, method + " : not implemented" );
+				else if ( r.size () > 1 )
+					count ( errors, method + " : " + r.get ( 0 ) );
+				else
+					onReply ( channel, slotNo, method, args, r.get ( 0 ) );
+			}
+		} );
+	}
+
+	/**
+	 * Called on the dart thread with the value of a successful reply
+	 */
+	void onReply ( String channel, int slotNo, String method, Map<String, Object> args, Object value )
+	{
+		Slot s = slot ( channel, slotNo );
+		s.resetIfNeeded ();
+		if ( method.equals ( "feed" ) )
+		{
+			int ln = (Integer) value;
+			s.accepted += ln;
+			if ( ln == 0 )
+				s.starving = true;
+		} else if ( method.equals ( "getMetrics" ) && args.containsKey ( "checkBytes" ) )
+		{
+			checkBytes ( slotNo, s, (Map<?, ?>) value, (Boolean) args.get ( "checkBytes" ) );
+		}
+	}
+
+	/**
+	 * Waits until all the commands sent got their reply, or until the timeout.
+	 */
+	void awaitReplies ()
+	{
+		long deadline = System.nanoTime () + REPLY_TIMEOUT;
+		while ( nbInFlight.get () > 0 && System.nanoTime () < deadline )
+		{
+			LockSupport.parkNanos ( 1000000 );
+		}
+		messenger.drain ();
+	}
+
+	void run ( LoadScenario scenario )
+	{
+		for ( LoadScenario.Phase phase : scenario.phases )
+		{
+			if ( phase.durationMs == 0 )
+			{
+				for ( LoadScenario.Command c : phase.commands )
+				{
+					for ( int i = 0; i < c.nbSlots; ++i )
+					{
+						send ( c.channel, c.firstSlot + i, c.method, c.args );
+					}
+				}
+			} else
+			{
+				runRepeated ( phase );
+			}
+			awaitReplies ();
+		}
+		// Let the last events arrive
+		FakeDevice.sleep ( 4L * FakeDevice.periodMs );
+		messenger.drain ();
+	}
+
+	void runRepeated ( LoadScenario.Phase phase )
+	{
+		int n = phase.commands.size ();
+		if ( n == 0 )
+		{
+			FakeDevice.sleep ( phase.durationMs );
+			return;
+		}
+		long[] interval = new long[n];
+		long[] next = new long[n];
+		int[] cursor = new int[n];
+		long start = System.nanoTime ();
+		long end = start + phase.durationMs * 1000000L;
+		for ( int i = 0; i < n; ++i )
+		{
+			interval[i] = 1000000000L / phase.commands.get ( i ).rate;
+			next[i] = start;
+		}
+		while ( true )
+		{
+			int k = 0;
+			for ( int i = 1; i < n; ++i )
+			{
+				if ( next[i] < next[k] )
+					k = i;
+			}
+			if ( next[k] >= end )
+				return;
+			long wait = next[k] - System.nanoTime ();
+			if ( wait > 0 )
+				LockSupport.parkNanos ( wait );
+			LoadScenario.Command c = phase.commands.get ( k );
+			send ( c.channel, c.firstSlot + cursor[k], c.method, c.args );
+			cursor[k] = ( cursor[k] + 1 ) % c.nbSlots;
+			next[k] += interval[k];
+		}
+	}
+
+	// =========================================================== events ===========================================================
+
+	@Override
+	public void onMessage ( String channel, ByteBuffer message, long sentNanos )
+	{
+		long now = System.nanoTime ();
+		eventLatency.record ( now - sentNanos );
+		++nbEvents;
+		if ( channel.equals ( LoadScenario.PLAYER ) || channel.equals ( LoadScenario.RECORDER ) )
+		{
+			List<?> call = (List<?>) StandardMessageCodec.INSTANCE.decodeMessage ( message );
+			onMethodEvent ( channel, (String) call.get ( 0 ), (Map<?, ?>) call.get ( 1 ) );
+		} else if ( channel.endsWith ( "/events" ) )
+		{
+			onCompactEvent ( channel, message );
+		} else if ( channel.endsWith ( "/progress" ) )
+		{
+			onProgressBatch ( channel, (Map<?, ?>) StandardMessageCodec.INSTANCE.decodeMessage ( message ) );
+		} else if ( channel.startsWith ( TauSoundStreamChannel.CHANNEL_PREFIX ) )
+		{
+			onStream ( message, now );
+		} else
+		{
+			count ( events, "unknown channel " + channel );
+		}
+	}
+
+	void onMethodEvent ( String channel, String method, Map<?, ?> args )
+	{
+		count ( events, method );
+		Slot s = slot ( channel, (Integer) args.get ( "slotNo" ) );
+		s.resetIfNeeded ();
+		if ( method.equals ( "updateProgress" ) )
+			checkPosition ( s, ( (Number) args.get ( "position" ) ).longValue () );
+		else if ( method.equals ( "updateRecorderProgress" ) )
+			checkRecorderDuration ( s, ( (Number) args.get ( "duration" ) ).longValue () );
+		else if ( method.equals ( "needSomeFood" ) )
+			onNeedSomeFood ( s, ( (Number) args.get ( "arg" ) ).longValue () );
+		else if ( method.equals ( "recordingData" ) )
+		{
+			byte[] data = (byte[]) args.get ( "recordingData" );
+			checkRamp ( s, ByteBuffer.wrap ( data ).order ( ByteOrder.LITTLE_ENDIAN ), 0, data.length );
+		}
+	}
+
+	void onCompactEvent ( String channel, ByteBuffer record )
+	{
+		int eventId = record.getInt ( 0 );
+		Slot s = slot ( channel, record.getInt ( 4 ) );
+		s.resetIfNeeded ();
+		long a = record.getLong ( 16 );
+		switch ( eventId )
+		{
+			case TauSoundEventChannel.EVENT_UPDATE_PROGRESS:
+				count ( events, "updateProgress (compact)" );
+				checkPosition ( s, a );
+				break;
+			case TauSoundEventChannel.EVENT_NEED_SOME_FOOD:
+				count ( events, "needSomeFood (compact)" );
+				onNeedSomeFood ( s, a );
+				break;
+			case TauSoundEventChannel.EVENT_RECORDER_PROGRESS:
+				count ( events, "updateRecorderProgress (compact)" );
+				checkRecorderDuration ( s, a );
+				break;
+			default:
+				count ( events, "unknown compact event " + eventId );
+		}
+	}
+
+	void onProgressBatch ( String channel, Map<?, ?> dic )
+	{
+		count ( events, "progressBatch" );
+		int[] slotNos = (int[]) dic.get ( "slotNo" );
+		boolean recorder = channel.startsWith ( LoadScenario.RECORDER );
+		long[] values = (long[]) dic.get ( recorder ? "duration" : "position" );
+		for ( int i = 0; i < slotNos.length; ++i )
+		{
+			Slot s = slot ( channel, slotNos[i] );
+			s.resetIfNeeded ();
+			if ( recorder )
+				checkRecorderDuration ( s, values[i] );
+			else
+				checkPosition ( s, values[i] );
+		}
+	}
+
+	void onStream ( ByteBuffer message, long now )
+	{
+		count ( events, "recordingData (stream)" );
+		Slot s = recorders[message.getInt ( 0 )];
+		s.resetIfNeeded ();
+		int sequence = message.getInt ( 4 );
+		streamLatency.record ( now - message.getLong ( 8 ) * 1000 );
+		if ( sequence < s.sequence )
+			++outOfOrder;
+		else if ( sequence > s.sequence )
+			lostSequences += sequence - s.sequence;
+		s.sequence = sequence + 1;
+		checkRamp ( s, message, TauSoundStreamChannel.HEADER_SIZE, message.limit () - TauSoundStreamChannel.HEADER_SIZE );
+	}
+
+	/**
+	 * Like the Dart completer : only a needSomeFood which answers a refused chunk counts, as the bytes consumed from that chunk
+	 */
+	void onNeedSomeFood ( Slot s, long ln )
+	{
+		if ( !s.starving )
+			return;
+		s.starving = false;
+		s.accepted += ln;
+	}
+
+	/**
+	 * Compares the bytes accepted by the slot with the plugin metrics, and with what the engine played if `played`
+	 */
+	void checkBytes ( int slotNo, Slot s, Map<?, ?> metrics, boolean played )
+	{
+		++checkedStreams;
+		long fed = ( (Number) metrics.get ( "bytesFed" ) ).longValue ();
+		if ( fed != s.accepted )
+		{
+			++byteMismatches;
+			count ( errors, "slot " + slotNo + " : " + s.accepted + " bytes accepted, " + fed + " fed" );
+		}
+		if ( !played )
+			return;
+		TauSoundPlayer player = (TauSoundPlayer) TauSoundPlayerManager.TauSoundPlayerPlugin.slots.get ( slotNo );
+		long engine = player.m_flautoPlayer.bytesPlayed ();
+		if ( engine != s.accepted )
+		{
+			++byteMismatches;
+			count ( errors, "slot " + slotNo + " : " + s.accepted + " bytes accepted, " + engine + " played" );
+		}
+	}
+
+	void checkPosition ( Slot s, long position )
+	{
+		if ( position < s.position )
+			++outOfOrder;
+		s.position = position;
+	}
+
+	void checkRecorderDuration ( Slot s, long duration )
+	{
+		if ( duration < s.recorderDuration )
+			++outOfOrder;
+		s.recorderDuration = duration;
+	}
+
+	void checkRamp ( Slot s, ByteBuffer data, int offset, int length )
+	{
+		if ( length < 2 )
+			return;
+		short first = data.getShort ( offset );
+		if ( first != FakeDevice.rampSample ( s.samples ) )
+		{
+			++discontinuities;
+			s.samples = first & 0xFFFF; // Resynchronize
+		}
+		s.samples += length / 2;
+	}
+
+	// =========================================================== report ===========================================================
+
+	/**
+	 * Prints the report, and returns false if a command or an event was lost or out of order
+	 */
+	boolean report ( LoadScenario scenario, long elapsedNanos )
+	{
+		double seconds = elapsedNanos / 1e9;
+		long nbErrors = 0;
+		for ( long n : errors.values () )
+		{
+			nbErrors += n;
+		}
+		long lostReplies = nbSent - nbReplies;
+		System.out.println ( "== " + scenario.name + " : " + scenario.nbPlayers + " player slots, " + scenario.nbRecorders + " recorder slots, "
+			+ String.format ( "%.1f s", seconds ) );
+		System.out.println ( "commands : " + nbSent + " sent, " + nbReplies + " replied, " + nbErrors + " errors, " + lostReplies + " lost, "
+			+ String.format ( "%.0f", nbReplies / seconds ) + " commands/s, " + nbStalls + " sender stalls" );
+		System.out.println ( "  reply latency   : " + replyLatency.summary () );
+		System.out.println ( "events   : " + nbEvents + " received, " + String.format ( "%.0f", nbEvents / seconds ) + " events/s" );
+		System.out.println ( "  " + events );
+		System.out.println ( "  event delivery  : " + eventLatency.summary () );
+		if ( streamLatency.count > 0 )
+			System.out.println ( "  stream latency  : " + streamLatency.summary () );
+		System.out.println ( "ordering : " + outOfOrder + " out of order, " + lostSequences + " lost stream chunks, " + discontinuities + " recorded data discontinuities" );
+		if ( checkedStreams > 0 )
+			System.out.println ( "bytes    : " + checkedStreams + " streams checked, " + byteMismatches + " mismatches" );
+		if ( nbErrors > 0 )
+			System.out.println ( "errors   : " + errors );
+		if ( lostReplies > 0 )
+			System.out.println ( "lost     : " + new TreeMap<Long, String> ( inFlight ).values () );
+		return lostReplies == 0 && outOfOrder == 0 && lostSequences == 0 && discontinuities == 0 && byteMismatches == 0;
+	}
+}
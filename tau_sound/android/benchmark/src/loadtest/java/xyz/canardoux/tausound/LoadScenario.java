@@ -0,0 +1,336 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import xyz.canardoux.TauNative.FakeDevice;
+import xyz.canardoux.TauNative.Flauto;
+
+
+/**
+ * A scripted multi-slot scenario : a list of phases, run one after the other.
+ *
+ * A `once()` phase sends one command to each slot of a range. A `during()` phase sends its `repeat()` commands
+ * for a given time, each one at its own rate, round-robin on the slots of its range.
+ * The driver waits for all the replies at the end of each phase.
+ */
+class LoadScenario
+{
+	static final String PLAYER   = "xyz.canardoux.tau_player";
+	static final String RECORDER = "xyz.canardoux.tau_recorder";
+
+	static class Command
+	{
+		final String              channel;
+		final int                 firstSlot;
+		final int                 nbSlots;
+		final String              method;
+		final Map<String, Object> args;
+		final int                 rate; // Commands per second, for all the slots of the range
+
+		/* ctor */ Command ( String aChannel, int aFirstSlot, int aNbSlots, String aMethod, int aRate, Object... keyValues )
+		{
+			channel = aChannel;
+			firstSlot = aFirstSlot;
+			nbSlots = aNbSlots;
+			method = aMethod;
+			rate = aRate;
+			args = new HashMap<String, Object> ();
+			for ( int i = 0; i < keyValues.length; i += 2 )
+			{
+				args.put ( (String) keyValues[i], keyValues[i + 1] );
+			}
+		}
+	}
+
+	static class Phase
+	{
+		final List<Command> commands = new ArrayList<Command> ();
+		final int           durationMs; // 0 : each command is sent once to each slot
+
+		/* ctor */ Phase ( int aDurationMs )
+		{
+			durationMs = aDurationMs;
+		}
+	}
+
+	final String      name;
+	final List<Phase> phases = new ArrayList<Phase> ();
+	int               nbPlayers;
+	int               nbRecorders;
+	boolean           partialFeed; // The fake engine accepts only what fits in its buffer
+
+
+	/* ctor */ LoadScenario ( String aName )
+	{
+		name = aName;
+	}
+
+	LoadScenario once ( String channel, int firstSlot, int nbSlots, String method, Object... keyValues )
+	{
+		Phase phase = new Phase ( 0 );
+		phase.commands.add ( new Command ( channel, firstSlot, nbSlots, method, 0, keyValues ) );
+		phases.add ( phase );
+		if ( method.equals ( "openPlayer" ) )
+			nbPlayers = Math.max ( nbPlayers, firstSlot + nbSlots );
+		if ( method.equals ( "openRecorder" ) )
+			nbRecorders = Math.max ( nbRecorders, firstSlot + nbSlots );
+		return this;
+	}
+
+	LoadScenario during ( int durationMs )
+	{
+		phases.add ( new Phase ( durationMs ) );
+		return this;
+	}
+
+	LoadScenario repeat ( String channel, int firstSlot, int nbSlots, int ratePerSecond, String method, Object... keyValues )
+	{
+		Phase phase = phases.get ( phases.size () - 1 );
+		if ( phase.durationMs == 0 )
+			throw new IllegalStateException ( "repeat() must follow during()" );
+		phase.commands.add ( new Command ( channel, firstSlot, nbSlots, method, ratePerSecond, keyValues ) );
+		return this;
+	}
+
+	// ------------------------------------------------------------------------------------------------------------------------------
+
+	static final Object[] OPEN = { "focus", 0, "category", 0, "mode", 0, "device", 0, "audioFlags", 0 };
+
+	LoadScenario openPlayers ( int n )
+	{
+		return once ( PLAYER, 0, n, "openPlayer", OPEN ).once ( PLAYER, 0, n, "setSubscriptionDuration", "duration", 50 );
+	}
+
+	LoadScenario openRecorders ( int n )
+	{
+		return once ( RECORDER, 0, n, "openRecorder", OPEN ).once ( RECORDER, 0, n, "setSubscriptionDuration", "duration", 50 );
+	}
+
+	/**
+	 * Starts `n` players in the pcm16 stream mode, with a ring buffer
+	 */
+	LoadScenario startStreams ( int n )
+	{
+		return once ( PLAYER, 0, n, "startPlayer", "codec", TauSoundPcmCache.CODEC_PCM16, "sampleRate", 44100, "numChannels", 1, "blockSize", 1764, "ringBufferSize", 44100 );
+	}
+
+	LoadScenario startRecording ( int n, boolean binaryStream, int coalesceMs )
+	{
+		return once ( RECORDER, 0, n, "startRecorder", "codec", TauSoundPcmCache.CODEC_PCM16, "sampleRate", 16000, "numChannels", 1, "bitRate", 16000,
+			"path", null, "audioSource", 0, "toStream", 1, "binaryStream", binaryStream, "coalesceMs", coalesceMs );
+	}
+
+	/**
+	 * Feeds `n` player streams in real time : one 20 ms chunk (44.1 kHz mono) per slot, 50 times per second
+	 */
+	LoadScenario feedStreams ( int n )
+	{
+		return repeat ( PLAYER, 0, n, 50 * n, "feed", "data", new byte[1764] );
+	}
+
+	/**
+	 * Feeds `n` player streams `speed` times faster than real time : the rings fill up, and `feed` starts refusing chunks
+	 */
+	LoadScenario feedStreams ( int n, int speed )
+	{
+		return repeat ( PLAYER, 0, n, 50 * n * speed, "feed", "data", new byte[1764] );
+	}
+
+	/**
+	 * Lets `n` player streams drain, then checks that the bytes they accepted are the bytes fed, and, if `played`, the bytes the engine played
+	 */
+	LoadScenario checkBytes ( int n, boolean played )
+	{
+		return during ( 1000 ).once ( PLAYER, 0, n, "getMetrics", "checkBytes", played );
+	}
+
+	LoadScenario closePlayers ( int n )
+	{
+		return once ( PLAYER, 0, n, "stopPlayer" ).once ( PLAYER, 0, n, "closePlayer" );
+	}
+
+	LoadScenario closeRecorders ( int n )
+	{
+		return once ( RECORDER, 0, n, "stopRecorder" ).once ( RECORDER, 0, n, "closeRecorder" );
+	}
+
+	static LoadScenario byName ( String name, int seconds )
+	{
+		int ms = seconds * 1000;
+		if ( name.equals ( "players" ) || name.equals ( "executor" ) )
+		{
+			LoadScenario s = new LoadScenario ( name );
+			if ( name.equals ( "executor" ) )
+				s.once ( PLAYER, 0, 1, "setExecutionMode", "perSlotExecutor", true );
+			s.openPlayers ( 32 ).startStreams ( 32 )
+				.during ( ms ).feedStreams ( 32, 2 )
+					.repeat ( PLAYER, 0, 32, 2000, "getProgress" )
+					.repeat ( PLAYER, 0, 32, 1000, "setVolume", "volume", 0.8 )
+					.repeat ( PLAYER, 0, 32, 1000, "getPlayerState" )
+				.checkBytes ( 32, true );
+			if ( name.equals ( "executor" ) ) // The next scenarios run inline
+				s.once ( PLAYER, 0, 1, "setExecutionMode", "perSlotExecutor", false );
+			return s.closePlayers ( 32 );
+		}
+		if ( name.equals ( "partial" ) )
+		{
+			// An engine which accepts only a part of a block : the feeders must feed the rest, nothing is lost
+			LoadScenario s = new LoadScenario ( name );
+			s.partialFeed = true;
+			return s.openPlayers ( 8 ).startStreams ( 8 )
+				.during ( ms ).feedStreams ( 8, 2 )
+				.checkBytes ( 8, true )
+				.closePlayers ( 8 );
+		}
+		if ( name.equals ( "recorders" ) )
+		{
+			LoadScenario s = new LoadScenario ( name );
+			return s.openRecorders ( 16 ).startRecording ( 8, true, 0 )
+				.once ( RECORDER, 8, 8, "startRecorder", "codec", TauSoundPcmCache.CODEC_PCM16, "sampleRate", 16000, "numChannels", 1, "bitRate", 16000,
+					"path", null, "audioSource", 0, "toStream", 1, "binaryStream", false, "coalesceMs", 100, "meter", true )
+				.during ( ms )
+					.repeat ( RECORDER, 0, 16, 2000, "isEncoderSupported", "codec", TauSoundPcmCache.CODEC_PCM16 )
+					.repeat ( RECORDER, 0, 16, 500, "getMetrics" )
+				.closeRecorders ( 16 );
+		}
+		if ( name.equals ( "wav" ) )
+		{
+			// Long pcm16WAV records written by the plugin : stopRecorder must not wait for the whole file
+			LoadScenario s = new LoadScenario ( name ).openRecorders ( 8 );
+			for ( int i = 0; i < 8; ++i )
+				s.once ( RECORDER, i, 1, "startRecorder", "codec", Flauto.t_CODEC.pcm16WAV.ordinal (), "sampleRate", 48000, "numChannels", 2, "bitRate", 16000,
+					"path", "loadtest-" + i + ".wav", "audioSource", 0, "toStream", 0, "wavWriter", true, "fsyncMs", 1000 );
+			return s.during ( ms )
+					.repeat ( RECORDER, 0, 8, 500, "getMetrics" )
+				.closeRecorders ( 8 );
+		}
+		if ( name.equals ( "mapped" ) )
+		{
+			// Long WAV files streamed from a memory mapping : the heap must stay flat
+			String path = writeWav ( "loadtest-mapped.wav", 48000, 2, seconds + 2 );
+			return new LoadScenario ( name ).openPlayers ( 16 )
+				.once ( PLAYER, 0, 16, "startPlayer", "codec", TauSoundPcmCache.CODEC_PCM16WAV, "fromURI", path, "blockSize", 9600 )
+				.during ( ms )
+					.repeat ( PLAYER, 0, 16, 2000, "getProgress" )
+					.repeat ( PLAYER, 0, 16, 500, "getMetrics" )
+				.closePlayers ( 16 );
+		}
+		if ( name.equals ( "registry" ) )
+		{
+			// A clip uploaded once, then replayed again and again by its key
+			byte[] clip = new byte[2 * 1024 * 1024];
+			for ( int i = 0; i < clip.length / 2; ++i )
+				clip[2 * i] = (byte) FakeDevice.rampSample ( i );
+			String key;
+			try
+			{
+				key = TauSoundPcmCache.keyOf ( clip );
+			} catch ( Exception e )
+			{
+				throw new RuntimeException ( e );
+			}
+			LoadScenario s = new LoadScenario ( name ).once ( PLAYER, 0, 1, "registerBuffer", "data", clip );
+			int cycles = Math.max ( 1, seconds * 2 );
+			for ( int i = 0; i < cycles; ++i )
+			{
+				s.openPlayers ( 16 )
+					.once ( PLAYER, 0, 16, "startPlayer", "codec", TauSoundPcmCache.CODEC_PCM16, "fromBuffer", key, "sampleRate", 44100, "numChannels", 1, "blockSize", 1764 )
+					.during ( 300 ).repeat ( PLAYER, 0, 16, 200, "isBufferRegistered", "key", key )
+					.closePlayers ( 16 );
+			}
+			return s.once ( PLAYER, 0, 1, "getBufferRegistryStats" ).once ( PLAYER, 0, 1, "releaseBuffer", "key", key );
+		}
+		if ( name.equals ( "resample" ) )
+		{
+			// 22.05 kHz stereo chunks, converted to the device rate in the feed path
+			return new LoadScenario ( name ).openPlayers ( 16 )
+				.once ( PLAYER, 0, 16, "startPlayer", "codec", TauSoundPcmCache.CODEC_PCM16, "sampleRate", 22050, "numChannels", 2, "blockSize", 3840,
+					"ringBufferSize", 192000, "resample", true )
+				.during ( ms )
+					.repeat ( PLAYER, 0, 16, 50 * 16, "feed", "data", new byte[1764] )
+					.repeat ( PLAYER, 0, 16, 500, "getMetrics" )
+				.checkBytes ( 16, false ) // The engine plays the converted bytes
+				.closePlayers ( 16 );
+		}
+		if ( name.equals ( "mixed" ) )
+		{
+			LoadScenario s = new LoadScenario ( name );
+			return s.once ( PLAYER, 0, 1, "setCompactEvents", "enabled", true )
+				.once ( RECORDER, 0, 1, "setCompactEvents", "enabled", true )
+				.once ( PLAYER, 0, 1, "setProgressTicker", "duration", 100 )
+				.openPlayers ( 24 ).openRecorders ( 8 ).startStreams ( 24 ).startRecording ( 8, true, 40 )
+				.during ( ms ).feedStreams ( 24 )
+					.repeat ( PLAYER, 0, 24, 2000, "getProgress" )
+					.repeat ( RECORDER, 0, 8, 500, "getBufferPoolStats" )
+				.checkBytes ( 24, true )
+				.closePlayers ( 24 ).closeRecorders ( 8 )
+				.once ( PLAYER, 0, 1, "setProgressTicker", "duration", 0 )
+				.once ( PLAYER, 0, 1, "setCompactEvents", "enabled", false )
+				.once ( RECORDER, 0, 1, "setCompactEvents", "enabled", false );
+		}
+		if ( name.equals ( "churn" ) )
+		{
+			// Sessions opened and closed again and again : checks that the events of stale sessions are dropped
+			LoadScenario s = new LoadScenario ( name );
+			int cycles = Math.max ( 1, seconds * 2 );
+			for ( int i = 0; i < cycles; ++i )
+			{
+				s.openPlayers ( 64 ).startStreams ( 64 ).during ( 300 ).feedStreams ( 64 ).closePlayers ( 64 );
+			}
+			return s;
+		}
+		throw new IllegalArgumentException ( "Unknown scenario : " + name + " (players, executor, partial, recorders, wav, mapped, registry, resample, mixed, churn)" );
+	}
+
+	/**
+	 * Writes a pcm16 WAV file with the FakeDevice ramp, in the temporary directory
+	 */
+	static String writeWav ( String name, int sampleRate, int numChannels, int seconds )
+	{
+		File file = new File ( System.getProperty ( "java.io.tmpdir" ), name );
+		int frames = sampleRate * seconds;
+		ByteBuffer b = ByteBuffer.allocate ( 44 + frames * numChannels * 2 ).order ( ByteOrder.LITTLE_ENDIAN );
+		b.put ( "RIFF".getBytes () ).putInt ( 36 + frames * numChannels * 2 ).put ( "WAVEfmt ".getBytes () ).putInt ( 16 )
+			.putShort ( (short) 1 ).putShort ( (short) numChannels ).putInt ( sampleRate ).putInt ( sampleRate * numChannels * 2 )
+			.putShort ( (short) ( numChannels * 2 ) ).putShort ( (short) 16 ).put ( "data".getBytes () ).putInt ( frames * numChannels * 2 );
+		for ( long i = 0; i < (long) frames * numChannels; ++i )
+			b.putShort ( FakeDevice.rampSample ( i ) );
+		try
+		{
+			FileOutputStream out = new FileOutputStream ( file );
+			out.write ( b.array () );
+			out.close ();
+		} catch ( IOException e )
+		{
+			throw new RuntimeException ( e );
+		}
+		return file.getPath ();
+	}
+}
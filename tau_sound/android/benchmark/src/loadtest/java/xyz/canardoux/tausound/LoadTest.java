@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.HashMap;
+
+import android.content.Context;
+import xyz.canardoux.TauNative.FakeDevice;
+
+
+/**
+ * Headless load test of the plugin : a fake Dart side drives scripted multi-slot scenarios through an in-memory messenger,
+ * against a fake engine which plays and records in real time on its own threads.
+ *
+ *     ./gradlew :benchmark:loadTest -Pscenario=players -Pseconds=10
+ *
+ * Scenarios : players, executor, partial, recorders, wav, mapped, registry, resample, mixed, churn, or all.
+ * The exit status is not 0 if a command reply or an event was lost, if an event was out of order,
+ * or if the bytes accepted by `feed` differ from the bytes counted by the plugin or played by the fake engine.
+ */
+public class LoadTest
+{
+	static final String[] ALL = { "players", "executor", "partial", "recorders", "wav", "mapped", "registry", "resample", "mixed", "churn" };
+
+	public static void main ( String[] args )
+	{
+		String name = ( args.length > 0 ) ? args[0] : "all";
+		int seconds = ( args.length > 1 ) ? Integer.parseInt ( args[1] ) : 5;
+		FakeDevice.realtime = true;
+		boolean ok = true;
+		for ( String s : name.equals ( "all" ) ? ALL : new String[] { name } )
+		{
+			ok &= run ( LoadScenario.byName ( s, seconds ) );
+		}
+		System.exit ( ok ? 0 : 1 );
+	}
+
+	static boolean run ( LoadScenario scenario )
+	{
+		LoadDriver driver = new LoadDriver ();
+		Context ctx = new Context ();
+		TauSoundLazyChannel.attach ( ctx, null, driver.messenger ); // As the plugin does : the first scenario creates the managers
+		driver.send ( LoadScenario.PLAYER, 0, "resetPlugin", new HashMap<String, Object> () );
+		driver.send ( LoadScenario.RECORDER, 0, "resetPlugin", new HashMap<String, Object> () );
+		driver.awaitReplies ();
+		FakeDevice.partialFeed = scenario.partialFeed;
+		long t0 = System.nanoTime ();
+		driver.run ( scenario );
+		boolean ok = driver.report ( scenario, System.nanoTime () - t0 );
+		// The managers are singletons : leave them clean for the next scenario
+		driver.send ( LoadScenario.PLAYER, 0, "resetPlugin", new HashMap<String, Object> () );
+		driver.send ( LoadScenario.RECORDER, 0, "resetPlugin", new HashMap<String, Object> () );
+		driver.awaitReplies ();
+		return ok;
+	}
+}
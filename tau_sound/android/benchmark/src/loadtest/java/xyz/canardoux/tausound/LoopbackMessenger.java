@@ -0,0 +1,174 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.plugin.common.BinaryMessenger;
+
+
+/**
+ * An in-memory messenger with a fake Dart side.
+ *
+ * As with Flutter, the messages from Dart are given to the channel handlers on the platform ("main") thread,
+ * and the messages and replies to Dart are copied, then handled one at a time on the "dart" thread.
+ */
+class LoopbackMessenger implements BinaryMessenger
+{
+	interface DartSide
+	{
+		/**
+		 * Called on the dart thread. `sentNanos` is the time when the platform side sent the message.
+		 */
+		void onMessage ( String channel, ByteBuffer message, long sentNanos );
+	}
+
+	final Map<String, BinaryMessageHandler> handlers = new ConcurrentHashMap<String, BinaryMessageHandler> ();
+	final Handler                           main     = new Handler ( Looper.getMainLooper () );
+	final ExecutorService                   dart     = Executors.newSingleThreadExecutor ( new ThreadFactory ()
+	{
+		@Override
+		public Thread newThread ( Runnable r )
+		{
+			Thread t = new Thread ( r, "dart" );
+			t.setDaemon ( true );
+			return t;
+		}
+	} );
+	final DartSide                          dartSide;
+
+
+	/* ctor */ LoopbackMessenger ( DartSide aDartSide )
+	{
+		dartSide = aDartSide;
+	}
+
+	/**
+	 * Copies a message as the Flutter messenger does : its position is its size.
+	 */
+	static ByteBuffer copy ( ByteBuffer message )
+	{
+		if ( message == null )
+			return null;
+		byte[] bytes = new byte[message.position ()];
+		message.position ( 0 );
+		message.get ( bytes );
+		return ByteBuffer.wrap ( bytes ).order ( ByteOrder.LITTLE_ENDIAN );
+	}
+
+	@Override
+	public void send ( String channel, ByteBuffer message )
+	{
+		send ( channel, message, null );
+	}
+
+	@Override
+	public void send ( final String channel, ByteBuffer message, BinaryReply callback )
+	{
+		final long sentNanos = System.nanoTime ();
+		final ByteBuffer bytes = copy ( message );
+		dart.execute ( new Runnable ()
+		{
+			@Override
+			public void run ()
+			{
+				dartSide.onMessage ( channel, bytes, sentNanos );
+			}
+		} );
+	}
+
+	@Override
+	public void setMessageHandler ( String channel, BinaryMessageHandler handler )
+	{
+		if ( handler == null )
+			handlers.remove ( channel );
+		else
+			handlers.put ( channel, handler );
+	}
+
+	/**
+	 * Sends a message from Dart. The reply is given to `reply` on the dart thread.
+	 */
+	void sendFromDart ( final String channel, ByteBuffer message, final BinaryReply reply )
+	{
+		final ByteBuffer bytes = copy ( message );
+		main.post ( new Runnable ()
+		{
+			@Override
+			public void run ()
+			{
+				BinaryMessageHandler handler = handlers.get ( channel );
+				if ( handler == null )
+				{
+					replyToDart ( reply, null );
+					return;
+				}
+				handler.onMessage ( bytes, new BinaryReply ()
+				{
+					@Override
+					public void reply ( ByteBuffer r )
+					{
+						replyToDart ( reply, copy ( r ) );
+					}
+				} );
+			}
+		} );
+	}
+
+	void replyToDart ( final BinaryReply reply, final ByteBuffer bytes )
+	{
+		dart.execute ( new Runnable ()
+		{
+			@Override
+			public void run ()
+			{
+				reply.reply ( bytes );
+			}
+		} );
+	}
+
+	/**
+	 * Waits until all the messages already queued to Dart are handled.
+	 */
+	void drain ()
+	{
+		try
+		{
+			dart.submit ( new Runnable ()
+			{
+				@Override
+				public void run ()
+				{
+				}
+			} ).get ();
+		} catch ( Exception e )
+		{
+			throw new RuntimeException ( e );
+		}
+	}
+}
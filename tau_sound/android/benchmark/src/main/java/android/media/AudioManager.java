@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package android.media;
+
+
+public class AudioManager
+{
+	public static final String PROPERTY_OUTPUT_SAMPLE_RATE     = "android.media.property.OUTPUT_SAMPLE_RATE";
+	public static final String PROPERTY_OUTPUT_FRAMES_PER_BUFFER = "android.media.property.OUTPUT_FRAMES_PER_BUFFER";
+
+	public String getProperty ( String key )
+	{
+		if ( PROPERTY_OUTPUT_SAMPLE_RATE.equals ( key ) )
+			return "48000";
+		if ( PROPERTY_OUTPUT_FRAMES_PER_BUFFER.equals ( key ) )
+			return "192";
+		return null;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package android.media;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * JVM stand-in : no codec can be created.
+ */
+public final class MediaCodec
+{
+	public static final int BUFFER_FLAG_END_OF_STREAM   = 4;
+	public static final int INFO_OUTPUT_FORMAT_CHANGED  = -2;
+
+	public static final class BufferInfo
+	{
+		public int  flags;
+		public int  offset;
+		public long presentationTimeUs;
+		public int  size;
+	}
+
+
+	public static MediaCodec createDecoderByType ( String type ) throws IOException
+	{
+		throw new IOException ( "No media codec on the JVM" );
+	}
+
+	public void configure ( MediaFormat format, Object surface, Object crypto, int flags )
+	{
+	}
+
+	public void start ()
+	{
+	}
+
+	public void stop ()
+	{
+	}
+
+	public void release ()
+	{
+	}
+
+	public int dequeueInputBuffer ( long timeoutUs )
+	{
+		return -1;
+	}
+
+	public int dequeueOutputBuffer ( BufferInfo info, long timeoutUs )
+	{
+		return -1;
+	}
+
+	public ByteBuffer[] getInputBuffers ()
+	{
+		return new ByteBuffer[0];
+	}
+
+	public ByteBuffer[] getOutputBuffers ()
+	{
+		return new ByteBuffer[0];
+	}
+
+	public MediaFormat getOutputFormat ()
+	{
+		return new MediaFormat ();
+	}
+
+	public void queueInputBuffer ( int index, int offset, int size, long presentationTimeUs, int flags )
+	{
+	}
+
+	public void releaseOutputBuffer ( int index, boolean render )
+	{
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package android.media;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * JVM stand-in : there is no media decoder, so `setDataSource()` always fails.
+ */
+public final class MediaExtractor
+{
+	public void setDataSource ( String path ) throws IOException
+	{
+		throw new IOException ( "No media extractor on the JVM" );
+	}
+
+	public int getTrackCount ()
+	{
+		return 0;
+	}
+
+	public MediaFormat getTrackFormat ( int index )
+	{
+		return new MediaFormat ();
+	}
+
+	public void selectTrack ( int index )
+	{
+	}
+
+	public int readSampleData ( ByteBuffer buffer, int offset )
+	{
+		return -1;
+	}
+
+	public long getSampleTime ()
+	{
+		return -1;
+	}
+
+	public boolean advance ()
+	{
+		return false;
+	}
+
+	public void release ()
+	{
+	}
+}
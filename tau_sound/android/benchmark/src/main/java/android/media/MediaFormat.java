@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package android.media;
+
+
+public final class MediaFormat
+{
+	public static final String KEY_MIME          = "mime";
+	public static final String KEY_SAMPLE_RATE   = "sample-rate";
+	public static final String KEY_CHANNEL_COUNT = "channel-count";
+
+
+	public int getInteger ( String name )
+	{
+		throw new UnsupportedOperationException ( "No media decoder on the JVM" );
+	}
+
+	public String getString ( String name )
+	{
+		throw new UnsupportedOperationException ( "No media decoder on the JVM" );
+	}
+}
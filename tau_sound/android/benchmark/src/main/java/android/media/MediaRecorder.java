@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package android.media;
+
+
+public class MediaRecorder
+{
+	public static final class AudioSource
+	{
+		public static final int DEFAULT             = 0;
+		public static final int MIC                 = 1;
+		public static final int VOICE_UPLINK        = 2;
+		public static final int VOICE_DOWNLINK      = 3;
+		public static final int VOICE_CALL          = 4;
+		public static final int CAMCORDER           = 5;
+		public static final int VOICE_RECOGNITION   = 6;
+		public static final int VOICE_COMMUNICATION = 7;
+		public static final int REMOTE_SUBMIX       = 8;
+		public static final int UNPROCESSED         = 9;
+		public static final int VOICE_PERFORMANCE   = 10;
+	}
+}
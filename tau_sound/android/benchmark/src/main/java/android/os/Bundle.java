@@ -0,0 +1,41 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+public final class Bundle
+{
+	final Map<String, Object> map = new HashMap<String, Object> ();
+
+
+	public void putInt ( String key, int value )
+	{
+		map.put ( key, value );
+	}
+
+	public int getInt ( String key, int defaultValue )
+	{
+		Object x = map.get ( key );
+		return ( x instanceof Integer ) ? (Integer) x : defaultValue;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package android.os;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * JVM stand-in : posts the runnables to the executor of the looper.
+ */
+public class Handler
+{
+	final Looper                                        looper;
+	final Map<Runnable, List<ScheduledFuture<?>>>       delayed = new ConcurrentHashMap<Runnable, List<ScheduledFuture<?>>> ();
+
+
+	public Handler ( Looper aLooper )
+	{
+		looper = aLooper;
+	}
+
+	public final Looper getLooper ()
+	{
+		return looper;
+	}
+
+	public final boolean post ( Runnable r )
+	{
+		looper.executor.execute ( r );
+		return true;
+	}
+
+	public final boolean postDelayed ( final Runnable r, long delayMillis )
+	{
+		List<ScheduledFuture<?>> l = delayed.get ( r );
+		if ( l == null )
+		{
+			delayed.putIfAbsent ( r, new CopyOnWriteArrayList<ScheduledFuture<?>> () );
+			l = delayed.get ( r );
+		}
+		l.add ( looper.executor.schedule ( r, delayMillis, TimeUnit.MILLISECONDS ) );
+		return true;
+	}
+
+	public final void removeCallbacks ( Runnable r )
+	{
+		List<ScheduledFuture<?>> l = delayed.remove ( r );
+		if ( l == null )
+			return;
+		for ( ScheduledFuture<?> f : l )
+		{
+			f.cancel ( false );
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package android.os;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * JVM stand-in : the main looper is one daemon thread, named "main".
+ */
+public final class Looper
+{
+	static final ThreadLocal<Looper> current = new ThreadLocal<Looper> ();
+	static final Looper              main    = new Looper ( "main" );
+
+	final ScheduledExecutorService executor;
+	volatile Thread                thread;
+
+
+	/* ctor */ Looper ( final String name )
+	{
+		final Looper self = this;
+		executor = Executors.newSingleThreadScheduledExecutor ( new ThreadFactory ()
+		{
+			@Override
+			public Thread newThread ( final Runnable r )
+			{
+				Thread t = new Thread ( new Runnable ()
+				{
+					@Override
+					public void run ()
+					{
+						current.set ( self );
+						r.run ();
+					}
+				}, name );
+				t.setDaemon ( true );
+				thread = t;
+				return t;
+			}
+		} );
+	}
+
+	public static Looper getMainLooper ()
+	{
+		return main;
+	}
+
+	/**
+	 * Makes the calling thread run as the platform thread : it is then seen as the main looper thread,
+	 * and the plugin code runs inline instead of posting to the "main" thread.
+	 */
+	public static void prepareMainLooper ()
+	{
+		current.set ( main );
+	}
+
+	public static Looper myLooper ()
+	{
+		return current.get ();
+	}
+
+	public Thread getThread ()
+	{
+		return thread;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package android.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * JVM stand-in, with the same accounting as the Android class.
+ */
+public class LruCache<K, V>
+{
+	final LinkedHashMap<K, V> map = new LinkedHashMap<K, V> ( 0, 0.75f, true );
+	int                       maxSize;
+	int                       size;
+	int                       hitCount;
+	int                       missCount;
+	int                       evictionCount;
+
+
+	public LruCache ( int aMaxSize )
+	{
+		maxSize = aMaxSize;
+	}
+
+	protected int sizeOf ( K key, V value )
+	{
+		return 1;
+	}
+
+	public final synchronized V get ( K key )
+	{
+		V v = map.get ( key );
+		if ( v != null )
+			++hitCount;
+		else
+			++missCount;
+		return v;
+	}
+
+	public final synchronized V put ( K key, V value )
+	{
+		size += sizeOf ( key, value );
+		V previous = map.put ( key, value );
+		if ( previous != null )
+			size -= sizeOf ( key, previous );
+		trimToSize ( maxSize );
+		return previous;
+	}
+
+	public final synchronized V remove ( K key )
+	{
+		V previous = map.remove ( key );
+		if ( previous != null )
+			size -= sizeOf ( key, previous );
+		return previous;
+	}
+
+	public synchronized void trimToSize ( int max )
+	{
+		Iterator<Map.Entry<K, V>> it = map.entrySet ().iterator ();
+		while ( size > max && it.hasNext () )
+		{
+			Map.Entry<K, V> e = it.next ();
+			size -= sizeOf ( e.getKey (), e.getValue () );
+			it.remove ();
+			++evictionCount;
+		}
+	}
+
+	public final void evictAll ()
+	{
+		trimToSize ( -1 );
+	}
+
+	public final synchronized int size ()
+	{
+		return size;
+	}
+
+	public final synchronized int maxSize ()
+	{
+		return maxSize;
+	}
+
+	public final synchronized int hitCount ()
+	{
+		return hitCount;
+	}
+
+	public final synchronized int missCount ()
+	{
+		return missCount;
+	}
+
+	public final synchronized int evictionCount ()
+	{
+		return evictionCount;
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package io.flutter.plugin.common;
+
+import java.nio.ByteBuffer;
+
+
+public final class BasicMessageChannel<T>
+{
+	public interface Reply<T>
+	{
+		void reply ( T reply );
+	}
+
+	final BinaryMessenger messenger;
+	final String          name;
+	final MessageCodec<T> codec;
+
+
+	public BasicMessageChannel ( BinaryMessenger aMessenger, String aName, MessageCodec<T> aCodec )
+	{
+		messenger = aMessenger;
+		name = aName;
+		codec = aCodec;
+	}
+
+	public void send ( T message )
+	{
+		send ( message, null );
+	}
+
+	public void send ( T message, final Reply<T> callback )
+	{
+		messenger.send ( name, codec.encodeMessage ( message ), ( callback == null ) ? null : new BinaryMessenger.BinaryReply ()
+		{
+			@Override
+			public void reply ( ByteBuffer reply )
+			{
+				callback.reply ( codec.decodeMessage ( reply ) );
+			}
+		} );
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package io.flutter.plugin.common;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Same contract as the Flutter class : `send()` uses the message position as its size,
+ * and the message is copied before `send()` returns.
+ */
+public interface BinaryMessenger
+{
+	interface BinaryReply
+	{
+		void reply ( ByteBuffer reply );
+	}
+
+	interface BinaryMessageHandler
+	{
+		void onMessage ( ByteBuffer message, BinaryReply reply );
+	}
+
+
+	void send ( String channel, ByteBuffer message );
+
+	void send ( String channel, ByteBuffer message, BinaryReply callback );
+
+	void setMessageHandler ( String channel, BinaryMessageHandler handler );
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package io.flutter.plugin.common;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * `invokeMethod()` encodes the call as the Flutter standard method codec does ([method, arguments]),
+ * and sends it to the messenger.
+ */
+public class MethodChannel
+{
+	public interface Result
+	{
+		void success ( Object result );
+
+		void error ( String errorCode, String errorMessage, Object errorDetails );
+
+		void notImplemented ();
+	}
+
+	public interface MethodCallHandler
+	{
+		void onMethodCall ( MethodCall call, Result result );
+	}
+
+	final BinaryMessenger messenger;
+	final String          name;
+
+
+	public MethodChannel ( BinaryMessenger aMessenger, String aName )
+	{
+		messenger = aMessenger;
+		name = aName;
+	}
+
+	public void invokeMethod ( String method, Object arguments )
+	{
+		messenger.send ( name, StandardMessageCodec.INSTANCE.encodeMessage ( Arrays.asList ( method, arguments ) ) );
+	}
+
+	public void setMethodCallHandler ( final MethodCallHandler handler )
+	{
+		messenger.setMessageHandler ( name, ( handler == null ) ? null : new BinaryMessenger.BinaryMessageHandler ()
+		{
+			@Override
+			public void onMessage ( ByteBuffer message, final BinaryMessenger.BinaryReply reply )
+			{
+				List<?> l = (List<?>) StandardMessageCodec.INSTANCE.decodeMessage ( message );
+				handler.onMethodCall ( new MethodCall ( (String) l.get ( 0 ), l.get ( 1 ) ), new Result ()
+				{
+					@Override
+					public void success ( Object result )
+					{
+						reply.reply ( StandardMessageCodec.INSTANCE.encodeMessage ( Arrays.asList ( result ) ) );
+					}
+
+					@Override
+					public void error ( String errorCode, String errorMessage, Object errorDetails )
+					{
+						reply.reply ( StandardMessageCodec.INSTANCE.encodeMessage ( Arrays.asList ( errorCode, errorMessage, errorDetails ) ) );
+					}
+
+					@Override
+					public void notImplemented ()
+					{
+						reply.reply ( null );
+					}
+				} );
+			}
+		} );
+	}
+}
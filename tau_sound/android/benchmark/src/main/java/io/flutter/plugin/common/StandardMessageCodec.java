@@ -0,0 +1,317 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package io.flutter.plugin.common;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The Flutter standard binary encoding, so that the benchmarks pay the same encoding cost as the real channels.
+ */
+public class StandardMessageCodec implements MessageCodec<Object>
+{
+	public static final StandardMessageCodec INSTANCE = new StandardMessageCodec ();
+
+	static final byte NULL        = 0;
+	static final byte TRUE        = 1;
+	static final byte FALSE       = 2;
+	static final byte INT         = 3;
+	static final byte LONG        = 4;
+	static final byte DOUBLE      = 6;
+	static final byte STRING      = 7;
+	static final byte BYTE_ARRAY  = 8;
+	static final byte INT_ARRAY   = 9;
+	static final byte LONG_ARRAY  = 10;
+	static final byte DOUBLE_ARRAY = 11;
+	static final byte LIST        = 12;
+	static final byte MAP         = 13;
+
+	static final class Stream extends ByteArrayOutputStream
+	{
+		byte[] buffer ()
+		{
+			return buf;
+		}
+	}
+
+
+	@Override
+	public ByteBuffer encodeMessage ( Object message )
+	{
+		if ( message == null )
+			return null;
+		Stream stream = new Stream ();
+		writeValue ( stream, message );
+		ByteBuffer buffer = ByteBuffer.allocateDirect ( stream.size () );
+		buffer.put ( stream.buffer (), 0, stream.size () );
+		return buffer;
+	}
+
+	@Override
+	public Object decodeMessage ( ByteBuffer message )
+	{
+		if ( message == null )
+			return null;
+		message.order ( ByteOrder.nativeOrder () );
+		return readValue ( message );
+	}
+
+	static void writeSize ( ByteArrayOutputStream stream, int value )
+	{
+		if ( value < 254 )
+		{
+			stream.write ( value );
+		} else if ( value <= 0xFFFF )
+		{
+			stream.write ( 254 );
+			writeChar ( stream, value );
+		} else
+		{
+			stream.write ( 255 );
+			writeInt ( stream, value );
+		}
+	}
+
+	static void writeChar ( ByteArrayOutputStream stream, int value )
+	{
+		stream.write ( value );
+		stream.write ( value >>> 8 );
+	}
+
+	static void writeInt ( ByteArrayOutputStream stream, int value )
+	{
+		stream.write ( value );
+		stream.write ( value >>> 8 );
+		stream.write ( value >>> 16 );
+		stream.write ( value >>> 24 );
+	}
+
+	static void writeLong ( ByteArrayOutputStream stream, long value )
+	{
+		for ( int i = 0; i < 8; ++i )
+		{
+			stream.write ( (int) ( value >>> ( 8 * i ) ) );
+		}
+	}
+
+	static void writeAlignment ( ByteArrayOutputStream stream, int alignment )
+	{
+		int mod = stream.size () % alignment;
+		if ( mod != 0 )
+		{
+			for ( int i = 0; i < alignment - mod; ++i )
+			{
+				stream.write ( 0 );
+			}
+		}
+	}
+
+	protected void writeValue ( ByteArrayOutputStream stream, Object value )
+	{
+		if ( value == null )
+		{
+			stream.write ( NULL );
+		} else if ( value instanceof Boolean )
+		{
+			stream.write ( ( (Boolean) value ) ? TRUE : FALSE );
+		} else if ( value instanceof Integer || value instanceof Short || value instanceof Byte )
+		{
+			stream.write ( INT );
+			writeInt ( stream, ( (Number) value ).intValue () );
+		} else if ( value instanceof Long )
+		{
+			stream.write ( LONG );
+			writeLong ( stream, (Long) value );
+		} else if ( value instanceof Float || value instanceof Double )
+		{
+			stream.write ( DOUBLE );
+			writeAlignment ( stream, 8 );
+			writeLong ( stream, Double.doubleToLongBits ( ( (Number) value ).doubleValue () ) );
+		} else if ( value instanceof String )
+		{
+			byte[] bytes = ( (String) value ).getBytes ( StandardCharsets.UTF_8 );
+			stream.write ( STRING );
+			writeSize ( stream, bytes.length );
+			stream.write ( bytes, 0, bytes.length );
+		} else if ( value instanceof byte[] )
+		{
+			byte[] bytes = (byte[]) value;
+			stream.write ( BYTE_ARRAY );
+			writeSize ( stream, bytes.length );
+			stream.write ( bytes, 0, bytes.length );
+		} else if ( value instanceof int[] )
+		{
+			int[] array = (int[]) value;
+			stream.write ( INT_ARRAY );
+			writeSize ( stream, array.length );
+			writeAlignment ( stream, 4 );
+			for ( int n : array )
+			{
+				writeInt ( stream, n );
+			}
+		} else if ( value instanceof long[] )
+		{
+			long[] array = (long[]) value;
+			stream.write ( LONG_ARRAY );
+			writeSize ( stream, array.length );
+			writeAlignment ( stream, 8 );
+			for ( long n : array )
+			{
+				writeLong ( stream, n );
+			}
+		} else if ( value instanceof double[] )
+		{
+			double[] array = (double[]) value;
+			stream.write ( DOUBLE_ARRAY );
+			writeSize ( stream, array.length );
+			writeAlignment ( stream, 8 );
+			for ( double d : array )
+			{
+				writeLong ( stream, Double.doubleToLongBits ( d ) );
+			}
+		} else if ( value instanceof List )
+		{
+			List<?> list = (List<?>) value;
+			stream.write ( LIST );
+			writeSize ( stream, list.size () );
+			for ( Object o : list )
+			{
+				writeValue ( stream, o );
+			}
+		} else if ( value instanceof Map )
+		{
+			Map<?, ?> map = (Map<?, ?>) value;
+			stream.write ( MAP );
+			writeSize ( stream, map.size () );
+			for ( Map.Entry<?, ?> e : map.entrySet () )
+			{
+				writeValue ( stream, e.getKey () );
+				writeValue ( stream, e.getValue () );
+			}
+		} else
+		{
+			throw new IllegalArgumentException ( "Unsupported value: " + value );
+		}
+	}
+
+	static int readSize ( ByteBuffer buffer )
+	{
+		int value = buffer.get () & 0xff;
+		if ( value < 254 )
+			return value;
+		else if ( value == 254 )
+			return buffer.getChar ();
+		else
+			return buffer.getInt ();
+	}
+
+	static void readAlignment ( ByteBuffer buffer, int alignment )
+	{
+		int mod = buffer.position () % alignment;
+		if ( mod != 0 )
+			buffer.position ( buffer.position () + alignment - mod );
+	}
+
+	protected Object readValue ( ByteBuffer buffer )
+	{
+		byte type = buffer.get ();
+		switch ( type )
+		{
+			case NULL:
+				return null;
+			case TRUE:
+				return true;
+			case FALSE:
+				return false;
+			case INT:
+				return buffer.getInt ();
+			case LONG:
+				return buffer.getLong ();
+			case DOUBLE:
+				readAlignment ( buffer, 8 );
+				return buffer.getDouble ();
+			case STRING:
+			{
+				byte[] bytes = new byte[readSize ( buffer )];
+				buffer.get ( bytes );
+				return new String ( bytes, StandardCharsets.UTF_8 );
+			}
+			case BYTE_ARRAY:
+			{
+				byte[] bytes = new byte[readSize ( buffer )];
+				buffer.get ( bytes );
+				return bytes;
+			}
+			case INT_ARRAY:
+			{
+				int[] array = new int[readSize ( buffer )];
+				readAlignment ( buffer, 4 );
+				buffer.asIntBuffer ().get ( array );
+				buffer.position ( buffer.position () + 4 * array.length );
+				return array;
+			}
+			case LONG_ARRAY:
+			{
+				long[] array = new long[readSize ( buffer )];
+				readAlignment ( buffer, 8 );
+				buffer.asLongBuffer ().get ( array );
+				buffer.position ( buffer.position () + 8 * array.length );
+				return array;
+			}
+			case DOUBLE_ARRAY:
+			{
+				double[] array = new double[readSize ( buffer )];
+				readAlignment ( buffer, 8 );
+				buffer.asDoubleBuffer ().get ( array );
+				buffer.position ( buffer.position () + 8 * array.length );
+				return array;
+			}
+			case LIST:
+			{
+				int size = readSize ( buffer );
+				List<Object> list = new ArrayList<Object> ( size );
+				for ( int i = 0; i < size; ++i )
+				{
+					list.add ( readValue ( buffer ) );
+				}
+				return list;
+			}
+			case MAP:
+			{
+				int size = readSize ( buffer );
+				Map<Object, Object> map = new HashMap<Object, Object> ();
+				for ( int i = 0; i < size; ++i )
+				{
+					map.put ( readValue ( buffer ), readValue ( buffer ) );
+				}
+				return map;
+			}
+			default:
+				throw new IllegalArgumentException ( "Message corrupted" );
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.TauNative;
+
+
+/**
+ * Settings of the fake audio device used by the stub engine.
+ *
+ * When `realtime` is false (the default, used by the benchmarks), every engine call returns immediately and no thread is started.
+ * When it is true (the load-test harness), the players consume the fed data at their sample rate, and the recorders
+ * produce PCM : both on their own threads, with the engine callbacks called from these threads.
+ */
+public final class FakeDevice
+{
+	public static volatile boolean realtime = false;
+	public static volatile int     periodMs = 20;  // The device wakes up every period
+	public static volatile int     bufferMs = 200; // Size of the output buffer of a player
+	public static volatile boolean partialFeed = false; // A player feed() accepts what fits in its buffer, instead of blocking
+
+
+	/**
+	 * The recorded PCM is a ramp : the 16 bits sample number `i` of a recording is `(short) i`.
+	 * The receiver can so check that no data was lost or reordered.
+	 */
+	public static short rampSample ( long i )
+	{
+		return (short) i;
+	}
+
+	public static void sleep ( long millis )
+	{
+		try
+		{
+			Thread.sleep ( millis );
+		} catch ( InterruptedException e )
+		{
+			Thread.currentThread ().interrupt ();
+		}
+	}
+
+	static void join ( Thread t )
+	{
+		if ( t == null || t == Thread.currentThread () )
+			return;
+		try
+		{
+			t.join ( 1000 );
+		} catch ( InterruptedException e )
+		{
+			Thread.currentThread ().interrupt ();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.TauNative;
+
+import android.app.Activity;
+import android.content.Context;
+
+
+/**
+ * JVM stand-in for the τ engine declarations used by the plugin.
+ */
+public class Flauto
+{
+	public static Context  androidContext;
+	public static Activity androidActivity;
+
+	public enum t_CODEC
+	{
+		defaultCodec,
+		aacADTS,
+		opusOGG,
+		opusCAF,
+		mp3,
+		vorbisOGG,
+		pcm16,
+		pcm16WAV,
+		pcm16AIFF,
+		pcm16CAF,
+		flac,
+		aacMP4,
+		amrNB,
+		amrWB,
+		pcm8,
+		pcmFloat32,
+		pcmWebM,
+		opusWebM,
+		vorbisWebM,
+	}
+
+	public enum t_PLAYER_STATE
+	{
+		PLAYER_IS_STOPPED,
+		PLAYER_IS_PLAYING,
+		PLAYER_IS_PAUSED,
+	}
+
+	public enum t_RECORDER_STATE
+	{
+		RECORDER_IS_STOPPED,
+		RECORDER_IS_PAUSED,
+		RECORDER_IS_RECORDING,
+	}
+
+	public enum t_AUDIO_FOCUS
+	{
+		requestFocus,
+		requestFocusAndStopOthers,
+		requestFocusAndDuckOthers,
+		requestFocusAndKeepOthers,
+		requestFocusAndInterruptSpokenAudioAndMixWithOthers,
+		requestFocusTransient,
+		requestFocusTransientExclusive,
+		abandonFocus,
+		doNotRequestFocus,
+	}
+
+	public enum t_SESSION_CATEGORY
+	{
+		ambient,
+		multiRoute,
+		playAndRecord,
+		playback,
+		record,
+		soloAmbient,
+		audioProcessing,
+	}
+
+	public enum t_SESSION_MODE
+	{
+		modeDefault,
+		modeGameChat,
+		modeMeasurement,
+		modeMoviePlayback,
+		modeSpokenAudio,
+		modeVideoChat,
+		modeVideoRecording,
+		modeVoiceChat,
+		modeVoicePrompt,
+	}
+
+	public enum t_AUDIO_DEVICE
+	{
+		speaker,
+		headset,
+		earPiece,
+		blueTooth,
+		blueToothA2DP,
+		airPlay,
+	}
+
+	public enum t_AUDIO_SOURCE
+	{
+		defaultSource,
+		microphone,
+		voiceDownlink,
+		camCorder,
+		remote_submix,
+		unprocessed,
+		voice_call,
+		voice_communication,
+		voice_performance,
+		voice_recognition,
+		voiceUpLink,
+		bluetoothHFP,
+		headsetMic,
+		lineIn,
+	}
+
+	public enum t_LOG_LEVEL
+	{
+		VERBOSE,
+		DBG,
+		INFO,
+		WARNING,
+		ERROR,
+		WTF,
+		NOTHING,
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.TauNative;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import xyz.canardoux.TauNative.Flauto.*;
+
+
+/**
+ * JVM stand-in for the engine player.
+ *
+ * By default there is no device : every call succeeds immediately, and `feed()` accepts all the data.
+ * In the `FakeDevice.realtime` mode, a device thread plays the player : it consumes the fed data at the sample rate,
+ * and calls `needSomeFood()`, `updateProgress()` and `audioPlayerDidFinishPlaying()`.
+ * `feed()` then blocks while the output buffer is full, as the real engine does.
+ */
+public class FlautoPlayer
+{
+	final FlautoPlayerCallback callback;
+	final Object               lock  = new Object ();
+	volatile t_PLAYER_STATE    state = t_PLAYER_STATE.PLAYER_IS_STOPPED;
+	volatile long              bytesFed;
+	volatile long              subscriptionMs;
+
+	// Realtime mode. Guarded by `lock`
+	Thread                     device;
+	boolean                    running;
+	boolean                    stream;
+	double                     bytesPerMs;
+	int                        capacity;
+	int                        buffered;
+	boolean                    hungry;
+	long                       positionMs;
+	long                       durationMs;
+
+
+	public FlautoPlayer ( FlautoPlayerCallback aCallback )
+	{
+		callback = aCallback;
+	}
+
+	public boolean openPlayer ( t_AUDIO_FOCUS focus, t_SESSION_CATEGORY category, t_SESSION_MODE mode, int audioFlags, t_AUDIO_DEVICE audioDevice )
+	{
+		if ( FakeDevice.realtime )
+			callback.openPlayerCompleted ( true );
+		return true;
+	}
+
+	public void closePlayer ()
+	{
+		stopDevice ();
+		state = t_PLAYER_STATE.PLAYER_IS_STOPPED;
+		if ( FakeDevice.realtime )
+			callback.closePlayerCompleted ( true );
+	}
+
+	public boolean setAudioFocus ( t_AUDIO_FOCUS focus, t_SESSION_CATEGORY category, t_SESSION_MODE mode, int audioFlags, t_AUDIO_DEVICE audioDevice )
+	{
+		return true;
+	}
+
+	public t_PLAYER_STATE getPlayerState ()
+	{
+		return state;
+	}
+
+	public boolean startPlayerFromMic ( int numChannels, int sampleRate, int blockSize )
+	{
+		state = t_PLAYER_STATE.PLAYER_IS_PLAYING;
+		callback.resumePlayerCompleted ( true );
+		return true;
+	}
+
+	public boolean startPlayer ( t_CODEC codec, String fromURI, byte[] dataBuffer, int numChannels, int sampleRate, int blockSize )
+	{
+		stopDevice ();
+		bytesFed = 0;
+		state = t_PLAYER_STATE.PLAYER_IS_PLAYING;
+		if ( !FakeDevice.realtime )
+			return true;
+		synchronized ( lock )
+		{
+			bytesPerMs = sampleRate * numChannels * 2 / 1000.0;
+			capacity = (int) ( bytesPerMs * FakeDevice.bufferMs );
+			buffered = 0;
+			hungry = false;
+			positionMs = 0;
+			stream = ( fromURI == null && dataBuffer == null );
+			if ( dataBuffer != null )
+				durationMs = (long) ( dataBuffer.length / bytesPerMs );
+			else if ( fromURI != null )
+				durationMs = 1000; // Every fake file lasts one second
+			else
+				durationMs = 0;
+			running = true;
+			device = new Thread ( new Runnable ()
+			{
+				@Override
+				public void run ()
+				{
+					play ();
+				}
+			}, "FakeTrack" );
+			device.setDaemon ( true );
+			device.start ();
+		}
+		callback.startPlayerCompleted ( true, durationMs );
+		return true;
+	}
+
+	void play ()
+	{
+		long lastProgress = 0;
+		while ( true )
+		{
+			FakeDevice.sleep ( FakeDevice.periodMs );
+			int food = 0;
+			boolean ended = false;
+			long position;
+			long duration;
+			synchronized ( lock )
+			{
+				if ( !running )
+					return;
+				if ( state == t_PLAYER_STATE.PLAYER_IS_PAUSED )
+					continue;
+				if ( stream )
+				{
+					int consumed = Math.min ( buffered, (int) ( bytesPerMs * FakeDevice.periodMs ) );
+					buffered -= consumed;
+					lock.notifyAll ();
+					positionMs = (long) ( bytesFed / bytesPerMs ) - (long) ( buffered / bytesPerMs );
+					if ( hungry && buffered <= capacity / 2 )
+					{
+						hungry = false;
+						food = capacity - buffered;
+					}
+				} else
+				{
+					positionMs = Math.min ( positionMs + FakeDevice.periodMs, durationMs );
+					ended = ( positionMs >= durationMs );
+					if ( ended )
+						running = false;
+				}
+				position = positionMs;
+				duration = durationMs;
+			}
+			if ( food > 0 )
+				callback.needSomeFood ( food );
+			long sub = subscriptionMs;
+			if ( sub > 0 && position - lastProgress >= sub )
+			{
+				lastProgress = position;
+				callback.updateProgress ( position, duration );
+			}
+			if ( ended )
+			{
+				state = t_PLAYER_STATE.PLAYER_IS_STOPPED;
+				callback.audioPlayerDidFinishPlaying ( true );
+				return;
+			}
+		}
+	}
+
+	void stopDevice ()
+	{
+		Thread t;
+		synchronized ( lock )
+		{
+			running = false;
+			lock.notifyAll ();
+			t = device;
+			device = null;
+		}
+		FakeDevice.join ( t );
+	}
+
+	public int feed ( byte[] data ) throws Exception
+	{
+		if ( !FakeDevice.realtime )
+		{
+			bytesFed += data.length;
+			return data.length;
+		}
+		synchronized ( lock )
+		{
+			int written = 0;
+			while ( written < data.length )
+			{
+				if ( !running )
+					throw new Exception ( "Player is stopped" );
+				int n = Math.min ( capacity - buffered, data.length - written );
+				if ( n == 0 && FakeDevice.partialFeed )
+				{
+					hungry = true;
+					return written;
+				}
+				if ( n == 0 )
+				{
+					hungry = true;
+					lock.wait (); // Like a blocking AudioTrack.write()
+					continue;
+				}
+				buffered += n;
+				written += n;
+				bytesFed += n;
+			}
+			return written;
+		}
+	}
+
+	public void stopPlayer ()
+	{
+		stopDevice ();
+		state = t_PLAYER_STATE.PLAYER_IS_STOPPED;
+		callback.stopPlayerCompleted ( true );
+	}
+
+	public boolean isDecoderSupported ( t_CODEC codec )
+	{
+		return true;
+	}
+
+	public boolean pausePlayer ()
+	{
+		state = t_PLAYER_STATE.PLAYER_IS_PAUSED;
+		callback.pausePlayerCompleted ( true );
+		return true;
+	}
+
+	public boolean resumePlayer ()
+	{
+		state = t_PLAYER_STATE.PLAYER_IS_PLAYING;
+		return true;
+	}
+
+	public void seekToPlayer ( long millis )
+	{
+	}
+
+	public void setVolume ( double volume )
+	{
+	}
+
+	public void setSpeed ( double speed )
+	{
+	}
+
+	public void setSubscriptionDuration ( long duration )
+	{
+		subscriptionMs = duration;
+	}
+
+	public boolean androidAudioFocusRequest ( Integer focusGain )
+	{
+		return true;
+	}
+
+	public void setActive ( Boolean enabled )
+	{
+	}
+
+	/**
+	 * The number of bytes already played by the device : what it was fed, less what is still in its buffer
+	 */
+	public long bytesPlayed ()
+	{
+		synchronized ( lock )
+		{
+			return FakeDevice.realtime ? bytesFed - buffered : bytesFed;
+		}
+	}
+
+	public Map<String, Object> getProgress ()
+	{
+		Map<String, Object> dic = new HashMap<String, Object> ();
+		synchronized ( lock )
+		{
+			dic.put ( "progress", FakeDevice.realtime ? positionMs : bytesFed / 88 ); // 44.1 kHz mono pcm16 : 88 bytes per ms
+			dic.put ( "duration", durationMs );
+		}
+		return dic;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.TauNative;
+
+import java.io.File;
+
+import xyz.canardoux.TauNative.Flauto.*;
+
+
+/**
+ * JVM stand-in for the engine recorder.
+ *
+ * By default there is no device : every call succeeds immediately.
+ * In the `FakeDevice.realtime` mode, a microphone thread produces a PCM ramp (see `FakeDevice.rampSample()`)
+ * every device period, and calls `recordingData()` (toStream mode) and `updateRecorderProgressDbPeakLevel()`.
+ */
+public class FlautoRecorder
+{
+	final FlautoRecorderCallback callback;
+	volatile t_RECORDER_STATE    state = t_RECORDER_STATE.RECORDER_IS_STOPPED;
+	volatile long                subscriptionMs;
+	volatile boolean             running;
+	Thread                       mic;
+
+
+	public FlautoRecorder ( FlautoRecorderCallback aCallback )
+	{
+		callback = aCallback;
+	}
+
+	public boolean openRecorder ( t_AUDIO_FOCUS focus, t_SESSION_CATEGORY category, t_SESSION_MODE mode, int audioFlags, t_AUDIO_DEVICE audioDevice )
+	{
+		if ( FakeDevice.realtime )
+			callback.openRecorderCompleted ( true );
+		return true;
+	}
+
+	public void closeRecorder ()
+	{
+		stopMic ();
+		state = t_RECORDER_STATE.RECORDER_IS_STOPPED;
+		if ( FakeDevice.realtime )
+			callback.closeRecorderCompleted ( true );
+	}
+
+	public boolean setAudioFocus ( t_AUDIO_FOCUS focus, t_SESSION_CATEGORY category, t_SESSION_MODE mode, int audioFlags, t_AUDIO_DEVICE audioDevice )
+	{
+		return true;
+	}
+
+	public t_RECORDER_STATE getRecorderState ()
+	{
+		return state;
+	}
+
+	public boolean isEncoderSupported ( t_CODEC codec )
+	{
+		return true;
+	}
+
+	public boolean startRecorder ( t_CODEC codec, Integer sampleRate, Integer numChannels, Integer bitRate, String path, t_AUDIO_SOURCE audioSource, final boolean toStream )
+	{
+		stopMic ();
+		state = t_RECORDER_STATE.RECORDER_IS_RECORDING;
+		if ( !FakeDevice.realtime )
+			return true;
+		final int bytesPerPeriod = ( ( sampleRate != null ) ? sampleRate : 16000 ) * ( ( numChannels != null ) ? numChannels : 1 ) * 2 * FakeDevice.periodMs / 1000;
+		running = true;
+		mic = new Thread ( new Runnable ()
+		{
+			@Override
+			public void run ()
+			{
+				record ( bytesPerPeriod, toStream );
+			}
+		}, "FakeMic" );
+		mic.setDaemon ( true );
+		mic.start ();
+		callback.startRecorderCompleted ( true );
+		return true;
+	}
+
+	void record ( int bytesPerPeriod, boolean toStream )
+	{
+		long sample = 0;
+		long durationMs = 0;
+		long lastProgress = 0;
+		while ( running )
+		{
+			FakeDevice.sleep ( FakeDevice.periodMs );
+			if ( !running )
+				return;
+			if ( state != t_RECORDER_STATE.RECORDER_IS_RECORDING )
+				continue;
+			durationMs += FakeDevice.periodMs;
+			if ( toStream )
+			{
+				byte[] data = new byte[bytesPerPeriod]; // A new array for each chunk, as the real engine does
+				for ( int i = 0; i < data.length; i += 2 )
+				{
+					short s = FakeDevice.rampSample ( sample++ );
+					data[i] = (byte) s;
+					data[i + 1] = (byte) ( s >> 8 );
+				}
+				callback.recordingData ( data );
+			}
+			long sub = subscriptionMs;
+			if ( sub > 0 && durationMs - lastProgress >= sub )
+			{
+				lastProgress = durationMs;
+				callback.updateRecorderProgressDbPeakLevel ( 60.0, durationMs );
+			}
+		}
+	}
+
+	void stopMic ()
+	{
+		running = false;
+		Thread t = mic;
+		mic = null;
+		FakeDevice.join ( t );
+	}
+
+	public void stopRecorder ()
+	{
+		stopMic ();
+		state = t_RECORDER_STATE.RECORDER_IS_STOPPED;
+	}
+
+	public void pauseRecorder ()
+	{
+		state = t_RECORDER_STATE.RECORDER_IS_PAUSED;
+	}
+
+	public void resumeRecorder ()
+	{
+		state = t_RECORDER_STATE.RECORDER_IS_RECORDING;
+	}
+
+	public void setSubscriptionDuration ( long duration )
+	{
+		subscriptionMs = duration;
+	}
+
+	public String temporayFile ( String radical )
+	{
+		return new File ( System.getProperty ( "java.io.tmpdir" ), radical ).getPath ();
+	}
+
+	public boolean deleteRecord ( String path )
+	{
+		return new File ( path ).delete ();
+	}
+}
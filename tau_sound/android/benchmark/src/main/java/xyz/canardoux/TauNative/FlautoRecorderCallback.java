@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.TauNative;
+
+
+public interface FlautoRecorderCallback
+{
+	void openRecorderCompleted ( boolean success );
+
+	void closeRecorderCompleted ( boolean success );
+
+	void stopRecorderCompleted ( boolean success, String url );
+
+	void pauseRecorderCompleted ( boolean success );
+
+	void resumeRecorderCompleted ( boolean success );
+
+	void startRecorderCompleted ( boolean success );
+
+	void updateRecorderProgressDbPeakLevel ( double normalizedPeakLevel, long duration );
+
+	void recordingData ( byte[] data );
+}
@@ -26,8 +26,6 @@ import io.flutter.plugin.common.PluginRegistry.Registrar;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 
-import xyz.canardoux.TauNative.Flauto;
-
 public class TauSound
 	implements FlutterPlugin,
 	           ActivityAware
@@ -53,11 +51,8 @@ public class TauSound
 			return;
 		}
 		//reg = registrar;
-		Flauto.androidContext = registrar.context ();
-		Flauto.androidActivity = registrar.activity ();
-
-		TauSoundPlayerManager.attachFlautoPlayer ( Flauto.androidContext, registrar.messenger () );
-		TauSoundRecorderManager.attachFlautoRecorder ( Flauto.androidContext, registrar.messenger ()  );
+		// The managers and the engine are created by the first method call of each channel
+		TauSoundLazyChannel.attach ( registrar.context (), registrar.activity (), registrar.messenger () );
 	}
 
 
@@ -92,12 +87,9 @@ public class TauSound
 			ActivityPluginBinding binding
 	                                 )
 	{
-		Flauto.androidActivity = binding.getActivity ();
-
 		// Only register if activity exists (the application is not running in background)
-		Flauto.androidContext = pluginBinding.getApplicationContext ();
-		TauSoundPlayerManager.attachFlautoPlayer ( Flauto.androidContext, pluginBinding.getBinaryMessenger () );
-		TauSoundRecorderManager.attachFlautoRecorder ( Flauto.androidContext, pluginBinding.getBinaryMessenger () );
+		// The managers and the engine are created by the first method call of each channel
+		TauSoundLazyChannel.attach ( pluginBinding.getApplicationContext (), binding.getActivity (), pluginBinding.getBinaryMessenger () );
 	}
 
 
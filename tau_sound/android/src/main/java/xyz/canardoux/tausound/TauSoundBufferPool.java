@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * A small pool of byte arrays, all of the same size.
+ * A buffer is acquired before being filled, and released when the channel send is completed.
+ * A new array is allocated only when the pool is empty.
+ *
+ * While the frames are sent synchronously, only one of them is ever out of the pool, and reusing one frame would do.
+ * The pool is what keeps the allocations flat when the frames are posted to the platform thread :
+ * several of them are then waiting to be sent.
+ */
+class TauSoundBufferPool
+{
+	final int      bufferSize;
+	final byte[][] free;
+	int            nbFree = 0;
+
+	long nbAllocated = 0;
+	long nbAcquired  = 0;
+	long nbReleased  = 0;
+
+
+	/* ctor */ TauSoundBufferPool ( int aBufferSize, int capacity )
+	{
+		bufferSize = aBufferSize;
+		free = new byte[capacity][];
+	}
+
+	synchronized byte[] acquire ()
+	{
+		++nbAcquired;
+		if ( nbFree > 0 )
+		{
+			byte[] r = free[--nbFree];
+			free[nbFree] = null;
+			return r;
+		}
+		++nbAllocated;
+		return new byte[bufferSize];
+	}
+
+	/**
+	 * Returns a buffer to the pool. Arrays which do not have the pool size are ignored,
+	 * and the buffer is dropped if the pool is already full.
+	 */
+	synchronized void release ( byte[] buffer )
+	{
+		if ( buffer == null || buffer.length != bufferSize )
+			return;
+		++nbReleased;
+		if ( nbFree < free.length )
+		{
+			free[nbFree++] = buffer;
+		}
+	}
+
+	synchronized Map<String, Object> getStats ()
+	{
+		Map<String, Object> dic = new HashMap<String, Object> ();
+		dic.put ( "bufferSize", bufferSize );
+		dic.put ( "allocated", nbAllocated );
+		dic.put ( "acquired", nbAcquired );
+		dic.put ( "released", nbReleased );
+		dic.put ( "free", nbFree );
+		return dic;
+	}
+}
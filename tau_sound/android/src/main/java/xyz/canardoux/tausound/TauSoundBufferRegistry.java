@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import android.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * A process wide registry of the data buffers uploaded once by Dart with `registerBuffer`.
+ * A buffer is keyed by the SHA-1 of its content (the same key as in the PCM cache), and `startPlayer` can then play it with `fromBuffer`
+ * instead of sending it again with `fromDataBuffer`.
+ * The registry is bounded by a byte budget : the least recently used buffers are evicted first, and Dart must register them again.
+ */
+class TauSoundBufferRegistry
+{
+	static final int DEFAULT_BUDGET = 32 * 1024 * 1024;
+
+	static LruCache<String, byte[]> registry = newRegistry ( DEFAULT_BUDGET );
+
+
+	static LruCache<String, byte[]> newRegistry ( int budget )
+	{
+		return new LruCache<String, byte[]> ( budget )
+		{
+			@Override
+			protected int sizeOf ( String key, byte[] data )
+			{
+				return data.length;
+			}
+		};
+	}
+
+	/**
+	 * Changes the byte budget. The registered buffers are dropped.
+	 */
+	static synchronized void setBudget ( int budget )
+	{
+		registry.evictAll ();
+		registry = newRegistry ( budget );
+	}
+
+	/**
+	 * Stores `data` and returns its key. Registering the same content again only refreshes it.
+	 */
+	static String register ( byte[] data ) throws Exception
+	{
+		String key = TauSoundPcmCache.keyOf ( data ); // Outside the lock : hashing a large buffer takes time
+		synchronized ( TauSoundBufferRegistry.class )
+		{
+			if ( data.length > registry.maxSize () )
+				throw new IllegalArgumentException ( "Buffer larger than the registry budget : " + data.length );
+			if ( registry.get ( key ) == null )
+				registry.put ( key, data );
+		}
+		return key;
+	}
+
+	static synchronized byte[] get ( String key )
+	{
+		return registry.get ( key );
+	}
+
+	static synchronized boolean contains ( String key )
+	{
+		return registry.get ( key ) != null; // Also refreshes the buffer : it is about to be played
+	}
+
+	static synchronized void release ( String key )
+	{
+		registry.remove ( key );
+	}
+
+	static synchronized Map<String, Object> getStats ()
+	{
+		Map<String, Object> dic = new HashMap<String, Object> ();
+		dic.put ( "budget", registry.maxSize () );
+		dic.put ( "size", registry.size () );
+		dic.put ( "hits", registry.hitCount () );
+		dic.put ( "misses", registry.missCount () );
+		dic.put ( "evictions", registry.evictionCount () );
+		return dic;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+
+/**
+ * Groups the PCM chunks produced by the recorder into frames of a fixed size.
+ * A frame is delivered to the sink as soon as it is full. `flush()` delivers the partial frame.
+ * `push()` and `flush()` may be called from different threads (engine callback and slot command).
+ *
+ * The frames are taken from a TauSoundBufferPool : the sink owns the frame it receives
+ * and must give it back to the pool when it has been sent.
+ */
+class TauSoundCoalescer
+{
+	interface Sink
+	{
+		void deliver ( byte[] data, int offset, int length );
+	}
+
+	final TauSoundBufferPool pool;
+	final Sink               sink;
+	byte[]                   frame;
+	int                      fill = 0;
+
+
+	/* ctor */ TauSoundCoalescer ( TauSoundBufferPool aPool, Sink aSink )
+	{
+		pool = aPool;
+		sink = aSink;
+		frame = pool.acquire ();
+	}
+
+	/**
+	 * Computes a frame size in bytes from a duration, for 16 bits PCM.
+	 * The result is always a multiple of the sample frame size (2 * numChannels)
+	 */
+	static int frameSizeFromDuration ( int durationMs, int sampleRate, int numChannels )
+	{
+		int sampleFrame = 2 * numChannels;
+		long n = (long) sampleRate * durationMs / 1000;
+		if ( n < 1 )
+			n = 1;
+		return (int) n * sampleFrame;
+	}
+
+	synchronized void push ( byte[] data, int offset, int length )
+	{
+		while ( length > 0 )
+		{
+			int n = Math.min ( length, frame.length - fill );
+			System.arraycopy ( data, offset, frame, fill, n );
+			fill += n;
+			offset += n;
+			length -= n;
+			if ( fill == frame.length )
+			{
+				sink.deliver ( frame, 0, fill );
+				frame = pool.acquire ();
+				fill = 0;
+			}
+		}
+	}
+
+	synchronized void flush ()
+	{
+		if ( fill > 0 )
+		{
+			sink.deliver ( frame, 0, fill );
+			frame = pool.acquire ();
+			fill = 0;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import xyz.canardoux.TauNative.Flauto.t_CODEC;
+
+
+/**
+ * The codec capabilities of the device, computed once per process.
+ * The engine is asked with throwaway sessions (never opened), for every t_CODEC, in both directions.
+ */
+class TauSoundCodecCapabilities
+{
+	static boolean[] decoder;  // Indexed by t_CODEC ordinal. Null until computed
+	static boolean[] encoder;
+	static Map<String, Object> capabilities;
+
+
+	static synchronized void compute ()
+	{
+		if ( capabilities != null )
+			return;
+		t_CODEC[] codecs = t_CODEC.values ();
+		boolean[] dec = new boolean[codecs.length];
+		boolean[] enc = new boolean[codecs.length];
+		TauSoundPlayer player = new TauSoundPlayer ( null );
+		TauSoundRecorder recorder = new TauSoundRecorder ( null );
+		List<String> names = new ArrayList<String> ();
+		List<Boolean> decodes = new ArrayList<Boolean> ();
+		List<Boolean> encodes = new ArrayList<Boolean> ();
+		List<Boolean> audioRecorder = new ArrayList<Boolean> ();
+		for ( int i = 0; i < codecs.length; ++i )
+		{
+			dec[i] = player.m_flautoPlayer.isDecoderSupported ( codecs[i] );
+			enc[i] = recorder.m_recorder.isEncoderSupported ( codecs[i] );
+			names.add ( codecs[i].name () );
+			decodes.add ( dec[i] );
+			encodes.add ( enc[i] );
+			audioRecorder.add ( i < TauSoundRecorder._isAudioRecorder.length && TauSoundRecorder._isAudioRecorder[i] );
+		}
+		Map<String, Object> dic = new HashMap<String, Object> ();
+		dic.put ( "names", names );
+		dic.put ( "decoder", decodes );
+		dic.put ( "encoder", encodes );
+		dic.put ( "audioRecorder", audioRecorder ); // True if the codec is recorded by AudioRecord, instead of MediaRecorder
+		decoder = dec;
+		encoder = enc;
+		capabilities = dic;
+	}
+
+	static boolean isDecoderSupported ( int codec )
+	{
+		compute ();
+		return codec >= 0 && codec < decoder.length && decoder[codec];
+	}
+
+	static boolean isEncoderSupported ( int codec )
+	{
+		compute ();
+		return codec >= 0 && codec < encoder.length && encoder[codec];
+	}
+
+	/**
+	 * Replies with the whole matrix : parallel lists indexed by the t_CODEC ordinals.
+	 * The first call computes it on a worker thread.
+	 */
+	static void getCodecCapabilities ( final Result result )
+	{
+		synchronized ( TauSoundCodecCapabilities.class )
+		{
+			if ( capabilities != null )
+			{
+				result.success ( capabilities );
+				return;
+			}
+		}
+		final Result r = new TauSoundMainThreadResult ( result );
+		TauSoundSerialExecutor.workers.execute ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				try
+				{
+					compute ();
+					r.success ( capabilities );
+				} catch ( RuntimeException e )
+				{
+					r.error ( "getCodecCapabilities", "getCodecCapabilities", e.toString () );
+				}
+			}
+		} );
+	}
+}
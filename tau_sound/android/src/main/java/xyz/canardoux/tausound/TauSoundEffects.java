@@ -0,0 +1,253 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import xyz.canardoux.TauNative.FlautoPlayer;
+
+
+/**
+ * A polyphonic sound effects engine : up to `maxVoices` cached sounds are mixed in one
+ * stereo pcm16 stream, played by the engine of one player.
+ *
+ * `playVoice()` and `stopVoice()` only update a preallocated voice, and return immediately.
+ * The mixer thread renders each block in a preallocated float buffer, with the gain and the pan of each voice,
+ * and feeds it to the engine. Nothing is allocated while mixing.
+ */
+class TauSoundEffects implements Runnable
+{
+	static final int NUM_CHANNELS = 2;
+	static final int VOICE_BITS   = 8;
+	static final int MAX_VOICES   = 1 << VOICE_BITS;
+
+	static class Voice
+	{
+		// Written by the platform thread before `active` is set
+		int                    id;
+		TauSoundPcmCache.Entry entry;
+		double                 step;
+		float                  gainL;
+		float                  gainR;
+		boolean                loop;
+
+		// Only used by the mixer thread
+		double                 position;
+
+		volatile boolean       active        = false; // Set by the platform thread, cleared by the mixer thread
+		volatile boolean       stopRequested = false;
+	}
+
+	final FlautoPlayer player;
+	final int          sampleRate;
+	final Voice[]      voices;
+	final float[]      mix;
+	final byte[]       block;
+	final Thread       thread;
+	volatile boolean   running = true;
+	int                serial  = 0;
+
+
+	/* ctor */ TauSoundEffects ( FlautoPlayer aPlayer, int maxVoices, int aSampleRate, int blockSize, String name )
+	{
+		player = aPlayer;
+		sampleRate = aSampleRate;
+		voices = new Voice[Math.min ( maxVoices, MAX_VOICES )];
+		for ( int i = 0; i < voices.length; ++i )
+		{
+			voices[i] = new Voice ();
+		}
+		int frames = blockSize / ( 2 * NUM_CHANNELS );
+		mix = new float[frames * NUM_CHANNELS];
+		block = new byte[frames * NUM_CHANNELS * 2];
+		thread = new Thread ( this, name );
+		thread.setPriority ( Thread.MAX_PRIORITY );
+	}
+
+	void start ()
+	{
+		thread.start ();
+	}
+
+	/**
+	 * Stops the mixer, and waits (at most TauSoundFeeder.JOIN_MILLIS) until its thread has fed its last block :
+	 * a stale block must not reach the engine after a restart.
+	 */
+	void stop ()
+	{
+		running = false;
+		LockSupport.unpark ( thread );
+		if ( thread == Thread.currentThread () || !thread.isAlive () )
+			return;
+		try
+		{
+			thread.join ( TauSoundFeeder.JOIN_MILLIS );
+		} catch ( InterruptedException e )
+		{
+			Thread.currentThread ().interrupt ();
+		}
+	}
+
+	/**
+	 * Starts a voice, and returns its id, or -1 if all the voices are busy. Called on the platform thread.
+	 *
+	 * @param pan -1.0 (left) to 1.0 (right)
+	 */
+	int playVoice ( TauSoundPcmCache.Entry entry, double gain, double pan, boolean loop )
+	{
+		for ( int i = 0; i < voices.length; ++i )
+		{
+			Voice v = voices[i];
+			if ( v.active )
+				continue;
+			double angle = ( Math.max ( -1.0, Math.min ( 1.0, pan ) ) + 1.0 ) * Math.PI / 4.0; // Constant power pan
+			v.id = ( ++serial << VOICE_BITS ) | i;
+			v.entry = entry;
+			v.step = (double) entry.sampleRate / sampleRate;
+			v.gainL = (float) ( gain * Math.cos ( angle ) );
+			v.gainR = (float) ( gain * Math.sin ( angle ) );
+			v.loop = loop;
+			v.position = 0;
+			v.stopRequested = false;
+			v.active = true;
+			return v.id;
+		}
+		return -1;
+	}
+
+	void stopVoice ( int id )
+	{
+		Voice v = voices[( id & ( MAX_VOICES - 1 ) ) % voices.length];
+		if ( v.id == id && v.active )
+			v.stopRequested = true;
+	}
+
+	void stopAllVoices ()
+	{
+		for ( Voice v : voices )
+		{
+			if ( v.active )
+				v.stopRequested = true;
+		}
+	}
+
+	@Override
+	public void run ()
+	{
+		while ( running )
+		{
+			render ();
+			try
+			{
+				feedBlock (); // Blocks while the output track is full : this paces the mixer
+			} catch ( Exception e )
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Feeds the whole block. The engine may accept only a part of it : the tail is fed again,
+	 * after a short wait if nothing was accepted, until all is fed or the mixer is stopped.
+	 */
+	void feedBlock () throws Exception
+	{
+		int done = 0;
+		while ( running && done < block.length )
+		{
+			int ln = player.feed ( ( done == 0 ) ? block : Arrays.copyOfRange ( block, done, block.length ) );
+			done += ln;
+			if ( ln == 0 ) // The engine buffer is full
+				LockSupport.parkNanos ( TauSoundFeeder.WAIT_NANOS );
+		}
+	}
+
+	void render ()
+	{
+		int frames = mix.length / NUM_CHANNELS;
+		Arrays.fill ( mix, 0.0f );
+		for ( Voice v : voices )
+		{
+			if ( !v.active )
+				continue;
+			if ( v.stopRequested )
+			{
+				v.stopRequested = false;
+				v.active = false;
+				continue;
+			}
+			mixVoice ( v, frames );
+		}
+		for ( int i = 0; i < mix.length; ++i )
+		{
+			float x = mix[i];
+			if ( x > 1.0f )
+				x = 1.0f;
+			else if ( x < -1.0f )
+				x = -1.0f;
+			int s = (int) ( x * 32767.0f );
+			block[2 * i] = (byte) s;
+			block[2 * i + 1] = (byte) ( s >> 8 );
+		}
+	}
+
+	void mixVoice ( Voice v, int frames )
+	{
+		byte[] pcm = v.entry.pcm;
+		int channels = v.entry.numChannels;
+		int nbFrames = pcm.length / ( 2 * channels );
+		if ( nbFrames == 0 )
+		{
+			v.active = false;
+			return;
+		}
+		double pos = v.position;
+		for ( int f = 0; f < frames; ++f )
+		{
+			if ( pos >= nbFrames )
+			{
+				if ( !v.loop )
+				{
+					v.active = false;
+					return;
+				}
+				pos %= nbFrames;
+			}
+			int i = (int) pos;
+			// The last frame is interpolated towards the first one of the next cycle, or held at the end
+			int next = ( i + 1 < nbFrames ) ? i + 1 : ( v.loop ? 0 : i );
+			float frac = (float) ( pos - i );
+			float l = sample ( pcm, i, 0, channels ) * ( 1.0f - frac ) + sample ( pcm, next, 0, channels ) * frac;
+			float r = ( channels == 1 ) ? l : sample ( pcm, i, 1, channels ) * ( 1.0f - frac ) + sample ( pcm, next, 1, channels ) * frac;
+			mix[2 * f] += l * v.gainL;
+			mix[2 * f + 1] += r * v.gainR;
+			pos += v.step;
+		}
+		v.position = pos;
+	}
+
+	static float sample ( byte[] pcm, int frame, int channel, int channels )
+	{
+		int k = 2 * ( frame * channels + channel );
+		return (short) ( ( pcm[k] & 0xFF ) | ( pcm[k + 1] << 8 ) ) / 32768.0f;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import android.os.Looper;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+
+
+/**
+ * A binary channel for the high frequency callbacks (progress, needSomeFood).
+ * The map based events of the method channel are still used for the other callbacks.
+ *
+ * Each message is a fixed 40 bytes little-endian record :
+ * - int32   : event id (EVENT_xxx)
+ * - int32   : slotNo
+ * - int32   : state
+ * - int32   : success (0 or 1)
+ * - int64   : a
+ * - int64   : b
+ * - float64 : c
+ *
+ * | event                      | a        | b        | c           |
+ * |----------------------------|----------|----------|-------------|
+ * | EVENT_UPDATE_PROGRESS      | position | duration | -           |
+ * | EVENT_NEED_SOME_FOOD       | ln       | -        | -           |
+ * | EVENT_RECORDER_PROGRESS    | duration | -        | dbPeakLevel |
+ */
+class TauSoundEventChannel
+{
+	static final int EVENT_UPDATE_PROGRESS   = 1;
+	static final int EVENT_NEED_SOME_FOOD    = 2;
+	static final int EVENT_RECORDER_PROGRESS = 3;
+
+	static final int RECORD_SIZE = 40;
+
+	final BasicMessageChannel<ByteBuffer> channel;
+	final ByteBuffer                      buffer = ByteBuffer.allocateDirect ( RECORD_SIZE ).order ( ByteOrder.LITTLE_ENDIAN );
+
+
+	/* ctor */ TauSoundEventChannel ( BinaryMessenger messenger, String name )
+	{
+		channel = new BasicMessageChannel<ByteBuffer> ( messenger, name, BinaryCodec.INSTANCE );
+	}
+
+	void send ( final int eventId, final int slotNo, final int state, final boolean success, final long a, final long b, final double c )
+	{
+		if ( Looper.myLooper () != Looper.getMainLooper () )
+		{
+			TauSoundManager.mainHandler.post ( new Runnable()
+			{
+				@Override
+				public void run ()
+				{
+					send ( eventId, slotNo, state, success, a, b, c );
+				}
+			} );
+			return;
+		}
+		// The record buffer is only used on the platform thread, and the messenger copies it before returning
+		buffer.clear ();
+		buffer.putInt ( eventId );
+		buffer.putInt ( slotNo );
+		buffer.putInt ( state );
+		buffer.putInt ( success ? 1 : 0 );
+		buffer.putLong ( a );
+		buffer.putLong ( b );
+		buffer.putDouble ( c );
+		channel.send ( buffer );
+	}
+}
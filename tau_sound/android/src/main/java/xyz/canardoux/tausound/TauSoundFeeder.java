@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import xyz.canardoux.TauNative.FlautoPlayer;
+
+
+/**
+ * A playback thread which pulls PCM blocks from a source and feeds them to the Flauto engine.
+ * The engine `feed()` may block when the output track is full : this is done here,
+ * and not on the platform thread.
+ */
+class TauSoundFeeder implements Runnable
+{
+	interface Source
+	{
+		/**
+		 * Returns the number of bytes copied, 0 if nothing is available yet, or -1 at the end of the stream
+		 */
+		int read ( byte[] data, int offset, int length );
+	}
+
+	interface Listener
+	{
+		void onFed ( int ln );  // Called on the feeder thread, after each block
+		void onEnded ( TauSoundFeeder feeder ); // Called on the feeder thread, when the source is exhausted
+	}
+
+	static final long WAIT_NANOS = 2000000;  // 2 ms
+	static final long IDLE_NANOS = 50000000; // 50 ms. The producer calls signal() when it writes something
+	static final long JOIN_MILLIS = 1000;    // A paused engine can block feed() : stop() does not wait for ever
+
+	final FlautoPlayer player;
+	final Source       source;
+	final Listener     listener;
+	final byte[]       block;
+	final Thread       thread;
+	volatile boolean   running = true;
+	volatile long      fed     = 0; // Bytes accepted by the engine. Written by the feeder thread only
+
+
+	/* ctor */ TauSoundFeeder ( FlautoPlayer aPlayer, Source aSource, Listener aListener, int blockSize, String name )
+	{
+		player = aPlayer;
+		source = aSource;
+		listener = aListener;
+		block = new byte[blockSize];
+		thread = new Thread ( this, name );
+		thread.setPriority ( Thread.MAX_PRIORITY );
+	}
+
+	void start ()
+	{
+		thread.start ();
+	}
+
+	/**
+	 * Stops the feeder, and waits (at most JOIN_MILLIS) until its thread has fed its last block :
+	 * a block of the previous stream must not reach the engine after a restart.
+	 */
+	void stop ()
+	{
+		running = false;
+		LockSupport.unpark ( thread );
+		if ( thread == Thread.currentThread () || !thread.isAlive () )
+			return;
+		try
+		{
+			thread.join ( JOIN_MILLIS );
+		} catch ( InterruptedException e )
+		{
+			Thread.currentThread ().interrupt ();
+		}
+	}
+
+	/**
+	 * Wakes up the feeder when new data is available. Can be called from any thread.
+	 */
+	void signal ()
+	{
+		LockSupport.unpark ( thread );
+	}
+
+	/**
+	 * Feeds the `n` first bytes of `block`. The engine may accept only a part of them : the tail is fed again,
+	 * after a short wait if nothing was accepted, until all is fed or the feeder is stopped. Nothing is read from the source meanwhile.
+	 */
+	void feedAll ( int n ) throws Exception
+	{
+		int done = 0;
+		while ( running )
+		{
+			byte[] chunk = ( done == 0 && n == block.length ) ? block : Arrays.copyOfRange ( block, done, n );
+			int ln = player.feed ( chunk );
+			fed += ln;
+			done += ln;
+			if ( running )
+				listener.onFed ( ln );
+			if ( done >= n )
+				return;
+			if ( ln == 0 ) // The engine buffer is full
+				LockSupport.parkNanos ( WAIT_NANOS );
+		}
+	}
+
+	@Override
+	public void run ()
+	{
+		while ( running )
+		{
+			int n = source.read ( block, 0, block.length );
+			if ( n < 0 )
+			{
+				listener.onEnded ( this );
+				return;
+			}
+			if ( n < block.length )
+			{
+				// Give a chance to the producer to complete the block, before feeding a partial block
+				LockSupport.parkNanos ( WAIT_NANOS );
+				if ( !running )
+					return;
+				int m = source.read ( block, n, block.length - n );
+				if ( m > 0 )
+					n += m;
+				if ( n == 0 )
+				{
+					LockSupport.parkNanos ( IDLE_NANOS );
+					continue;
+				}
+			}
+			try
+			{
+				feedAll ( n );
+			} catch ( Exception e )
+			{
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import xyz.canardoux.TauNative.Flauto;
+
+
+/**
+ * Registers the player and recorder channels when the plugin is attached, without creating anything else.
+ * A manager, its slot table and the engine classes are created by the first method call on its channel.
+ * The player manager is created at once if a pool of pre-opened players is configured : the pool must be warm before the first call.
+ */
+class TauSoundLazyChannel implements MethodCallHandler
+{
+	static final String TAG          = "TauSound";
+	static final String PLAYER       = "xyz.canardoux.tau_player";
+	static final String RECORDER     = "xyz.canardoux.tau_recorder";
+
+	static long         attachTimeUs = -1; // The duration of the last plugin attachment
+	static Context      context;
+	static Activity     activity;
+	static boolean      engineLoaded = false;
+	static boolean      playerCreated = false;
+	static boolean      recorderCreated = false;
+
+	final BinaryMessenger messenger;
+	final String          name;
+	MethodCallHandler     manager; // Null until the first call
+
+
+	/* ctor */ TauSoundLazyChannel ( BinaryMessenger aMessenger, String aName )
+	{
+		messenger = aMessenger;
+		name = aName;
+	}
+
+	/**
+	 * Called by the plugin registration, on the platform thread
+	 */
+	static void attach ( Context ctx, Activity anActivity, BinaryMessenger messenger )
+	{
+		long t0 = SystemClock.elapsedRealtimeNanos ();
+		context = ctx;
+		activity = anActivity;
+		if ( engineLoaded )
+		{
+			Flauto.androidContext = ctx;
+			Flauto.androidActivity = anActivity;
+		}
+		TauSoundLazyChannel player = new TauSoundLazyChannel ( messenger, PLAYER );
+		TauSoundLazyChannel recorder = new TauSoundLazyChannel ( messenger, RECORDER );
+		// A manager which already exists (the activity was attached again) is attached at once to the new messenger
+		if ( playerCreated || TauSoundPlayerPool.getConfiguredSize ( ctx ) > 0 )
+			player.resolve ();
+		else
+			player.register ();
+		if ( recorderCreated )
+			recorder.resolve ();
+		else
+			recorder.register ();
+		attachTimeUs = ( SystemClock.elapsedRealtimeNanos () - t0 ) / 1000;
+		Log.d ( TAG, "Plugin attached in " + attachTimeUs + " µs" );
+	}
+
+	void register ()
+	{
+		new MethodChannel ( messenger, name ).setMethodCallHandler ( this );
+	}
+
+	/**
+	 * Creates the manager, which takes the channel over
+	 */
+	void resolve ()
+	{
+		long t0 = SystemClock.elapsedRealtimeNanos ();
+		if ( !engineLoaded )
+		{
+			Flauto.androidContext = context;
+			Flauto.androidActivity = activity;
+			engineLoaded = true;
+		}
+		TauSoundManager m;
+		if ( name.equals ( PLAYER ) )
+		{
+			TauSoundPlayerManager.attachFlautoPlayer ( context, messenger );
+			m = TauSoundPlayerManager.TauSoundPlayerPlugin;
+			playerCreated = true;
+		} else
+		{
+			TauSoundRecorderManager.attachFlautoRecorder ( context, messenger );
+			m = TauSoundRecorderManager.TauSoundRecorderPlugin;
+			recorderCreated = true;
+		}
+		manager = (MethodCallHandler) m;
+		if ( m.initTimeUs < 0 )
+		{
+			m.initTimeUs = ( SystemClock.elapsedRealtimeNanos () - t0 ) / 1000;
+			Log.d ( TAG, name + " : manager created in " + m.initTimeUs + " µs" );
+		}
+	}
+
+	@Override
+	public void onMethodCall ( final MethodCall call, final Result result )
+	{
+		if ( manager == null )
+			resolve ();
+		manager.onMethodCall ( call, result );
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+
+/**
+ * A Result which can be completed from any thread : the reply is always delivered on the platform thread.
+ */
+class TauSoundMainThreadResult implements Result
+{
+	final Result result;
+
+
+	/* ctor */ TauSoundMainThreadResult ( Result aResult )
+	{
+		result = aResult;
+	}
+
+	@Override
+	public void success ( final Object r )
+	{
+		TauSoundManager.runOnMainThread ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				result.success ( r );
+			}
+		} );
+	}
+
+	@Override
+	public void error ( final String errorCode, final String errorMessage, final Object errorDetails )
+	{
+		TauSoundManager.runOnMainThread ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				result.error ( errorCode, errorMessage, errorDetails );
+			}
+		} );
+	}
+
+	@Override
+	public void notImplemented ()
+	{
+		TauSoundManager.runOnMainThread ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				result.notImplemented ();
+			}
+		} );
+	}
+}
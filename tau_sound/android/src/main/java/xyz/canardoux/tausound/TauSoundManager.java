@@ -19,9 +19,13 @@
 
 package xyz.canardoux.tausound;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import android.os.Handler;
+import android.os.Looper;
+
+import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodChannel;
 
 import java.util.Map;
@@ -31,61 +35,372 @@ import io.flutter.plugin.common.MethodChannel.Result;
 
 public class TauSoundManager
 {
+	static final Handler            mainHandler = new Handler ( Looper.getMainLooper () );
+
+	// Used when a session must be reset without replying to Flutter
+	static final Result ignoredResult = new Result()
+	{
+		@Override
+		public void success ( Object r ) {}
+		@Override
+		public void error ( String errorCode, String errorMessage, Object errorDetails ) {}
+		@Override
+		public void notImplemented () {}
+	};
+
 	public MethodChannel            channel;
-	public List<TauSoundSession> slots;
+	public BinaryMessenger          messenger;
+	TauSoundSlotTable               slots;
+	AtomicReferenceArray<TauSoundSerialExecutor> executors;
+	boolean                         perSlotExecutor = false; // When true, the commands of each slot run on its own serial executor
+	TauSoundEventChannel            eventChannel; // Not null when the high frequency callbacks use the compact binary format
+	TauSoundProgressTicker          ticker; // Not null when the progress of all the slots is sent by one shared timer
+	long                            initTimeUs = -1; // How long the first method call waited for the creation of the manager
 
-	void init(MethodChannel aChannel)
+	void init(BinaryMessenger aMessenger, MethodChannel aChannel)
 	{
 		if ( slots == null ) {
-			slots = new ArrayList<TauSoundSession>();
+			slots = new TauSoundSlotTable();
 		}
+		if ( executors == null ) {
+			executors = new AtomicReferenceArray<TauSoundSerialExecutor>( TauSoundSlotTable.CAPACITY );
+		}
+		messenger = aMessenger;
 		channel = aChannel;
 	}
 
 
-	void invokeMethod ( String methodName, Map dic )
+	/**
+	 * Runs `r` on the platform thread : immediately if we are already on this thread, later otherwise.
+	 */
+	static void runOnMainThread ( Runnable r )
+	{
+		if ( Looper.myLooper () == Looper.getMainLooper () )
+			r.run ();
+		else
+			mainHandler.post ( r );
+	}
+
+	void invokeMethod ( final String methodName, final Map<String, Object> dic )
+	{
+		if ( Looper.myLooper () == Looper.getMainLooper () ) // Nothing is allocated on the platform thread
+		{
+			channel.invokeMethod ( methodName, dic );
+			return;
+		}
+		mainHandler.post ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				channel.invokeMethod ( methodName, dic );
+			}
+		} );
+	}
+
+	/**
+	 * Same as invokeMethod(), but records the dispatch latency in the session metrics
+	 */
+	void invokeMethod ( final String methodName, final Map<String, Object> dic, final TauSoundMetrics metrics )
 	{
-		channel.invokeMethod ( methodName, dic );
+		final long t0 = System.nanoTime ();
+		if ( Looper.myLooper () == Looper.getMainLooper () ) // Nothing is allocated on the platform thread
+		{
+			channel.invokeMethod ( methodName, dic );
+			metrics.callbackLatency.record ( System.nanoTime () - t0 );
+			return;
+		}
+		mainHandler.post ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				channel.invokeMethod ( methodName, dic );
+				metrics.callbackLatency.record ( System.nanoTime () - t0 );
+			}
+		} );
 	}
 
-	void freeSlot ( int slotNo )
+	void freeSlot ( int handle )
 	{
-		slots.set ( slotNo, null );
+		slots.free ( handle );
 	}
 
 
 	public TauSoundSession getSession(final MethodCall call)
 	{
 		int slotNo = call.argument ( "slotNo" );
-		if ( ( slotNo < 0 ) || ( slotNo > slots.size () ) )
-			throw new RuntimeException();
+		return slots.get ( slotNo );
+	}
 
-		if ( slotNo == slots.size () )
+	public void initSession( final MethodCall call, TauSoundSession aPlayer)
+	{
+		int slot =  call.argument ( "slotNo" );
+		aPlayer.init( slots.put ( slot, aPlayer ) );
+	}
+
+	/**
+	 * Runs a command for a slot.
+	 * In the per-slot executor mode, the command is queued on the slot executor and its result is delivered on the platform thread.
+	 * Otherwise it is run immediately.
+	 */
+	void execute ( final MethodCall call, final Result result, final SlotCommand command )
+	{
+		final int slotNo = call.argument ( "slotNo" );
+		if ( !perSlotExecutor )
 		{
-			slots.add ( slotNo, null );
+			runCommand ( slotNo, call, result, command );
+			return;
 		}
+		getExecutor ( slotNo ).execute ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				runCommand ( slotNo, call, new TauSoundMainThreadResult ( result ), command );
+			}
+		} );
+	}
 
-		return slots.get ( slotNo );
+	/**
+	 * A command which throws is answered with an error, in both modes : on a slot executor, nothing else would reply
+	 */
+	void runCommand ( int slotNo, MethodCall call, Result result, SlotCommand command )
+	{
+		long t0 = System.nanoTime ();
+		try
+		{
+			command.run ( result );
+		} catch ( RuntimeException e )
+		{
+			result.error ( call.method, call.method, e.toString () );
+		}
+		TauSoundSession session = slots.get ( slotNo );
+		if ( session != null )
+			session.metrics.methodCall ( call.method, System.nanoTime () - t0 );
 	}
 
-	public void initSession( final MethodCall call, TauSoundSession aPlayer)
+	/**
+	 * Runs `r` on the thread which owns the slot : its executor in the per-slot executor mode, otherwise right now
+	 */
+	void runOnSlot ( int slotNo, Runnable r )
+	{
+		if ( perSlotExecutor )
+			getExecutor ( slotNo ).execute ( r );
+		else
+			r.run ();
+	}
+
+	interface SlotCommand
+	{
+		void run ( Result result );
+	}
+
+	TauSoundSerialExecutor getExecutor ( int slotNo )
+	{
+		TauSoundSerialExecutor executor = executors.get ( slotNo );
+		if ( executor == null )
+		{
+			executors.compareAndSet ( slotNo, null, new TauSoundSerialExecutor () );
+			executor = executors.get ( slotNo );
+		}
+		return executor;
+	}
+
+	public void setExecutionMode( final MethodCall call, final Result result )
+	{
+		Boolean b = call.argument ( "perSlotExecutor" );
+		if ( b != null && b )
+		{
+			perSlotExecutor = true;
+			result.success ( 0 );
+			return;
+		}
+		// The commands still queued on the slot executors must not be overtaken by the inline ones
+		whenExecutorsIdle ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				perSlotExecutor = false;
+				result.success ( 0 );
+			}
+		} );
+	}
+
+	/**
+	 * Runs `r` on the platform thread as soon as no slot executor has a task running or queued.
+	 * The commands are queued by the platform thread : once the executors are all idle here, nothing can be queued before `r` runs.
+	 */
+	void whenExecutorsIdle ( final Runnable r )
+	{
+		int n = 0;
+		for ( int i = 0; i < TauSoundSlotTable.CAPACITY; ++i )
+		{
+			TauSoundSerialExecutor executor = executors.get ( i );
+			if ( executor != null && !executor.isIdle () )
+				++n;
+		}
+		if ( n == 0 )
+		{
+			r.run ();
+			return;
+		}
+		final AtomicInteger pending = new AtomicInteger ( n );
+		Runnable barrier = new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				if ( pending.decrementAndGet () == 0 )
+				{
+					mainHandler.post ( new Runnable()
+					{
+						@Override
+						public void run ()
+						{
+							whenExecutorsIdle ( r ); // Checks again : new commands may have been queued after the barrier
+						}
+					} );
+				}
+			}
+		};
+		for ( int i = 0; i < TauSoundSlotTable.CAPACITY; ++i )
+		{
+			TauSoundSerialExecutor executor = executors.get ( i );
+			if ( executor != null && !executor.isIdle () )
+				executor.execute ( barrier );
+		}
+	}
+
+	public void setCompactEvents( final MethodCall call, final Result result, String channelName )
+	{
+		Boolean b = call.argument ( "enabled" );
+		if ( b != null && b )
+		{
+			if ( eventChannel == null )
+				eventChannel = new TauSoundEventChannel ( messenger, channelName );
+		} else
+		{
+			eventChannel = null;
+		}
+		result.success ( 0 );
+	}
+
+	/**
+	 * Starts (duration > 0) or stops (duration == 0) the shared progress ticker.
+	 * While the ticker runs, the sessions do not send their own progress events.
+	 */
+	public void setProgressTicker( final MethodCall call, final Result result, String channelName, String keyA, String keyB, String keyC )
+	{
+		Integer duration = call.argument ( "duration" );
+		if ( duration != null && duration > 0 )
+		{
+			if ( ticker == null )
+				ticker = new TauSoundProgressTicker ( this, channelName, keyA, keyB, keyC );
+			ticker.start ( duration );
+		} else if ( ticker != null )
+		{
+			ticker.stop ();
+			ticker = null;
+		}
+		for ( int i = 0; i < slots.highWater (); ++i )
+		{
+			TauSoundSession session = slots.get ( i );
+			if ( session != null )
+				session.onTickerChanged ( ticker != null );
+		}
+		result.success ( 0 );
+	}
+
+	boolean isTickerRunning ()
+	{
+		return ticker != null;
+	}
+
+	public void getMetrics( final MethodCall call, final Result result )
+	{
+		int slotNo = call.argument ( "slotNo" );
+		TauSoundSession session = slots.get ( slotNo );
+		if ( session == null )
+		{
+			result.error ( "getMetrics", "getMetrics", "No session in slot " + slotNo );
+			return;
+		}
+		result.success ( session.getMetrics () );
+	}
+
+	/**
+	 * Called on the platform thread when all the sessions have been reset
+	 */
+	void onPluginReset ()
 	{
-		int slot =  call.argument ( "slotNo" );
-		slots.set ( slot, aPlayer );
-		aPlayer.init( slot );
 	}
 
 	public void resetPlugin( final MethodCall call, final Result result )
 	{
-		for (int i = 0; i < slots.size () ; ++i)
+		if ( !perSlotExecutor )
+		{
+			for (int i = 0; i < slots.highWater () ; ++i)
+			{
+				TauSoundSession session = slots.get ( i );
+				if (session != null)
+				{
+					session.reset(call, ignoredResult);
+				}
+			}
+			slots.clear();
+			onPluginReset();
+			result.success(0);
+			return;
+		}
+
+		// Each session is reset on its own executor, after the commands already queued for it.
+		// Its slot is then freed on the platform thread, unless a new session was opened there in the meantime
+		final AtomicInteger pending = new AtomicInteger ( 1 );
+		final Runnable done = new Runnable()
 		{
-			if (slots.get ( i ) != null)
+			@Override
+			public void run ()
 			{
-				slots.get ( i ).reset(call, result);
+				if ( pending.decrementAndGet () == 0 )
+				{
+					onPluginReset();
+					result.success ( 0 );
+				}
 			}
-			slots   = new ArrayList<TauSoundSession>();
+		};
+		for (int i = 0; i < slots.highWater () ; ++i)
+		{
+			final TauSoundSession session = slots.get ( i );
+			if (session == null)
+				continue;
+			pending.incrementAndGet ();
+			getExecutor ( i ).execute ( new Runnable()
+			{
+				@Override
+				public void run ()
+				{
+					try
+					{
+						session.reset ( call, ignoredResult );
+					} catch ( RuntimeException e )
+					{
+						// The slot is freed anyway : resetPlugin must reply
+					}
+					mainHandler.post ( new Runnable()
+					{
+						@Override
+						public void run ()
+						{
+							freeSlot ( session.handle );
+							done.run ();
+						}
+					} );
+				}
+			} );
 		}
-		result.success(0);
+		done.run ();
 	}
 
 }
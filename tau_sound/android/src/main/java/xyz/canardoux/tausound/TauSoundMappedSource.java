@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * A feeder source which plays a raw pcm16 or a pcm16 WAV file from a memory mapping, or a cached sound from its PCM.
+ * The file is never copied on the heap : the feeder copies each block straight from the mapped pages,
+ * and a seek only moves the read position (the player restarts the engine stream, so that what it has buffered is dropped).
+ */
+class TauSoundMappedSource implements TauSoundFeeder.Source
+{
+	final ByteBuffer      data;        // The PCM samples, read only
+	final int             sampleRate;
+	final int             numChannels;
+	final int             frameSize;
+	volatile long         position = 0; // In bytes, from the first sample. Moved by seek()
+	volatile long         startMs  = 0; // Where the engine stream started : its progress is counted from there
+	ByteBuffer            view;         // Used by the feeder thread only
+
+
+	/* ctor */ TauSoundMappedSource ( ByteBuffer aData, int aSampleRate, int aNumChannels )
+	{
+		data = aData;
+		sampleRate = aSampleRate;
+		numChannels = aNumChannels;
+		frameSize = 2 * aNumChannels;
+	}
+
+	/**
+	 * Maps `path`. A WAV file gives its own format, `sampleRate` and `numChannels` are used for raw pcm16.
+	 * Throws if the file cannot be mapped, or if it is not 16 bits PCM.
+	 */
+	static TauSoundMappedSource open ( String path, boolean wav, int sampleRate, int numChannels ) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile ( new File ( path ), "r" );
+		try
+		{
+			FileChannel channel = file.getChannel ();
+			long size = channel.size ();
+			if ( size > Integer.MAX_VALUE )
+				throw new IOException ( "File too large to be mapped : " + size );
+			MappedByteBuffer map = channel.map ( FileChannel.MapMode.READ_ONLY, 0, size ); // Still valid when the file is closed
+			map.order ( ByteOrder.LITTLE_ENDIAN );
+			if ( !wav )
+				return new TauSoundMappedSource ( map, sampleRate, numChannels );
+			return parseWav ( map );
+		} finally
+		{
+			file.close ();
+		}
+	}
+
+	/**
+	 * Walks the RIFF chunks to find the format and the samples
+	 */
+	static TauSoundMappedSource parseWav ( ByteBuffer map ) throws IOException
+	{
+		if ( map.limit () < 12 || map.getInt ( 0 ) != 0x46464952 /* RIFF */ || map.getInt ( 8 ) != 0x45564157 /* WAVE */ )
+			throw new IOException ( "Not a WAV file" );
+		int sampleRate = 0;
+		int numChannels = 0;
+		int offset = 12;
+		while ( offset + 8 <= map.limit () )
+		{
+			int id = map.getInt ( offset );
+			long size = map.getInt ( offset + 4 ) & 0xFFFFFFFFL;
+			int body = offset + 8;
+			if ( id == 0x20746D66 ) // "fmt "
+			{
+				int format = map.getShort ( body ) & 0xFFFF;
+				numChannels = map.getShort ( body + 2 );
+				sampleRate = map.getInt ( body + 4 );
+				int bits = map.getShort ( body + 14 );
+				if ( ( format != 1 && format != 0xFFFE ) || bits != 16 || numChannels <= 0 )
+					throw new IOException ( "Not a 16 bits PCM WAV file" );
+			} else
+			if ( id == 0x61746164 ) // "data"
+			{
+				if ( sampleRate == 0 )
+					throw new IOException ( "WAV data before the format chunk" );
+				// A writer which was interrupted may have left a wrong size : keep what is really in the file
+				int end = (int) Math.min ( body + size, map.limit () );
+				ByteBuffer pcm = ( (ByteBuffer) map.duplicate ().position ( body ).limit ( end ) ).slice ();
+				return new TauSoundMappedSource ( pcm, sampleRate, numChannels );
+			}
+			offset = (int) Math.min ( body + size + ( size & 1 ), Integer.MAX_VALUE ); // Chunks are word aligned
+		}
+		throw new IOException ( "No data in the WAV file" );
+	}
+
+	@Override
+	public int read ( byte[] buf, int offset, int length ) // Called by the feeder thread
+	{
+		if ( view == null )
+			view = data.duplicate ();
+		long p = position;
+		int n = (int) Math.min ( length, data.limit () - p );
+		if ( n <= 0 )
+			return -1;
+		view.position ( (int) p );
+		view.get ( buf, offset, n );
+		// A concurrent seek() wins
+		synchronized ( this )
+		{
+			if ( position == p )
+				position = p + n;
+		}
+		return n;
+	}
+
+	/**
+	 * Moves the read position. Must be followed by a restart of the engine stream
+	 */
+	synchronized void seek ( long millis )
+	{
+		long p = millis * sampleRate / 1000 * frameSize;
+		position = Math.max ( 0, Math.min ( p, data.limit () / frameSize * frameSize ) );
+		startMs = position * 1000 / ( (long) sampleRate * frameSize );
+	}
+
+	/**
+	 * The position heard, from the progress of the engine stream. The read position is ahead : the engine buffers what it was fed
+	 */
+	long positionMs ( long engineMs )
+	{
+		return Math.min ( startMs + engineMs, durationMs () );
+	}
+
+	long durationMs ()
+	{
+		return (long) data.limit () * 1000 / ( (long) sampleRate * frameSize );
+	}
+}
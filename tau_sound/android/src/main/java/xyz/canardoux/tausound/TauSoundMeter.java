@@ -0,0 +1,213 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+
+/**
+ * A metering stage for the recorded pcm16 data : RMS, sample peak, true-peak and short-term loudness.
+ *
+ * `process()` is called with each recorded chunk, and `read()` with each progress event : RMS and peaks
+ * are computed over the window between two reads, and the loudness over the last 3 seconds (ITU-R BS.1770 short-term loudness).
+ * The true-peak is the peak of the signal oversampled 4 times. Nothing is allocated after the constructor.
+ */
+class TauSoundMeter
+{
+	static final double FLOOR_DB     = -120.0; // Returned for silence
+	static final int    OVERSAMPLING = 4;
+	static final int    TAPS         = 12; // Per phase
+	static final int    BLOCK_MS     = 100;
+	static final int    SHORT_TERM   = 30; // Blocks in the short-term window (3 s)
+
+	/**
+	 * The values returned by `read()`
+	 */
+	static class Values
+	{
+		double rms;      // dBFS
+		double peak;     // dBFS
+		double truePeak; // dBTP
+		double loudness; // LUFS
+	}
+
+	final int      numChannels;
+	final float[]  fir;         // The 4 interpolation phases, TAPS coefficients each
+	final float[]  history;     // The last TAPS samples of each channel
+	int            historyPos = 0;
+	final double[] kState;      // K-weighting filters state : 4 values per biquad and per channel
+	final double   sb0, sb1, sb2, sa1, sa2; // K-weighting high shelf
+	final double   hb0, hb1, hb2, ha1, ha2; // K-weighting high pass
+	final int      blockFrames;
+	final double[] blocks = new double[SHORT_TERM]; // Mean square of the last blocks
+	int            nbBlocks   = 0;
+	int            blockIndex = 0;
+	double         blockSum   = 0;
+	int            blockFill  = 0;
+
+	// The current window
+	double         sumSquares = 0;
+	long           nbSamples  = 0;
+	float          peak       = 0;
+	float          truePeak   = 0;
+
+
+	/* ctor */ TauSoundMeter ( int sampleRate, int aNumChannels )
+	{
+		numChannels = aNumChannels;
+		blockFrames = Math.max ( 1, sampleRate * BLOCK_MS / 1000 );
+		history = new float[TAPS * numChannels];
+		kState = new double[8 * numChannels];
+
+		// Windowed sinc low pass at the original Nyquist frequency, split in 4 phases
+		int n = OVERSAMPLING * TAPS;
+		fir = new float[n];
+		double center = ( n - 1 ) / 2.0;
+		for ( int i = 0; i < n; ++i )
+		{
+			double x = ( i - center ) / OVERSAMPLING;
+			double sinc = ( x == 0 ) ? 1.0 : Math.sin ( Math.PI * x ) / ( Math.PI * x );
+			double window = 0.5 - 0.5 * Math.cos ( 2 * Math.PI * ( i + 0.5 ) / n );
+			fir[( i % OVERSAMPLING ) * TAPS + i / OVERSAMPLING] = (float) ( sinc * window );
+		}
+
+		// K-weighting (BS.1770), for any sample rate
+		double f0 = 1681.974450955533;
+		double g = 3.999843853973347;
+		double q = 0.7071752369554196;
+		double k = Math.tan ( Math.PI * f0 / sampleRate );
+		double vh = Math.pow ( 10.0, g / 20.0 );
+		double vb = Math.pow ( vh, 0.4996667741545416 );
+		double a0 = 1.0 + k / q + k * k;
+		sb0 = ( vh + vb * k / q + k * k ) / a0;
+		sb1 = 2.0 * ( k * k - vh ) / a0;
+		sb2 = ( vh - vb * k / q + k * k ) / a0;
+		sa1 = 2.0 * ( k * k - 1.0 ) / a0;
+		sa2 = ( 1.0 - k / q + k * k ) / a0;
+
+		f0 = 38.13547087602444;
+		q = 0.5003270373238773;
+		k = Math.tan ( Math.PI * f0 / sampleRate );
+		a0 = 1.0 + k / q + k * k;
+		hb0 = 1.0;
+		hb1 = -2.0;
+		hb2 = 1.0;
+		ha1 = 2.0 * ( k * k - 1.0 ) / a0;
+		ha2 = ( 1.0 - k / q + k * k ) / a0;
+	}
+
+	/**
+	 * Adds interleaved pcm16 little-endian data. Called on the engine thread.
+	 */
+	synchronized void process ( byte[] data, int offset, int length )
+	{
+		int frameSize = 2 * numChannels;
+		int end = offset + length - ( length % frameSize );
+		for ( int i = offset; i < end; i += frameSize )
+		{
+			double weighted = 0;
+			for ( int c = 0; c < numChannels; ++c )
+			{
+				int k = i + 2 * c;
+				float x = (short) ( ( data[k] & 0xFF ) | ( data[k + 1] << 8 ) ) / 32768.0f;
+				sumSquares += x * x;
+				float a = Math.abs ( x );
+				if ( a > peak )
+					peak = a;
+				history[c * TAPS + historyPos] = x;
+				oversample ( c );
+				double y = kWeight ( c, x );
+				weighted += y * y;
+			}
+			historyPos = ( historyPos + 1 ) % TAPS;
+			nbSamples += numChannels;
+			blockSum += weighted;
+			if ( ++blockFill == blockFrames )
+			{
+				blocks[blockIndex] = blockSum / blockFrames;
+				blockIndex = ( blockIndex + 1 ) % SHORT_TERM;
+				if ( nbBlocks < SHORT_TERM )
+					++nbBlocks;
+				blockSum = 0;
+				blockFill = 0;
+			}
+		}
+	}
+
+	void oversample ( int c )
+	{
+		int base = c * TAPS;
+		for ( int p = 0; p < OVERSAMPLING; ++p )
+		{
+			float y = 0;
+			int h = historyPos;
+			for ( int j = 0; j < TAPS; ++j )
+			{
+				y += fir[p * TAPS + j] * history[base + h];
+				h = ( h == 0 ) ? TAPS - 1 : h - 1;
+			}
+			float a = Math.abs ( y );
+			if ( a > truePeak )
+				truePeak = a;
+		}
+	}
+
+	double kWeight ( int c, double x )
+	{
+		int s = 8 * c;
+		// High shelf, direct form I
+		double y = sb0 * x + sb1 * kState[s] + sb2 * kState[s + 1] - sa1 * kState[s + 2] - sa2 * kState[s + 3];
+		kState[s + 1] = kState[s];
+		kState[s] = x;
+		kState[s + 3] = kState[s + 2];
+		kState[s + 2] = y;
+		// High pass
+		double z = hb0 * y + hb1 * kState[s + 4] + hb2 * kState[s + 5] - ha1 * kState[s + 6] - ha2 * kState[s + 7];
+		kState[s + 5] = kState[s + 4];
+		kState[s + 4] = y;
+		kState[s + 7] = kState[s + 6];
+		kState[s + 6] = z;
+		return z;
+	}
+
+	static double toDb ( double amplitude )
+	{
+		return ( amplitude > 0 ) ? Math.max ( FLOOR_DB, 20.0 * Math.log10 ( amplitude ) ) : FLOOR_DB;
+	}
+
+	/**
+	 * Returns the values of the window since the previous read, and starts a new window.
+	 */
+	synchronized void read ( Values v )
+	{
+		v.rms = ( nbSamples > 0 ) ? toDb ( Math.sqrt ( sumSquares / nbSamples ) ) : FLOOR_DB;
+		v.peak = toDb ( peak );
+		v.truePeak = toDb ( Math.max ( truePeak, peak ) );
+		double sum = 0;
+		for ( int i = 0; i < nbBlocks; ++i )
+		{
+			sum += blocks[i];
+		}
+		double meanSquare = ( nbBlocks > 0 ) ? sum / nbBlocks : 0;
+		v.loudness = ( meanSquare > 0 ) ? Math.max ( FLOOR_DB, -0.691 + 10.0 * Math.log10 ( meanSquare ) ) : FLOOR_DB;
+		sumSquares = 0;
+		nbSamples = 0;
+		peak = 0;
+		truePeak = 0;
+	}
+}
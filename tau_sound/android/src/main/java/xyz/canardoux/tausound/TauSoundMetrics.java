@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * The runtime counters of a session, returned by `getMetrics`.
+ * They are cheap enough to be always enabled : no lock is taken, and the counters
+ * updated by the audio threads are striped to avoid contention between threads.
+ */
+class TauSoundMetrics
+{
+	/**
+	 * A counter split in several stripes : each thread adds to its own stripe, and the reader sums them.
+	 */
+	static class Counter
+	{
+		static final int STRIPES = 4;
+		static final int PADDING = 8; // One stripe per cache line (8 longs)
+
+		final AtomicLongArray cells = new AtomicLongArray ( STRIPES * PADDING );
+
+		void add ( long n )
+		{
+			int stripe = (int) ( Thread.currentThread ().getId () & ( STRIPES - 1 ) );
+			cells.addAndGet ( stripe * PADDING, n );
+		}
+
+		void increment ()
+		{
+			add ( 1 );
+		}
+
+		long sum ()
+		{
+			long r = 0;
+			for ( int i = 0; i < STRIPES; ++i )
+			{
+				r += cells.get ( i * PADDING );
+			}
+			return r;
+		}
+	}
+
+	/**
+	 * A histogram of durations, in power of two micro-seconds buckets : bucket i counts the durations in [2^(i-1), 2^i[ µs.
+	 */
+	static class Histogram
+	{
+		static final int NB_BUCKETS = 32;
+
+		final AtomicLongArray buckets = new AtomicLongArray ( NB_BUCKETS );
+		final Counter         sumUs   = new Counter ();
+
+		void record ( long nanos )
+		{
+			long us = nanos / 1000;
+			int bucket = Math.min ( NB_BUCKETS - 1, 64 - Long.numberOfLeadingZeros ( us ) );
+			buckets.incrementAndGet ( bucket );
+			sumUs.add ( us );
+		}
+
+		Map<String, Object> toMap ()
+		{
+			long[] a = new long[NB_BUCKETS];
+			long count = 0;
+			for ( int i = 0; i < NB_BUCKETS; ++i )
+			{
+				a[i] = buckets.get ( i );
+				count += a[i];
+			}
+			Map<String, Object> dic = new HashMap<String, Object> ();
+			dic.put ( "count", count );
+			dic.put ( "sumUs", sumUs.sum () );
+			dic.put ( "buckets", a );
+			return dic;
+		}
+	}
+
+	final ConcurrentHashMap<String, Counter> methodCalls = new ConcurrentHashMap<String, Counter> ();
+	final Counter   bytesFed         = new Counter ();
+	final Counter   bytesRecorded    = new Counter ();
+	final Counter   needSomeFood     = new Counter ();
+	final Counter   underruns        = new Counter ();
+	final Counter   overruns         = new Counter ();
+	final Histogram callbackLatency  = new Histogram (); // From the event creation to its delivery to the channel
+	final Histogram methodCallTime   = new Histogram (); // Time spent executing a Dart command
+
+
+	void methodCall ( String method, long nanos )
+	{
+		Counter c = methodCalls.get ( method );
+		if ( c == null )
+		{
+			methodCalls.putIfAbsent ( method, new Counter () );
+			c = methodCalls.get ( method );
+		}
+		c.increment ();
+		methodCallTime.record ( nanos );
+	}
+
+	Map<String, Object> toMap ()
+	{
+		Map<String, Object> calls = new HashMap<String, Object> ();
+		for ( Map.Entry<String, Counter> e : methodCalls.entrySet () )
+		{
+			calls.put ( e.getKey (), e.getValue ().sum () );
+		}
+		Map<String, Object> dic = new HashMap<String, Object> ();
+		dic.put ( "methodCalls", calls );
+		dic.put ( "bytesFed", bytesFed.sum () );
+		dic.put ( "bytesRecorded", bytesRecorded.sum () );
+		dic.put ( "needSomeFood", needSomeFood.sum () );
+		dic.put ( "underruns", underruns.sum () );
+		dic.put ( "overruns", overruns.sum () );
+		dic.put ( "callbackLatency", callbackLatency.toMap () );
+		dic.put ( "methodCallTime", methodCallTime.toMap () );
+		return dic;
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import xyz.canardoux.TauNative.FlautoPlayer;
+
+
+/**
+ * A software mixer shared by several player slots.
+ *
+ * The bus is hosted by one player : its engine plays one stereo pcm16 stream.
+ * Each attached slot writes its `feed()` data into its own ring buffer (pcm16, same sample rate as the bus),
+ * and the bus thread mixes all the rings into one preallocated float buffer, with the volume, mute and solo
+ * of each slot. All the slots are so rendered with the same clock. Nothing is allocated while mixing.
+ */
+class TauSoundMixerBus implements Runnable
+{
+	static final int NUM_CHANNELS = 2;
+	static final int STOPPED      = 0; // The t_PLAYER_STATE ordinals
+	static final int PLAYING      = 1;
+	static final int PAUSED       = 2;
+
+	static class Input
+	{
+		final TauSoundPlayer     player;
+		final TauSoundRingBuffer ring;
+		final int                numChannels;
+		final byte[]             scratch;
+		volatile float           volume = 1.0f;
+		volatile boolean         mute   = false;
+		volatile boolean         solo   = false;
+		volatile int             state  = STOPPED; // The state of the attached player : its own engine is stopped
+
+		/* ctor */ Input ( TauSoundPlayer aPlayer, TauSoundRingBuffer aRing, int aNumChannels, int frames )
+		{
+			player = aPlayer;
+			ring = aRing;
+			numChannels = aNumChannels;
+			scratch = new byte[frames * aNumChannels * 2];
+		}
+	}
+
+	final FlautoPlayer player;
+	final int          sampleRate;
+	final int          frames;
+	final float[]      mix;
+	final byte[]       block;
+	final Thread       thread;
+	volatile Input[]   inputs  = new Input[0]; // Copied on write : attach/detach are rare
+	volatile boolean   running = true;
+
+
+	/* ctor */ TauSoundMixerBus ( FlautoPlayer aPlayer, int aSampleRate, int blockSize, String name )
+	{
+		player = aPlayer;
+		sampleRate = aSampleRate;
+		frames = blockSize / ( 2 * NUM_CHANNELS );
+		mix = new float[frames * NUM_CHANNELS];
+		block = new byte[frames * NUM_CHANNELS * 2];
+		thread = new Thread ( this, name );
+		thread.setPriority ( Thread.MAX_PRIORITY );
+	}
+
+	void start ()
+	{
+		thread.start ();
+	}
+
+	/**
+	 * Stops the bus, and waits (at most TauSoundFeeder.JOIN_MILLIS) until its thread has fed its last block :
+	 * a stale block must not reach the engine after a restart.
+	 */
+	void stop ()
+	{
+		running = false;
+		LockSupport.unpark ( thread );
+		if ( thread == Thread.currentThread () || !thread.isAlive () )
+			return;
+		try
+		{
+			thread.join ( TauSoundFeeder.JOIN_MILLIS );
+		} catch ( InterruptedException e )
+		{
+			Thread.currentThread ().interrupt ();
+		}
+	}
+
+	synchronized Input attach ( TauSoundPlayer aPlayer, int ringSize, int numChannels )
+	{
+		detach ( aPlayer );
+		Input input = new Input ( aPlayer, new TauSoundRingBuffer ( ringSize ), numChannels, frames );
+		Input[] a = Arrays.copyOf ( inputs, inputs.length + 1 );
+		a[a.length - 1] = input;
+		inputs = a;
+		return input;
+	}
+
+	synchronized void detach ( TauSoundPlayer aPlayer )
+	{
+		Input[] a = inputs;
+		for ( int i = 0; i < a.length; ++i )
+		{
+			if ( a[i].player == aPlayer )
+			{
+				Input[] b = new Input[a.length - 1];
+				System.arraycopy ( a, 0, b, 0, i );
+				System.arraycopy ( a, i + 1, b, i, a.length - i - 1 );
+				inputs = b;
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void run ()
+	{
+		while ( running )
+		{
+			render ();
+			try
+			{
+				feedBlock (); // Blocks while the output track is full : this paces the bus
+			} catch ( Exception e )
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Feeds the whole block. The engine may accept only a part of it : the tail is fed again,
+	 * after a short wait if nothing was accepted, until all is fed or the bus is stopped.
+	 */
+	void feedBlock () throws Exception
+	{
+		int done = 0;
+		while ( running && done < block.length )
+		{
+			int ln = player.feed ( ( done == 0 ) ? block : Arrays.copyOfRange ( block, done, block.length ) );
+			done += ln;
+			if ( ln == 0 ) // The engine buffer is full
+				LockSupport.parkNanos ( TauSoundFeeder.WAIT_NANOS );
+		}
+	}
+
+	void render ()
+	{
+		Input[] a = inputs;
+		boolean anySolo = false;
+		for ( Input input : a )
+		{
+			anySolo |= input.solo;
+		}
+		Arrays.fill ( mix, 0.0f );
+		for ( Input input : a )
+		{
+			int state = input.state;
+			if ( state == STOPPED )
+			{
+				input.ring.clear (); // What was fed before stopPlayer is not played by the next startPlayer
+				continue;
+			}
+			if ( state != PLAYING )
+				continue;
+			// Only whole sample frames are taken : a partial one stays in the ring until it is complete
+			int frameSize = 2 * input.numChannels;
+			int n = input.ring.read ( input.scratch, 0, Math.min ( input.scratch.length, input.ring.available () / frameSize * frameSize ) );
+			input.player.onRingRead ( n, n < input.scratch.length );
+			input.player.onFed ( n ); // Drives the needSomeFood watermarks of the slot
+			if ( input.mute || ( anySolo && !input.solo ) )
+				continue;
+			float volume = input.volume;
+			int nbFrames = n / ( 2 * input.numChannels );
+			for ( int f = 0; f < nbFrames; ++f )
+			{
+				int k = 2 * f * input.numChannels;
+				float l = (short) ( ( input.scratch[k] & 0xFF ) | ( input.scratch[k + 1] << 8 ) ) / 32768.0f;
+				float r = l;
+				if ( input.numChannels > 1 )
+					r = (short) ( ( input.scratch[k + 2] & 0xFF ) | ( input.scratch[k + 3] << 8 ) ) / 32768.0f;
+				mix[2 * f] += l * volume;
+				mix[2 * f + 1] += r * volume;
+			}
+		}
+		for ( int i = 0; i < mix.length; ++i )
+		{
+			float x = mix[i];
+			if ( x > 1.0f )
+				x = 1.0f;
+			else if ( x < -1.0f )
+				x = -1.0f;
+			int s = (int) ( x * 32767.0f );
+			block[2 * i] = (byte) s;
+			block[2 * i + 1] = (byte) ( s >> 8 );
+		}
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.LruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+import xyz.canardoux.TauNative.Flauto;
+
+
+/**
+ * A process wide cache of decoded sounds (16 bits PCM), for the short sounds which are played again and again.
+ * The cache is bounded by a byte budget, and the least recently used sounds are evicted first.
+ * A sound is keyed by its path, or by the SHA-1 of its content when it comes from a data buffer.
+ */
+class TauSoundPcmCache
+{
+	static final int CODEC_PCM16    = 6; // The t_CODEC ordinals, as in TauSoundRecorder._isAudioRecorder
+	static final int CODEC_PCM16WAV = 7;
+
+	static final int DEFAULT_BUDGET = 8 * 1024 * 1024;
+
+	static class Entry
+	{
+		final byte[] pcm;
+		final int    sampleRate;
+		final int    numChannels;
+
+		/* ctor */ Entry ( byte[] aPcm, int aSampleRate, int aNumChannels )
+		{
+			pcm = aPcm;
+			sampleRate = aSampleRate;
+			numChannels = aNumChannels;
+		}
+	}
+
+	static LruCache<String, Entry> cache = newCache ( DEFAULT_BUDGET );
+	static long hits = 0;
+	static long misses = 0;
+
+
+	static LruCache<String, Entry> newCache ( int budget )
+	{
+		return new LruCache<String, Entry> ( budget )
+		{
+			@Override
+			protected int sizeOf ( String key, Entry entry )
+			{
+				return entry.pcm.length;
+			}
+		};
+	}
+
+	/**
+	 * Changes the byte budget. The cached sounds are dropped.
+	 */
+	static synchronized void setBudget ( int budget )
+	{
+		cache.evictAll ();
+		cache = newCache ( budget );
+		hits = 0;
+		misses = 0;
+	}
+
+	static synchronized Entry get ( String key )
+	{
+		return get ( key, true );
+	}
+
+	/**
+	 * Returns the cached sound, or null. The miss is not counted if `countMiss` is false :
+	 * the path of every played file is looked up, just in case, and most of them are not meant to be cached.
+	 */
+	static synchronized Entry get ( String key, boolean countMiss )
+	{
+		Entry entry = cache.get ( key );
+		if ( entry != null )
+			++hits;
+		else if ( countMiss )
+			++misses;
+		return entry;
+	}
+
+	/**
+	 * Returns false if the sound is larger than the whole budget : it would be evicted at once
+	 */
+	static synchronized boolean put ( String key, Entry entry )
+	{
+		if ( entry.pcm.length > cache.maxSize () )
+			return false;
+		cache.put ( key, entry );
+		return true;
+	}
+
+	static synchronized Map<String, Object> getStats ()
+	{
+		Map<String, Object> dic = new HashMap<String, Object> ();
+		dic.put ( "budget", cache.maxSize () );
+		dic.put ( "size", cache.size () );
+		dic.put ( "hits", hits );
+		dic.put ( "misses", misses );
+		dic.put ( "evictions", cache.evictionCount () );
+		return dic;
+	}
+
+	static String keyOf ( byte[] data ) throws Exception
+	{
+		byte[] digest = MessageDigest.getInstance ( "SHA-1" ).digest ( data );
+		StringBuilder sb = new StringBuilder ( "sha1:" );
+		for ( byte b : digest )
+		{
+			sb.append ( String.format ( "%02x", b ) );
+		}
+		return sb.toString ();
+	}
+
+	/**
+	 * Decodes a sound to 16 bits PCM.
+	 * Raw pcm16 is taken as is (the caller gives its sample rate and number of channels).
+	 * A local pcm16 or pcm16WAV file is read directly : MediaExtractor cannot parse headerless PCM.
+	 * Everything else goes through MediaExtractor/MediaCodec.
+	 */
+	static Entry decode ( int codec, String path, byte[] data, int sampleRate, int numChannels ) throws Exception
+	{
+		if ( codec == CODEC_PCM16 && data != null )
+		{
+			return new Entry ( data, sampleRate, numChannels );
+		}
+		if ( ( codec == CODEC_PCM16 || codec == CODEC_PCM16WAV ) && data == null && path != null )
+		{
+			if ( path.startsWith ( "file://" ) )
+				path = path.substring ( 7 );
+			if ( new File ( path ).isFile () )
+				return readFile ( path, codec == CODEC_PCM16WAV, sampleRate, numChannels );
+		}
+		File tmp = null;
+		if ( data != null )
+		{
+			tmp = File.createTempFile ( "tau_decode", null, Flauto.androidContext.getCacheDir () );
+			FileOutputStream out = new FileOutputStream ( tmp );
+			out.write ( data );
+			out.close ();
+			path = tmp.getPath ();
+		}
+		try
+		{
+			return decodeFile ( path );
+		} finally
+		{
+			if ( tmp != null )
+				tmp.delete ();
+		}
+	}
+
+	/**
+	 * Copies the samples of a local pcm16 or pcm16WAV file, through the same mapping as the playback from a file
+	 */
+	static Entry readFile ( String path, boolean wav, int sampleRate, int numChannels ) throws Exception
+	{
+		TauSoundMappedSource source = TauSoundMappedSource.open ( path, wav, sampleRate, numChannels );
+		byte[] pcm = new byte[source.data.limit () / source.frameSize * source.frameSize];
+		source.data.duplicate ().get ( pcm );
+		return new Entry ( pcm, source.sampleRate, source.numChannels );
+	}
+
+	static Entry decodeFile ( String path ) throws Exception
+	{
+		MediaExtractor extractor = new MediaExtractor ();
+		MediaCodec decoder = null;
+		try
+		{
+			extractor.setDataSource ( path );
+			MediaFormat format = null;
+			for ( int i = 0; i < extractor.getTrackCount (); ++i )
+			{
+				MediaFormat f = extractor.getTrackFormat ( i );
+				if ( f.getString ( MediaFormat.KEY_MIME ).startsWith ( "audio/" ) )
+				{
+					extractor.selectTrack ( i );
+					format = f;
+					break;
+				}
+			}
+			if ( format == null )
+				throw new Exception ( "No audio track in " + path );
+
+			int sampleRate = format.getInteger ( MediaFormat.KEY_SAMPLE_RATE );
+			int numChannels = format.getInteger ( MediaFormat.KEY_CHANNEL_COUNT );
+			decoder = MediaCodec.createDecoderByType ( format.getString ( MediaFormat.KEY_MIME ) );
+			decoder.configure ( format, null, null, 0 );
+			decoder.start ();
+
+			ByteArrayOutputStream pcm = new ByteArrayOutputStream ();
+			MediaCodec.BufferInfo info = new MediaCodec.BufferInfo ();
+			byte[] chunk = new byte[0];
+			boolean inputDone = false;
+			boolean outputDone = false;
+			while ( !outputDone )
+			{
+				if ( !inputDone )
+				{
+					int inIndex = decoder.dequeueInputBuffer ( 10000 );
+					if ( inIndex >= 0 )
+					{
+						ByteBuffer in = decoder.getInputBuffers ()[inIndex];
+						int n = extractor.readSampleData ( in, 0 );
+						if ( n < 0 )
+						{
+							decoder.queueInputBuffer ( inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM );
+							inputDone = true;
+						} else
+						{
+							decoder.queueInputBuffer ( inIndex, 0, n, extractor.getSampleTime (), 0 );
+							extractor.advance ();
+						}
+					}
+				}
+				int outIndex = decoder.dequeueOutputBuffer ( info, 10000 );
+				if ( outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED )
+				{
+					MediaFormat outFormat = decoder.getOutputFormat ();
+					sampleRate = outFormat.getInteger ( MediaFormat.KEY_SAMPLE_RATE );
+					numChannels = outFormat.getInteger ( MediaFormat.KEY_CHANNEL_COUNT );
+				} else if ( outIndex >= 0 )
+				{
+					ByteBuffer out = decoder.getOutputBuffers ()[outIndex];
+					if ( chunk.length < info.size )
+						chunk = new byte[info.size];
+					out.position ( info.offset );
+					out.get ( chunk, 0, info.size );
+					pcm.write ( chunk, 0, info.size );
+					decoder.releaseOutputBuffer ( outIndex, false );
+					outputDone = ( info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM ) != 0;
+				}
+			}
+			return new Entry ( pcm.toByteArray (), sampleRate, numChannels );
+		} finally
+		{
+			if ( decoder != null )
+			{
+				decoder.stop ();
+				decoder.release ();
+			}
+			extractor.release ();
+		}
+	}
+}
@@ -18,8 +18,21 @@ package xyz.canardoux.tausound;
  * file, You can obtain one at https://www.gnu.org/licenses/.
  */
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.os.SystemClock;
+import android.util.Log;
 
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
@@ -30,16 +43,48 @@ import xyz.canardoux.TauNative.FlautoPlayerCallback;
 import xyz.canardoux.TauNative.Flauto.*;
 
 
-public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCallback
+public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCallback, TauSoundFeeder.Source, TauSoundFeeder.Listener
 {
 
 	static final String ERR_UNKNOWN           = "ERR_UNKNOWN";
 	static final String ERR_PLAYER_IS_NULL    = "ERR_PLAYER_IS_NULL";
 	static final String ERR_PLAYER_IS_PLAYING = "ERR_PLAYER_IS_PLAYING";
 	final static  String           TAG         = "TauSoundPlugin";
+	static final long MAX_DRAIN_MS = 5000; // The end of a sound is not announced later than that after its last block was fed
+	static final long DRAIN_POLL_NANOS = 10000000; // 10 ms
+	static final int DEFAULT_RING_SIZE = 65536; // When the fed data are converted or decoded, and no ring size is given
 
 
 	FlautoPlayer m_flautoPlayer;
+	volatile TauSoundRingBuffer m_ring; // Not null when `feed()` writes into a ring buffer drained by m_feeder. Read by the feeder and bus threads
+	TauSoundFeeder m_feeder;
+	long m_feedBytesPerSecond = 0; // The format fed by m_feeder, when it plays a sound which ends
+	TauSoundMappedSource m_mapped; // Not null when a pcm16 file is played from a memory mapping, or a cached sound from memory
+	volatile boolean m_restarting = false; // A seek in m_mapped restarts the engine stream : its startPlayerCompleted is not sent
+	volatile boolean m_seeking = false; // Set during seekMapped() : the stop and pause done by the engine restart are not sent
+	TauSoundResampler m_resampler; // Not null when the fed data are converted to the output format
+	byte[] m_convertBuffer = new byte[0]; // The output of m_resampler. Only grows
+	byte[] m_pending = new byte[0]; // Converted or decoded data which did not fit in the ring : their input is already consumed. Only grows
+	int m_pendingLength = 0;
+	TauSoundStreamCodec m_streamDecoder; // Not null when the fed data are compressed
+	byte[] m_decodeBuffer = new byte[0]; // The output of m_streamDecoder. Only grows
+	static int s_deviceSampleRate = 0;
+	TauSoundEffects m_effects; // Not null in the polyphonic effects mode
+	TauSoundMixerBus m_hostedBus; // Not null if this player hosts the mixer bus
+	volatile TauSoundMixerBus.Input m_busInput; // Not null if this player is attached to the mixer bus. Then m_ring is the bus input
+	int m_lowWatermark;
+	int m_highWatermark;
+	static final int FLOW_IDLE = 0;    // Nothing was read from the ring yet
+	static final int FLOW_RUNNING = 1;
+	static final int FLOW_STARVED = 2; // The ring was drained while playing
+	int m_flow = FLOW_IDLE; // Used by the thread which drains the ring only
+	final AtomicBoolean m_needSomeFoodArmed = new AtomicBoolean(); // Set by the producer, cleared by the thread which sends needSomeFood
+	int m_subscriptionDuration = 0;
+	long m_lastPosition = -1; // The last values sent by the shared progress ticker
+	long m_lastDuration = -1;
+	boolean m_pooled = false; // True if the engine comes from the pool of pre-opened players
+	long m_openTime = 0; // When openPlayer was called. Reset at the first startPlayerCompleted
+	long m_openToStartLatencyUs = -1; // From openPlayer to the first startPlayerCompleted : the engine has accepted the stream, nothing is heard yet
 
 // =============================================================  callback ===============================================================
 
@@ -53,10 +98,14 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 	}
 	public void stopPlayerCompleted(boolean success)
 	{
+		if (m_seeking)
+			return;
 		invokeMethodWithBoolean( "stopPlayerCompleted", success, success );
 	}
 	public void pausePlayerCompleted(boolean success)
 	{
+		if (m_seeking)
+			return;
 		invokeMethodWithBoolean( "pausePlayerCompleted", success, success );
 	}
 	public void resumePlayerCompleted(boolean success)
@@ -66,6 +115,20 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 
 	public void startPlayerCompleted (boolean success, long duration)
 	{
+		if (m_restarting)
+		{
+			m_restarting = false;
+			return;
+		}
+		if (m_openTime != 0)
+		{
+			m_openToStartLatencyUs = (SystemClock.elapsedRealtimeNanos() - m_openTime) / 1000;
+			m_openTime = 0;
+			Log.d(TAG, "Slot " + slotNo + " : openPlayer to startPlayerCompleted = " + m_openToStartLatencyUs + " µs" + (m_pooled ? " (pooled player)" : ""));
+		}
+		TauSoundMappedSource mapped = m_mapped;
+		if (mapped != null)
+			duration = mapped.durationMs();
 		Map<String, Object> dico = new HashMap<String, Object> ();
 		dico.put( "duration", (int) duration);
 		dico.put( "state",  (int)getPlayerState());
@@ -75,11 +138,31 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 
 	public void needSomeFood (int ln)
 	{
+		if (m_ring != null)
+			return; // The ring watermarks drive needSomeFood
+		sendNeedSomeFood(ln);
+	}
+
+	void sendNeedSomeFood (int ln)
+	{
+		metrics.needSomeFood.increment();
+		if (sendCompactEvent(TauSoundEventChannel.EVENT_NEED_SOME_FOOD, ln, 0, 0))
+			return;
 		invokeMethodWithInteger("needSomeFood", true, ln);
 	}
 
 	public void updateProgress(long position, long duration)
 	{
+		if (getPlugin().isTickerRunning())
+			return;
+		TauSoundMappedSource mapped = m_mapped;
+		if (mapped != null) // The engine only knows the progress of its stream
+		{
+			position = mapped.positionMs(position);
+			duration = mapped.durationMs();
+		}
+		if (sendCompactEvent(TauSoundEventChannel.EVENT_UPDATE_PROGRESS, position, duration, 0))
+			return;
 		Map<String, Object> dic = new HashMap<String, Object>();
 		dic.put("position", position);
 		dic.put("duration", duration);
@@ -124,6 +207,205 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 	}
 
 
+// =============================================================  feeder =================================================================
+
+	public int read ( byte[] data, int offset, int length ) // Called by the feeder thread
+	{
+		TauSoundRingBuffer ring = m_ring;
+		if (ring == null)
+			return -1;
+		int n = ring.read(data, offset, length);
+		onRingRead(n, n == 0);
+		return n;
+	}
+
+	/**
+	 * Called by the thread which drains the ring (the feeder or the mixer bus). An underrun is counted when data come back
+	 * after the ring was drained while playing : the start of a stream, its end, and a paused player are not underruns.
+	 */
+	void onRingRead ( int n, boolean drained )
+	{
+		if (n > 0)
+		{
+			if (m_flow == FLOW_STARVED)
+				metrics.underruns.increment();
+			m_flow = FLOW_RUNNING;
+		}
+		if (drained && m_flow == FLOW_RUNNING && getPlayerState() == t_PLAYER_STATE.PLAYER_IS_PLAYING.ordinal())
+			m_flow = FLOW_STARVED;
+	}
+
+	public void onFed ( int ln ) // Called by the feeder thread
+	{
+		TauSoundRingBuffer ring = m_ring;
+		if (ring != null)
+			checkNeedSomeFood(ring);
+	}
+
+	/**
+	 * Sends needSomeFood once the ring is down to its low watermark.
+	 * Dart takes the value as the number of bytes consumed from the chunk `feed()` refused : 0, so that it is fed again.
+	 */
+	void checkNeedSomeFood ( TauSoundRingBuffer ring )
+	{
+		if (ring.available() <= m_lowWatermark && m_needSomeFoodArmed.compareAndSet(true, false))
+			sendNeedSomeFood(0);
+	}
+
+	/**
+	 * Called by the producer after a write in the ring. A refused chunk always arms needSomeFood : Dart waits for it.
+	 */
+	void onRingWritten ( TauSoundRingBuffer ring, boolean refused )
+	{
+		if (refused || ring.available() >= m_highWatermark)
+			m_needSomeFoodArmed.set(true);
+		if (refused)
+			checkNeedSomeFood(ring); // The ring may have been drained before it was armed
+	}
+
+	public void onEnded ( TauSoundFeeder feeder )
+	{
+		// A ring never ends by itself : the feeder has been stopped
+		if (feeder == m_feeder && m_ring == null)
+		{
+			awaitPlayed(feeder);
+			if (feeder.running) // Not stopped while the engine was playing its buffer
+				audioPlayerDidFinishPlaying(true);
+		}
+	}
+
+	/**
+	 * Waits until the engine has played what the feeder gave it : its buffer is still full when the source ends.
+	 * Called on the feeder thread. Does not wait more than MAX_DRAIN_MS while the player is playing.
+	 */
+	void awaitPlayed ( TauSoundFeeder feeder )
+	{
+		if (m_feedBytesPerSecond <= 0)
+			return;
+		long fedMs = feeder.fed * 1000 / m_feedBytesPerSecond;
+		long deadline = SystemClock.elapsedRealtime() + MAX_DRAIN_MS;
+		while (feeder.running)
+		{
+			int state = getPlayerState();
+			if (state == t_PLAYER_STATE.PLAYER_IS_STOPPED.ordinal())
+				return;
+			long now = SystemClock.elapsedRealtime();
+			if (state == t_PLAYER_STATE.PLAYER_IS_PAUSED.ordinal())
+				deadline = now + MAX_DRAIN_MS;
+			else if (now >= deadline || engineProgress() >= fedMs)
+				return;
+			LockSupport.parkNanos(DRAIN_POLL_NANOS); // stop() unparks the feeder thread
+		}
+	}
+
+	long engineProgress ()
+	{
+		Object progress = m_flautoPlayer.getProgress().get("progress");
+		return (progress != null) ? ((Number)progress).longValue() : 0;
+	}
+
+	void startRing(int ringSize, Integer lowWatermark, Integer highWatermark, int blockSize)
+	{
+		m_ring = new TauSoundRingBuffer(ringSize);
+		m_highWatermark = (highWatermark != null) ? Math.min(highWatermark, ringSize) : ringSize / 2;
+		m_lowWatermark = (lowWatermark != null) ? Math.min(lowWatermark, m_highWatermark) : ringSize / 4;
+		m_needSomeFoodArmed.set(true);
+		m_flow = FLOW_IDLE;
+		m_pendingLength = 0;
+		m_feeder = new TauSoundFeeder(m_flautoPlayer, this, this, Math.min(blockSize, ringSize), "TauSoundFeeder-" + slotNo);
+		m_feeder.start();
+	}
+
+	void startMappedSound(TauSoundMappedSource source, int blockSize)
+	{
+		m_feedBytesPerSecond = 2L * source.sampleRate * source.numChannels;
+		m_feeder = new TauSoundFeeder(m_flautoPlayer, source, this, blockSize, "TauSoundFeeder-" + slotNo);
+		m_feeder.start();
+	}
+
+	/**
+	 * Maps a local pcm16 or pcm16WAV file. Returns null if the file must be played by the engine.
+	 */
+	TauSoundMappedSource mapSound(t_CODEC codec, String path, int sampleRate, int numChannels)
+	{
+		if (path == null || (codec.ordinal() != TauSoundPcmCache.CODEC_PCM16 && codec.ordinal() != TauSoundPcmCache.CODEC_PCM16WAV))
+			return null;
+		if (path.startsWith("file://"))
+			path = path.substring(7);
+		if (!new File(path).isFile()) // A remote URL
+			return null;
+		try
+		{
+			return TauSoundMappedSource.open(path, codec.ordinal() == TauSoundPcmCache.CODEC_PCM16WAV, sampleRate, numChannels);
+		} catch (IOException e)
+		{
+			log(t_LOG_LEVEL.WARNING, "Cannot map " + path + " : " + e.getMessage());
+			return null;
+		}
+	}
+
+	void stopFeeder()
+	{
+		if (m_feeder != null)
+		{
+			m_feeder.stop();
+			m_feeder = null;
+		}
+		if (m_effects != null)
+		{
+			m_effects.stop();
+			m_effects = null;
+		}
+		if (m_hostedBus != null)
+		{
+			closeMixerBus();
+		}
+		if (m_busInput == null) // The ring of an attached player stays attached when the player is stopped
+			m_ring = null;
+		m_mapped = null;
+		m_resampler = null;
+		m_streamDecoder = null;
+	}
+
+// =============================================================  progress ticker ========================================================
+
+	boolean sampleProgress ( TauSoundProgressTicker.Sample sample )
+	{
+		if (getPlayerState() == 0) // Stopped
+			return false;
+		Map<String, Object> dic = getProgress();
+		long position = ((Number)dic.get("progress")).longValue();
+		long duration = ((Number)dic.get("duration")).longValue();
+		if (position == m_lastPosition && duration == m_lastDuration)
+			return false;
+		m_lastPosition = position;
+		m_lastDuration = duration;
+		sample.a = position;
+		sample.b = duration;
+		return true;
+	}
+
+	Map<String, Object> getMetrics ()
+	{
+		Map<String, Object> dic = super.getMetrics();
+		dic.put("openToStartLatencyUs", m_openToStartLatencyUs);
+		dic.put("pooled", m_pooled);
+		TauSoundRingBuffer ring = m_ring;
+		if (ring != null)
+		{
+			dic.put("ringCapacity", ring.capacity);
+			dic.put("ringAvailable", ring.available());
+		}
+		return dic;
+	}
+
+	void onTickerChanged ( boolean running )
+	{
+		m_lastPosition = -1;
+		m_lastDuration = -1;
+		m_flautoPlayer.setSubscriptionDuration(running ? 0 : m_subscriptionDuration);
+	}
+
 //========================================================================================================================================
 
 	/* ctor */ TauSoundPlayer (final MethodCall call)
@@ -142,8 +424,25 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 	}
 
 
+	/**
+	 * Opens the engine of a player which will be stored in the pool of idle players
+	 */
+	boolean openPooledEngine()
+	{
+		m_pooled = m_flautoPlayer.openPlayer
+		(
+			t_AUDIO_FOCUS.values()[0],
+			t_SESSION_CATEGORY.values()[0],
+			t_SESSION_MODE.values()[0],
+			0,
+			t_AUDIO_DEVICE.values()[0]
+		);
+		return m_pooled;
+	}
+
 	void openPlayer ( final MethodCall call, final Result result )
 	{
+		m_openTime = SystemClock.elapsedRealtimeNanos();
 		int x1 = call.argument("focus");
 		t_AUDIO_FOCUS focus = t_AUDIO_FOCUS.values()[x1];
 		int x2 = call.argument("category");
@@ -154,6 +453,21 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 		t_AUDIO_DEVICE audioDevice = t_AUDIO_DEVICE.values()[x4];
 		int audioFlags = call.argument("audioFlags");
 
+		if (m_pooled)
+		{
+			// The engine is already opened, with the pool configuration
+			boolean r = true;
+			if (x1 != 0 || x2 != 0 || x3 != 0 || x4 != 0 || audioFlags != 0)
+				r = m_flautoPlayer.setAudioFocus(focus, category, mode, audioFlags, audioDevice);
+			if (r)
+			{
+				result.success(getPlayerState());
+				openPlayerCompleted(true);
+			} else
+				result.error ( ERR_UNKNOWN, ERR_UNKNOWN, "Failure to open session");
+			return;
+		}
+
 		boolean r = m_flautoPlayer.openPlayer
 		(
 			focus,
@@ -174,12 +488,31 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 
 	void closePlayer ( final MethodCall call, final Result result )
 	{
+		detachFromBus();
+		stopFeeder();
+		TauSoundPlayerPool pool = TauSoundPlayerManager.TauSoundPlayerPlugin.playerPool;
+		if (m_pooled && pool != null)
+		{
+			result.success ( getPlayerState() );
+			closePlayerCompleted(true);
+			// From now, the events of this engine are not sent to Dart
+			releaseSession();
+			m_subscriptionDuration = 0;
+			m_flautoPlayer.setSubscriptionDuration(0);
+			m_flautoPlayer.stopPlayer();
+			if (pool.release(this))
+				return;
+			m_flautoPlayer.closePlayer();
+			return;
+		}
 		m_flautoPlayer.closePlayer();
 		result.success ( getPlayerState() );
 	}
 
 	void reset(final MethodCall call, final MethodChannel.Result result)
 	{
+		detachFromBus();
+		stopFeeder();
 		m_flautoPlayer.closePlayer();
 		result.success ( getPlayerState() );
 	}
@@ -187,6 +520,9 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 
 	int getPlayerState()
 	{
+		TauSoundMixerBus.Input input = m_busInput;
+		if (input != null) // The engine of an attached player is stopped : the bus plays its data
+			return input.state;
 		return m_flautoPlayer.getPlayerState().ordinal();
 	}
 
@@ -236,27 +572,408 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 			_numChannels = call.argument("numChannels");
 		}
 
+		Integer _ringBufferSize = call.argument("ringBufferSize");
+		Integer _lowWatermark = call.argument("lowWatermark");
+		Integer _highWatermark = call.argument("highWatermark");
+
+		// A buffer uploaded once with registerBuffer
+		String _bufferKey = call.argument("fromBuffer");
+		if (_bufferKey != null && dataBuffer == null)
+		{
+			dataBuffer = TauSoundBufferRegistry.get(_bufferKey);
+			if (dataBuffer == null)
+			{
+				result.error(ERR_UNKNOWN, ERR_UNKNOWN, "Buffer not registered : " + _bufferKey);
+				return;
+			}
+		}
+
+		if (m_busInput != null)
+		{
+			// The data fed to an attached player are played by the mixer bus
+			m_busInput.state = TauSoundMixerBus.PLAYING;
+			result.success(getPlayerState());
+			startPlayerCompleted(true, 0);
+			return;
+		}
+		// A sound already decoded is played from memory
+		String _cacheKey = call.argument("fromCache");
+		boolean explicit = (_cacheKey != null);
+		if (_cacheKey == null)
+			_cacheKey = (_path != null) ? _path : _bufferKey; // A registered buffer and its decoded sound have the same key
+		TauSoundPcmCache.Entry cached = null;
+		if (_cacheKey != null)
+			cached = TauSoundPcmCache.get(_cacheKey, explicit);
+		if (explicit && cached == null) // Never preloaded, or evicted
+		{
+			result.error(ERR_UNKNOWN, ERR_UNKNOWN, "Sound not in the cache : " + _cacheKey);
+			return;
+		}
+		stopFeeder();
+		if (cached != null)
+		{
+			codec = t_CODEC.values()[TauSoundPcmCache.CODEC_PCM16];
+			_path = null;
+			dataBuffer = null;
+			_numChannels = cached.numChannels;
+			_sampleRate = cached.sampleRate;
+		}
+
+		// The fed data can be compressed : 1 = μ-law, 2 = A-law, 3 = IMA ADPCM. `sampleRate` and `numChannels` are those of the decoded PCM
+		Integer _streamCodec = call.argument("streamCodec");
+		if (_streamCodec != null && _streamCodec != TauSoundStreamCodec.PCM16 && cached == null && _path == null && dataBuffer == null)
+		{
+			try
+			{
+				m_streamDecoder = new TauSoundStreamCodec(_streamCodec, _numChannels);
+			} catch (IllegalArgumentException e)
+			{
+				result.error(ERR_UNKNOWN, ERR_UNKNOWN, e.getMessage());
+				return;
+			}
+			// The decoder consumes its input whatever the engine accepts : the output always goes through a ring
+			if (_ringBufferSize == null || _ringBufferSize <= 0)
+				_ringBufferSize = DEFAULT_RING_SIZE;
+		}
+
+		// The fed data can be converted to another format, by default the native rate of the device
+		Boolean _resample = call.argument("resample");
+		if (_resample != null && _resample && cached == null && _path == null && dataBuffer == null)
+		{
+			Integer _outputSampleRate = call.argument("outputSampleRate");
+			Integer _outputNumChannels = call.argument("outputNumChannels");
+			Integer _quality = call.argument("resampleQuality");
+			TauSoundResampler resampler = new TauSoundResampler
+				(
+					_sampleRate,
+					_numChannels,
+					(_outputSampleRate != null) ? _outputSampleRate : deviceSampleRate(),
+					(_outputNumChannels != null) ? _outputNumChannels : _numChannels,
+					(_quality != null) ? _quality : TauSoundResampler.QUALITY_MEDIUM
+				);
+			if (!resampler.isIdentity())
+			{
+				m_resampler = resampler;
+				_sampleRate = resampler.outRate;
+				_numChannels = resampler.outChannels;
+				// The resampler consumes its input whatever the engine accepts : the output always goes through a ring
+				if (_ringBufferSize == null || _ringBufferSize <= 0)
+					_ringBufferSize = DEFAULT_RING_SIZE;
+			}
+		}
+
+		// A local pcm16 file is streamed from a memory mapping, without being read on the heap.
+		// A cached sound is streamed the same way from its PCM : its duration, progress and seek are those of a mapped file
+		Boolean _memoryMap = call.argument("memoryMap");
+		TauSoundMappedSource mapped = null;
+		if (cached != null)
+			mapped = new TauSoundMappedSource(ByteBuffer.wrap(cached.pcm), cached.sampleRate, cached.numChannels);
+		else if (_memoryMap == null || _memoryMap)
+			mapped = mapSound(codec, _path, _sampleRate, _numChannels);
+		if (mapped != null)
+		{
+			codec = t_CODEC.values()[TauSoundPcmCache.CODEC_PCM16];
+			_path = null;
+			_numChannels = mapped.numChannels;
+			_sampleRate = mapped.sampleRate;
+			m_mapped = mapped; // Before the engine sends startPlayerCompleted
+		}
+
 		try {
 			boolean b = m_flautoPlayer.startPlayer(codec, _path, dataBuffer, _numChannels, _sampleRate, _blockSize);
 			if (b)
 			{
+				if (mapped != null)
+				{
+					startMappedSound(mapped, _blockSize);
+				} else
+				if (_ringBufferSize != null && _ringBufferSize > 0 && _path == null && dataBuffer == null)
+				{
+					startRing(_ringBufferSize, _lowWatermark, _highWatermark, _blockSize);
+				}
 				result.success(getPlayerState());
 			}
 			else
+			{
+				m_mapped = null;
+				m_resampler = null;
+				m_streamDecoder = null;
 				result.error(ERR_UNKNOWN, ERR_UNKNOWN, "startPlayer() error");
+			}
 		} catch (Exception e) {
+			m_mapped = null;
+			m_resampler = null;
+			m_streamDecoder = null;
 			log(t_LOG_LEVEL.ERROR,  "startPlayer() exception");
 			result.error(ERR_UNKNOWN, ERR_UNKNOWN, e.getMessage());
 		}
 	}
 
+	/**
+	 * Decodes a sound and stores it in the PCM cache. Returns its cache key (the path, or a hash of the data buffer).
+	 * The decoding is done on a worker thread.
+	 */
+	public void preloadSound ( final MethodCall call, final Result result )
+	{
+		final Integer _codec = call.argument("codec");
+		final String _path = call.argument("fromURI");
+		final String _bufferKey = call.argument("fromBuffer");
+		final byte[] dataBuffer = (_bufferKey != null) ? TauSoundBufferRegistry.get(_bufferKey) : (byte[])call.argument("fromDataBuffer");
+		final Integer _sampleRate = call.argument("sampleRate");
+		final Integer _numChannels = call.argument("numChannels");
+		if (_bufferKey != null && dataBuffer == null)
+		{
+			result.error(ERR_UNKNOWN, ERR_UNKNOWN, "Buffer not registered : " + _bufferKey);
+			return;
+		}
+		final Result r = new TauSoundMainThreadResult(result);
+		TauSoundSerialExecutor.workers.execute(new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				try
+				{
+					String key = (_path != null) ? _path : (_bufferKey != null) ? _bufferKey : TauSoundPcmCache.keyOf(dataBuffer);
+					if (TauSoundPcmCache.get(key, false) == null)
+					{
+						TauSoundPcmCache.Entry entry = TauSoundPcmCache.decode
+						(
+							(_codec != null) ? _codec : 0,
+							_path,
+							dataBuffer,
+							(_sampleRate != null) ? _sampleRate : 16000,
+							(_numChannels != null) ? _numChannels : 1
+						);
+						if (!TauSoundPcmCache.put(key, entry))
+						{
+							r.error(ERR_UNKNOWN, ERR_UNKNOWN, "Sound too large for the cache : " + entry.pcm.length + " bytes");
+							return;
+						}
+					}
+					r.success(key);
+				} catch (Exception e)
+				{
+					log(t_LOG_LEVEL.ERROR, "preloadSound() exception");
+					r.error(ERR_UNKNOWN, ERR_UNKNOWN, e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Starts the polyphonic effects mode : the engine plays one stereo pcm16 stream,
+	 * where up to `maxVoices` cached sounds are mixed.
+	 */
+	public void startEffects ( final MethodCall call, final Result result )
+	{
+		Integer _maxVoices = call.argument("maxVoices");
+		Integer _sampleRate = call.argument("sampleRate");
+		Integer _blockSize = call.argument("blockSize");
+		int sampleRate = (_sampleRate != null) ? _sampleRate : 48000;
+		int blockSize = (_blockSize != null) ? _blockSize : 4096;
+
+		stopFeeder();
+		try
+		{
+			boolean b = m_flautoPlayer.startPlayer(t_CODEC.values()[TauSoundPcmCache.CODEC_PCM16], null, null, TauSoundEffects.NUM_CHANNELS, sampleRate, blockSize);
+			if (!b)
+			{
+				result.error(ERR_UNKNOWN, ERR_UNKNOWN, "startEffects() error");
+				return;
+			}
+			m_effects = new TauSoundEffects(m_flautoPlayer, (_maxVoices != null) ? _maxVoices : 8, sampleRate, blockSize, "TauSoundEffects-" + slotNo);
+			m_effects.start();
+			result.success(getPlayerState());
+		} catch (Exception e)
+		{
+			log(t_LOG_LEVEL.ERROR, "startEffects() exception");
+			result.error(ERR_UNKNOWN, ERR_UNKNOWN, e.getMessage());
+		}
+	}
+
+	/**
+	 * Plays a sound of the PCM cache on a free voice. Returns the voice id, or -1 if all the voices are busy.
+	 */
+	public void playVoice ( final MethodCall call, final Result result )
+	{
+		String key = call.argument("key");
+		Double gain = call.argument("gain");
+		Double pan = call.argument("pan");
+		Boolean loop = call.argument("loop");
+		TauSoundPcmCache.Entry entry = TauSoundPcmCache.get(key);
+		if (m_effects == null || entry == null)
+		{
+			result.error(ERR_UNKNOWN, ERR_UNKNOWN, (m_effects == null) ? "Effects mode not started" : "Sound not preloaded");
+			return;
+		}
+		int id = m_effects.playVoice(entry, (gain != null) ? gain : 1.0, (pan != null) ? pan : 0.0, (loop != null) && loop);
+		result.success(id);
+	}
+
+	public void stopVoice ( final MethodCall call, final Result result )
+	{
+		Integer voice = call.argument("voice");
+		if (m_effects != null)
+		{
+			if (voice != null)
+				m_effects.stopVoice(voice);
+			else
+				m_effects.stopAllVoices();
+		}
+		result.success(getPlayerState());
+	}
+
+// =============================================================  mixer bus ==============================================================
+
+	/**
+	 * Called on the slot thread of an attached player when the host closes the bus
+	 */
+	void onBusClosed(TauSoundMixerBus.Input input)
+	{
+		if (m_busInput != input) // Detached, or attached again to a new bus, in the meantime
+			return;
+		m_busInput = null;
+		m_ring = null;
+	}
+
+	/**
+	 * This player becomes the host of the mixer bus : its engine plays the mix of all the attached players.
+	 */
+	public void openMixerBus ( final MethodCall call, final Result result )
+	{
+		Integer _sampleRate = call.argument("sampleRate");
+		Integer _blockSize = call.argument("blockSize");
+		int sampleRate = (_sampleRate != null) ? _sampleRate : 48000;
+		int blockSize = (_blockSize != null) ? _blockSize : 4096;
+		TauSoundPlayerManager manager = TauSoundPlayerManager.TauSoundPlayerPlugin;
+		if (manager.mixerBus != null)
+		{
+			result.error(ERR_UNKNOWN, ERR_UNKNOWN, "The mixer bus is already opened");
+			return;
+		}
+
+		stopFeeder();
+		try
+		{
+			boolean b = m_flautoPlayer.startPlayer(t_CODEC.values()[TauSoundPcmCache.CODEC_PCM16], null, null, TauSoundMixerBus.NUM_CHANNELS, sampleRate, blockSize);
+			if (!b)
+			{
+				result.error(ERR_UNKNOWN, ERR_UNKNOWN, "openMixerBus() error");
+				return;
+			}
+			m_hostedBus = new TauSoundMixerBus(m_flautoPlayer, sampleRate, blockSize, "TauSoundMixerBus");
+			manager.mixerBus = m_hostedBus;
+			m_hostedBus.start();
+			result.success(getPlayerState());
+		} catch (Exception e)
+		{
+			log(t_LOG_LEVEL.ERROR, "openMixerBus() exception");
+			result.error(ERR_UNKNOWN, ERR_UNKNOWN, e.getMessage());
+		}
+	}
+
+	public void closeMixerBus ( final MethodCall call, final Result result )
+	{
+		closeMixerBus();
+		m_flautoPlayer.stopPlayer();
+		result.success(getPlayerState());
+	}
+
+	void closeMixerBus()
+	{
+		if (m_hostedBus == null)
+			return;
+		m_hostedBus.stop();
+		for (final TauSoundMixerBus.Input input : m_hostedBus.inputs)
+		{
+			// The fields of an attached player are only written by its own slot thread
+			getPlugin().runOnSlot(input.player.slotNo, new Runnable()
+			{
+				@Override
+				public void run ()
+				{
+					input.player.onBusClosed(input);
+				}
+			});
+		}
+		TauSoundPlayerManager.TauSoundPlayerPlugin.mixerBus = null;
+		m_hostedBus = null;
+	}
+
+	/**
+	 * From now, the data fed to this player (pcm16, at the bus sample rate) are mixed by the bus.
+	 * The player is then stopped : startPlayer, pausePlayer, resumePlayer and stopPlayer only change what the bus does with its ring.
+	 */
+	public void attachToBus ( final MethodCall call, final Result result )
+	{
+		TauSoundMixerBus bus = TauSoundPlayerManager.TauSoundPlayerPlugin.mixerBus;
+		if (bus == null || m_hostedBus != null)
+		{
+			result.error(ERR_UNKNOWN, ERR_UNKNOWN, "No mixer bus to attach to");
+			return;
+		}
+		Integer _ringBufferSize = call.argument("ringBufferSize");
+		Integer _numChannels = call.argument("numChannels");
+		Integer _lowWatermark = call.argument("lowWatermark");
+		Integer _highWatermark = call.argument("highWatermark");
+		int ringSize = (_ringBufferSize != null) ? _ringBufferSize : 65536;
+
+		stopFeeder();
+		m_flautoPlayer.stopPlayer();
+		m_flow = FLOW_IDLE; // Before the bus sees the new input
+		m_busInput = bus.attach(this, ringSize, (_numChannels != null) ? _numChannels : 1);
+		m_ring = m_busInput.ring;
+		m_highWatermark = (_highWatermark != null) ? Math.min(_highWatermark, ringSize) : ringSize / 2;
+		m_lowWatermark = (_lowWatermark != null) ? Math.min(_lowWatermark, m_highWatermark) : ringSize / 4;
+		m_needSomeFoodArmed.set(true);
+		result.success(getPlayerState());
+	}
+
+	public void detachFromBus ( final MethodCall call, final Result result )
+	{
+		detachFromBus();
+		result.success(getPlayerState());
+	}
+
+	void detachFromBus()
+	{
+		TauSoundMixerBus bus = TauSoundPlayerManager.TauSoundPlayerPlugin.mixerBus;
+		if (m_busInput == null)
+			return;
+		if (bus != null)
+			bus.detach(this);
+		m_busInput = null;
+		m_ring = null;
+	}
+
+	public void setBusMute ( final MethodCall call, final Result result )
+	{
+		Boolean mute = call.argument("mute");
+		if (m_busInput != null)
+			m_busInput.mute = (mute != null) && mute;
+		result.success(getPlayerState());
+	}
+
+	public void setBusSolo ( final MethodCall call, final Result result )
+	{
+		Boolean solo = call.argument("solo");
+		if (m_busInput != null)
+			m_busInput.solo = (solo != null) && solo;
+		result.success(getPlayerState());
+	}
+
+//========================================================================================================================================
+
 	public void feed ( final MethodCall call, final Result result )
 	{
 		try
 		{
 			byte[] data = call.argument ( "data" );
 
-			int ln = m_flautoPlayer.feed(data);
+			int ln = feedChunk(data, 0, data.length);
+			if (m_feeder != null)
+				m_feeder.signal();
 			assert(ln >= 0);
 			result.success (ln);
 		} catch (Exception e)
@@ -268,8 +985,241 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 
 
 
+	/**
+	 * Feeds several chunks with only one channel call.
+	 * The chunks are either a list of buffers ("chunks"), or one buffer ("data") with the start offset of each chunk ("offsets").
+	 * Returns the number of bytes accepted for each chunk. When a chunk is not completely accepted, the following ones are not fed.
+	 */
+	public void feedBatch ( final MethodCall call, final Result result )
+	{
+		try
+		{
+			List<byte[]> chunks = call.argument ( "chunks" );
+			byte[] data = call.argument ( "data" );
+			int[] offsets = toIntArray ( call.argument ( "offsets" ) );
+			String error = checkBatch ( chunks, data, offsets );
+			if (error != null)
+			{
+				result.error ( ERR_UNKNOWN, ERR_UNKNOWN, error );
+				return;
+			}
+
+			int nbChunks = (chunks != null) ? chunks.size() : offsets.length;
+			List<Integer> accepted = new ArrayList<Integer>(nbChunks);
+			boolean full = false;
+			for (int i = 0; i < nbChunks; ++i)
+			{
+				byte[] buf;
+				int offset;
+				int length;
+				if (chunks != null)
+				{
+					buf = chunks.get(i);
+					offset = 0;
+					length = buf.length;
+				} else
+				{
+					buf = data;
+					offset = offsets[i];
+					length = ((i + 1 < nbChunks) ? offsets[i + 1] : data.length) - offset;
+				}
+				int ln = 0;
+				if (!full)
+				{
+					ln = feedChunk(buf, offset, length);
+					full = (ln < length);
+				}
+				accepted.add(ln);
+			}
+			if (m_feeder != null)
+				m_feeder.signal();
+			result.success (accepted);
+		} catch (Exception e)
+		{
+			log(t_LOG_LEVEL.ERROR,  "feedBatch() exception" );
+			result.error ( ERR_UNKNOWN, ERR_UNKNOWN, e.getMessage () );
+		}
+	}
+
+	/**
+	 * Returns why the arguments of feedBatch are not valid, or null if they are
+	 */
+	static String checkBatch ( List<byte[]> chunks, byte[] data, int[] offsets )
+	{
+		if (chunks != null)
+		{
+			for (byte[] chunk : chunks)
+			{
+				if (chunk == null)
+					return "feedBatch() : null chunk";
+			}
+			return null;
+		}
+		if (data == null || offsets == null)
+			return "feedBatch() needs either `chunks`, or `data` and `offsets`";
+		for (int i = 0; i < offsets.length; ++i)
+		{
+			if (offsets[i] < 0 || offsets[i] > data.length || (i > 0 && offsets[i] < offsets[i - 1]))
+				return "feedBatch() : the offsets must be ascending, and inside `data`";
+		}
+		return null;
+	}
+
+	int feedChunk ( byte[] data, int offset, int length ) throws Exception
+	{
+		if (m_streamDecoder != null)
+			return feedDecoded(data, offset, length);
+		return feedPcm(data, offset, length);
+	}
+
+	/**
+	 * Decodes a compressed chunk, converts it if needed, and writes it in the ring (startPlayer always gives one to a stream codec).
+	 * Only what fits in the ring is decoded. Returns the number of compressed bytes accepted.
+	 */
+	int feedDecoded ( byte[] data, int offset, int length ) throws Exception
+	{
+		TauSoundStreamCodec decoder = m_streamDecoder;
+		TauSoundRingBuffer ring = m_ring;
+		int room = writePending(ring) ? ring.free() : 0;
+		if (m_resampler != null)
+			room = m_resampler.inputSizeFor(room);
+		int accepted = Math.min(length, decoder.inputSizeFor(room));
+		if (accepted > 0)
+		{
+			int size = decoder.decodedSize(accepted);
+			if (m_decodeBuffer.length < size)
+				m_decodeBuffer = new byte[Math.max(size, 2 * m_decodeBuffer.length)];
+			int n = decoder.decode(data, offset, accepted, m_decodeBuffer, 0);
+			if (m_resampler != null)
+				writeConverted(ring, m_decodeBuffer, 0, n);
+			else
+				writeConsumed(ring, m_decodeBuffer, n);
+		}
+		onRingWritten(ring, accepted == 0 && length > 0); // A refused chunk arms needSomeFood
+		if (accepted < length)
+			metrics.overruns.increment();
+		metrics.bytesFed.add(accepted);
+		return accepted;
+	}
+
+	int feedPcm ( byte[] data, int offset, int length ) throws Exception
+	{
+		if (m_resampler != null)
+			return feedConverted(data, offset, length);
+		TauSoundRingBuffer ring = m_ring;
+		if (ring != null)
+		{
+			int ln = ring.write(data, offset, length);
+			onRingWritten(ring, ln == 0 && length > 0);
+			if (ln < length)
+				metrics.overruns.increment();
+			metrics.bytesFed.add(ln);
+			return ln;
+		}
+		byte[] chunk = (offset == 0 && length == data.length) ? data : Arrays.copyOfRange(data, offset, offset + length);
+		int ln = m_flautoPlayer.feed(chunk);
+		metrics.bytesFed.add(ln);
+		return ln;
+	}
+
+	/**
+	 * Converts a chunk to the output format, and writes it in the ring (startPlayer always gives one to a resampler).
+	 * Only what fits in the ring is converted. Returns the number of input bytes accepted.
+	 */
+	int feedConverted ( byte[] data, int offset, int length ) throws Exception
+	{
+		TauSoundResampler resampler = m_resampler;
+		TauSoundRingBuffer ring = m_ring;
+		int room = writePending(ring) ? ring.free() : 0;
+		int accepted = Math.min(length, resampler.inputSizeFor(room));
+		if (accepted > 0)
+			writeConverted(ring, data, offset, accepted);
+		onRingWritten(ring, accepted == 0 && length > 0);
+		if (accepted < length)
+			metrics.overruns.increment();
+		metrics.bytesFed.add(accepted);
+		return accepted;
+	}
+
+	/**
+	 * Converts all of `length` bytes, and writes the result with writeConsumed()
+	 */
+	void writeConverted ( TauSoundRingBuffer ring, byte[] data, int offset, int length )
+	{
+		int size = m_resampler.outputSize(length);
+		if (m_convertBuffer.length < size)
+			m_convertBuffer = new byte[Math.max(size, 2 * m_convertBuffer.length)];
+		int n = m_resampler.convert(data, offset, length, m_convertBuffer, 0);
+		writeConsumed(ring, m_convertBuffer, n);
+	}
+
+	/**
+	 * Writes converted data in the ring. Their input is already consumed : what does not fit is kept, and written before the next chunk.
+	 */
+	void writeConsumed ( TauSoundRingBuffer ring, byte[] data, int length )
+	{
+		int w = ring.write(data, 0, length);
+		int rest = length - w;
+		if (rest == 0)
+			return;
+		if (m_pending.length < m_pendingLength + rest)
+			m_pending = new byte[Math.max(m_pendingLength + rest, 2 * m_pending.length)];
+		System.arraycopy(data, w, m_pending, m_pendingLength, rest);
+		m_pendingLength += rest;
+	}
+
+	/**
+	 * Writes what writeConsumed() kept. Returns false if some of it still does not fit : then no new chunk is accepted.
+	 */
+	boolean writePending ( TauSoundRingBuffer ring )
+	{
+		if (m_pendingLength == 0)
+			return true;
+		int w = ring.write(m_pending, 0, m_pendingLength);
+		m_pendingLength -= w;
+		System.arraycopy(m_pending, w, m_pending, 0, m_pendingLength);
+		return m_pendingLength == 0;
+	}
+
+	/**
+	 * The native output sample rate of the device, 48 kHz if unknown
+	 */
+	static int deviceSampleRate ()
+	{
+		if (s_deviceSampleRate == 0)
+		{
+			int rate = 48000;
+			try
+			{
+				AudioManager am = (AudioManager)Flauto.androidContext.getSystemService(Context.AUDIO_SERVICE);
+				String property = am.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE);
+				if (property != null)
+					rate = Integer.parseInt(property);
+			} catch (Exception e)
+			{
+			}
+			s_deviceSampleRate = rate;
+		}
+		return s_deviceSampleRate;
+	}
+
+	static int[] toIntArray ( Object x )
+	{
+		if (x == null || x instanceof int[])
+			return (int[])x;
+		List<?> l = (List<?>)x;
+		int[] r = new int[l.size()];
+		for (int i = 0; i < r.length; ++i)
+			r[i] = ((Number)l.get(i)).intValue();
+		return r;
+	}
+
+
 	public void stopPlayer ( final MethodCall call, final Result result )
 	{
+		if (m_busInput != null)
+			m_busInput.state = TauSoundMixerBus.STOPPED;
+		stopFeeder();
 		m_flautoPlayer.stopPlayer();
 		result.success ( getPlayerState());
 	}
@@ -279,13 +1229,21 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 	public void isDecoderSupported ( final MethodCall call, final Result result )
 	{
 		int     _codec = call.argument ( "codec" );
-		boolean b      = m_flautoPlayer.isDecoderSupported(t_CODEC.values()[_codec]);
+		boolean b      = TauSoundCodecCapabilities.isDecoderSupported(_codec); // Asked to the engine only once
 		result.success (b );
 
 	}
 
 	public void pausePlayer ( final MethodCall call, final Result result )
 	{
+		if (m_busInput != null)
+		{
+			if (m_busInput.state == TauSoundMixerBus.PLAYING)
+				m_busInput.state = TauSoundMixerBus.PAUSED;
+			result.success ( getPlayerState());
+			pausePlayerCompleted(true);
+			return;
+		}
 		try
 		{
 			if (m_flautoPlayer.pausePlayer())
@@ -303,6 +1261,14 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 
 	public void resumePlayer ( final MethodCall call, final Result result )
 	{
+		if (m_busInput != null)
+		{
+			if (m_busInput.state == TauSoundMixerBus.PAUSED)
+				m_busInput.state = TauSoundMixerBus.PLAYING;
+			result.success ( getPlayerState());
+			resumePlayerCompleted(true);
+			return;
+		}
 		try
 		{
 			if (m_flautoPlayer.resumePlayer())
@@ -321,16 +1287,68 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 	{
 		int millis = call.argument ( "duration" ) ;
 
-		m_flautoPlayer.seekToPlayer(millis);
+		TauSoundMappedSource mapped = m_mapped;
+		if (mapped != null) // The engine plays a stream : the read position in the mapping moves
+		{
+			try
+			{
+				seekMapped(mapped, millis);
+			} catch (Exception e)
+			{
+				log(t_LOG_LEVEL.ERROR, "seekToPlayer() exception");
+				result.error(ERR_UNKNOWN, ERR_UNKNOWN, e.getMessage());
+				return;
+			}
+		} else
+			m_flautoPlayer.seekToPlayer(millis);
 		result.success (getPlayerState() );
 	}
 
+	/**
+	 * The engine has no flush : what it has buffered from the old position is dropped by restarting its stream.
+	 * The feeder is stopped first, so that it does not see the end of the sound. A paused player stays paused.
+	 * The engine sends its stop, start and pause callbacks for the restart : Dart did not ask for them, so they are not forwarded.
+	 */
+	void seekMapped(TauSoundMappedSource mapped, long millis) throws Exception
+	{
+		int state = getPlayerState();
+		TauSoundFeeder feeder = m_feeder;
+		if (state == t_PLAYER_STATE.PLAYER_IS_STOPPED.ordinal() || feeder == null)
+		{
+			mapped.seek(millis);
+			return;
+		}
+		m_seeking = true;
+		try
+		{
+			feeder.running = false;
+			m_flautoPlayer.stopPlayer(); // Unblocks feed()
+			feeder.stop();
+			mapped.seek(millis);
+			m_restarting = true;
+			if (!m_flautoPlayer.startPlayer(t_CODEC.values()[TauSoundPcmCache.CODEC_PCM16], null, null, mapped.numChannels, mapped.sampleRate, feeder.block.length))
+			{
+				m_restarting = false;
+				throw new Exception("Failure to restart the stream");
+			}
+			if (state == t_PLAYER_STATE.PLAYER_IS_PAUSED.ordinal())
+				m_flautoPlayer.pausePlayer();
+		} finally
+		{
+			m_seeking = false;
+		}
+		startMappedSound(mapped, feeder.block.length);
+	}
+
 	public void setVolume ( final MethodCall call, final Result result )
 	{
 		try
 		{
 			double volume = call.argument("volume");
-			m_flautoPlayer.setVolume(volume);
+			if (m_busInput != null)
+				m_busInput.volume = (float)volume;
+			else
+				m_flautoPlayer.setVolume(volume);
 			result.success(getPlayerState());
 		} catch(Exception e)
 		{
@@ -359,7 +1377,9 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 		if ( call.argument ( "duration" ) != null )
 		{
 			int duration = call.argument("duration");
-			m_flautoPlayer.setSubscriptionDuration(duration);
+			m_subscriptionDuration = duration;
+			// The shared progress ticker replaces the engine timer
+			m_flautoPlayer.setSubscriptionDuration(getPlugin().isTickerRunning() ? 0 : duration);
 		}
 		result.success ( getPlayerState());
 	}
@@ -379,9 +1399,22 @@ public class TauSoundPlayer extends TauSoundSession implements  FlautoPlayerCall
 		result.success (getPlayerState() );
 	}
 
-	void getProgress ( final MethodCall call, final Result result )
+	Map<String, Object> getProgress ()
 	{
 		Map<String, Object> dic = m_flautoPlayer.getProgress();
+		TauSoundMappedSource mapped = m_mapped;
+		if (mapped != null)
+		{
+			Object progress = dic.get("progress");
+			dic.put("progress", mapped.positionMs((progress != null) ? ((Number)progress).longValue() : 0));
+			dic.put("duration", mapped.durationMs());
+		}
+		return dic;
+	}
+
+	void getProgress ( final MethodCall call, final Result result )
+	{
+		Map<String, Object> dic = getProgress();
 		dic.put ( "slotNo", slotNo);
 		result.success(dic);
 	}
@@ -34,6 +34,8 @@ class TauSoundPlayerManager extends TauSoundManager
         final static String TAG = "FlutterPlayerPlugin";
         static Context            androidContext;
         static TauSoundPlayerManager TauSoundPlayerPlugin; // singleton
+        TauSoundPlayerPool playerPool; // Not null if a pool of pre-opened players is configured in the manifest
+        volatile TauSoundMixerBus mixerBus; // Not null when a player hosts the mixer bus. Read by the slot threads
 
 
         public static void attachFlautoPlayer (
@@ -44,13 +46,51 @@ class TauSoundPlayerManager extends TauSoundManager
                         TauSoundPlayerPlugin = new TauSoundPlayerManager();
                 }
                 MethodChannel channel = new MethodChannel ( messenger, "xyz.canardoux.tau_player" );
-                TauSoundPlayerPlugin.init(channel);
+                TauSoundPlayerPlugin.init(messenger, channel);
                 channel.setMethodCallHandler ( TauSoundPlayerPlugin );
                 androidContext = ctx;
+
+                if ( TauSoundPlayerPlugin.playerPool == null )
+                {
+                        int poolSize = TauSoundPlayerPool.getConfiguredSize ( ctx );
+                        if ( poolSize > 0 )
+                        {
+                                final TauSoundPlayerPool pool = new TauSoundPlayerPool ( poolSize );
+                                TauSoundPlayerPlugin.playerPool = pool;
+                                // Do not delay the plugin attachment
+                                mainHandler.post ( new Runnable()
+                                {
+                                        @Override
+                                        public void run ()
+                                        {
+                                                pool.warm ();
+                                        }
+                                } );
+                        }
+                }
         }
 
 
 
+        /**
+         * The pooled players which were in use have been closed by the reset : the pool is filled again
+         */
+        @Override
+        void onPluginReset ()
+        {
+                final TauSoundPlayerPool pool = playerPool;
+                if ( pool == null )
+                        return;
+                mainHandler.post ( new Runnable()
+                {
+                        @Override
+                        public void run ()
+                        {
+                                pool.warm ();
+                        }
+                } );
+        }
+
         TauSoundPlayerManager getManager ()
         {
                 return TauSoundPlayerPlugin;
@@ -61,21 +101,145 @@ class TauSoundPlayerManager extends TauSoundManager
         {
                 switch ( call.method )
                 {
+                        case "getCodecCapabilities":
+                        {
+                                TauSoundCodecCapabilities.getCodecCapabilities ( result );
+                                return;
+                        }
+
                         case "resetPlugin":
                         {
                                 resetPlugin(call, result);
                                 return;
                         }
+
+                        case "setExecutionMode":
+                        {
+                                setExecutionMode(call, result);
+                                return;
+                        }
+
+                        case "getMetrics":
+                        {
+                                getMetrics(call, result);
+                                return;
+                        }
+
+                        case "setProgressTicker":
+                        {
+                                setProgressTicker(call, result, "xyz.canardoux.tau_player/progress", "position", "duration", null);
+                                return;
+                        }
+
+                        case "setPcmCacheBudget":
+                        {
+                                Integer budget = call.argument ( "budget" );
+                                TauSoundPcmCache.setBudget ( ( budget != null ) ? budget : TauSoundPcmCache.DEFAULT_BUDGET );
+                                result.success ( 0 );
+                                return;
+                        }
+
+                        case "getPcmCacheStats":
+                        {
+                                result.success ( TauSoundPcmCache.getStats () );
+                                return;
+                        }
+
+                        case "registerBuffer":
+                        {
+                                registerBuffer(call, result);
+                                return;
+                        }
+
+                        case "isBufferRegistered":
+                        {
+                                String key = call.argument ( "key" );
+                                result.success ( key != null && TauSoundBufferRegistry.contains ( key ) );
+                                return;
+                        }
+
+                        case "releaseBuffer":
+                        {
+                                String key = call.argument ( "key" );
+                                if ( key != null )
+                                        TauSoundBufferRegistry.release ( key );
+                                result.success ( 0 );
+                                return;
+                        }
+
+                        case "setBufferRegistryBudget":
+                        {
+                                Integer budget = call.argument ( "budget" );
+                                TauSoundBufferRegistry.setBudget ( ( budget != null ) ? budget : TauSoundBufferRegistry.DEFAULT_BUDGET );
+                                result.success ( 0 );
+                                return;
+                        }
+
+                        case "getBufferRegistryStats":
+                        {
+                                result.success ( TauSoundBufferRegistry.getStats () );
+                                return;
+                        }
+
+                        case "setCompactEvents":
+                        {
+                                setCompactEvents(call, result, "xyz.canardoux.tau_player/events");
+                                return;
+                        }
                 }
 
+                // The slots are always managed on the platform thread
                 TauSoundPlayer aPlayer = (TauSoundPlayer)getSession(call);
+                if ( call.method.equals ( "openPlayer" ) )
+                {
+                        //int withUI = call.argument("withUI");
+                        aPlayer = ( playerPool != null ) ? playerPool.acquire () : null;
+                        if ( aPlayer == null )
+                                aPlayer = new TauSoundPlayer (call );
+                        initSession( call, aPlayer);
+                }
+
+                final TauSoundPlayer player = aPlayer;
+                execute ( call, result, new SlotCommand()
+                {
+                        @Override
+                        public void run ( Result r )
+                        {
+                                dispatch ( call, r, player );
+                        }
+                } );
+        }
+
+        /**
+         * Stores a data buffer once, and returns its key (the SHA-1 of its content) for `startPlayer(fromBuffer:)`.
+         * The buffer is hashed on a worker thread.
+         */
+        void registerBuffer ( final MethodCall call, final Result result )
+        {
+                final byte[] data = call.argument ( "data" );
+                final Result r = new TauSoundMainThreadResult ( result );
+                TauSoundSerialExecutor.workers.execute ( new Runnable()
+                {
+                        @Override
+                        public void run ()
+                        {
+                                try
+                                {
+                                        r.success ( TauSoundBufferRegistry.register ( data ) );
+                                } catch ( Exception e )
+                                {
+                                        r.error ( "registerBuffer", "registerBuffer", e.getMessage () );
+                                }
+                        }
+                } );
+        }
+
+        void dispatch ( final MethodCall call, final Result result, TauSoundPlayer aPlayer )
+        {
                 switch ( call.method )
                 {
                         case "openPlayer":
                         {
-                                //int withUI = call.argument("withUI");
-                                aPlayer = new TauSoundPlayer (call );
-                                initSession( call, aPlayer);
                                 aPlayer.openPlayer ( call, result );
 
                         }
@@ -205,6 +369,72 @@ class TauSoundPlayerManager extends TauSoundManager
                         }
                         break;
 
+                        case "preloadSound":
+                        {
+                                aPlayer.preloadSound ( call, result );
+                        }
+                        break;
+
+                        case "startEffects":
+                        {
+                                aPlayer.startEffects ( call, result );
+                        }
+                        break;
+
+                        case "playVoice":
+                        {
+                                aPlayer.playVoice ( call, result );
+                        }
+                        break;
+
+                        case "stopVoice":
+                        {
+                                aPlayer.stopVoice ( call, result );
+                        }
+                        break;
+
+                        case "openMixerBus":
+                        {
+                                aPlayer.openMixerBus ( call, result );
+                        }
+                        break;
+
+                        case "closeMixerBus":
+                        {
+                                aPlayer.closeMixerBus ( call, result );
+                        }
+                        break;
+
+                        case "attachToBus":
+                        {
+                                aPlayer.attachToBus ( call, result );
+                        }
+                        break;
+
+                        case "detachFromBus":
+                        {
+                                aPlayer.detachFromBus ( call, result );
+                        }
+                        break;
+
+                        case "setBusMute":
+                        {
+                                aPlayer.setBusMute ( call, result );
+                        }
+                        break;
+
+                        case "setBusSolo":
+                        {
+                                aPlayer.setBusSolo ( call, result );
+                        }
+                        break;
+
+                        case "feedBatch":
+                        {
+                                aPlayer.feedBatch ( call, result );
+                        }
+                        break;
+
                         case "setLogLevel":
                         {
                                 aPlayer.setLogLevel ( call, result );
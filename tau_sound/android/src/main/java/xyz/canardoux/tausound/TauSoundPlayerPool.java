@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * A pool of idle players whose engine is already opened.
+ * `openPlayer` takes a player from the pool, and `closePlayer` gives it back.
+ *
+ * The pool is opt-in : its size is read from the application manifest
+ *
+ *     <meta-data android:name="xyz.canardoux.tausound.playerPoolSize" android:value="4" />
+ *
+ * and the players are opened when the plugin is attached.
+ * The pooled players are opened with the first value of each Flauto enum and no audio flags.
+ */
+class TauSoundPlayerPool
+{
+	static final String TAG                = "TauSoundPlayerPool";
+	static final String META_DATA_POOLSIZE = "xyz.canardoux.tausound.playerPoolSize";
+	static int          configuredSize     = -1; // Read once : the manifest does not change while the process runs
+
+	final ArrayDeque<TauSoundPlayer> idle = new ArrayDeque<TauSoundPlayer> ();
+	final int                        capacity;
+
+
+	/* ctor */ TauSoundPlayerPool ( int aCapacity )
+	{
+		capacity = aCapacity;
+	}
+
+	/**
+	 * Returns the pool size configured in the manifest, or 0.
+	 * Only the first call asks the PackageManager, which is a call to the system server.
+	 */
+	static int getConfiguredSize ( Context ctx )
+	{
+		if ( configuredSize >= 0 )
+			return configuredSize;
+		try
+		{
+			ApplicationInfo ai = ctx.getPackageManager ().getApplicationInfo ( ctx.getPackageName (), PackageManager.GET_META_DATA );
+			Bundle metaData = ai.metaData;
+			configuredSize = ( metaData != null ) ? metaData.getInt ( META_DATA_POOLSIZE, 0 ) : 0;
+		} catch ( PackageManager.NameNotFoundException e )
+		{
+			configuredSize = 0;
+		}
+		return configuredSize;
+	}
+
+	/**
+	 * Opens players until the pool is full. Called on the platform thread.
+	 */
+	void warm ()
+	{
+		long start = System.nanoTime ();
+		int n = 0;
+		while ( size () < capacity )
+		{
+			TauSoundPlayer player = new TauSoundPlayer ( null );
+			if ( !player.openPooledEngine () )
+			{
+				Log.e ( TAG, "Cannot open a pooled player" );
+				break;
+			}
+			release ( player );
+			++n;
+		}
+		Log.d ( TAG, "Pool warmed with " + n + " players in " + ( System.nanoTime () - start ) / 1000 + " µs" );
+	}
+
+	synchronized int size ()
+	{
+		return idle.size ();
+	}
+
+	/**
+	 * Returns an idle player, or null if the pool is empty
+	 */
+	synchronized TauSoundPlayer acquire ()
+	{
+		return idle.poll ();
+	}
+
+	/**
+	 * Gives back a player to the pool. Returns false if the pool is full : the caller must close the player.
+	 */
+	synchronized boolean release ( TauSoundPlayer player )
+	{
+		if ( idle.size () >= capacity )
+			return false;
+		idle.push ( player );
+		return true;
+	}
+}
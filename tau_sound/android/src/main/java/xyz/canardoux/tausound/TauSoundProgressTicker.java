@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.StandardMessageCodec;
+
+
+/**
+ * One timer for all the slots of a manager.
+ * At each tick, every active slot is sampled, and only one "progressBatch" message is sent
+ * with the slots whose values have changed since the previous tick.
+ *
+ * The message is sent on its own channel (StandardMessageCodec), named "<manager channel>/progress".
+ * It is a map of parallel arrays : "slotNo" (int[]) and one array per sampled value,
+ * named by the manager (for example "position" and "duration" for the players).
+ * The ticker runs on the platform thread.
+ */
+class TauSoundProgressTicker implements Runnable
+{
+	/**
+	 * The values sampled for one slot. A value whose key is null is not sent.
+	 */
+	static class Sample
+	{
+		long   a;
+		long   b;
+		double c;
+	}
+
+	final TauSoundManager manager;
+	final BasicMessageChannel<Object> channel;
+	final String          keyA;
+	final String          keyB;
+	final String          keyC;
+	final Sample          sample = new Sample ();
+	int                   durationMs;
+	boolean               running = false;
+
+	int[]    slotNos = new int[8];
+	long[]   as      = new long[8];
+	long[]   bs      = new long[8];
+	double[] cs      = new double[8];
+
+
+	/* ctor */ TauSoundProgressTicker ( TauSoundManager aManager, String channelName, String aKeyA, String aKeyB, String aKeyC )
+	{
+		manager = aManager;
+		channel = new BasicMessageChannel<Object> ( manager.messenger, channelName, StandardMessageCodec.INSTANCE );
+		keyA = aKeyA;
+		keyB = aKeyB;
+		keyC = aKeyC;
+	}
+
+	void start ( int aDurationMs )
+	{
+		durationMs = aDurationMs;
+		if ( !running )
+		{
+			running = true;
+			TauSoundManager.mainHandler.postDelayed ( this, durationMs );
+		}
+	}
+
+	void stop ()
+	{
+		running = false;
+		TauSoundManager.mainHandler.removeCallbacks ( this );
+	}
+
+	@Override
+	public void run ()
+	{
+		if ( !running )
+			return;
+		int n = 0;
+		for ( int i = 0; i < manager.slots.highWater (); ++i )
+		{
+			TauSoundSession session = manager.slots.get ( i );
+			if ( session == null || !session.sampleProgress ( sample ) )
+				continue;
+			if ( n == slotNos.length )
+			{
+				slotNos = Arrays.copyOf ( slotNos, 2 * n );
+				as = Arrays.copyOf ( as, 2 * n );
+				bs = Arrays.copyOf ( bs, 2 * n );
+				cs = Arrays.copyOf ( cs, 2 * n );
+			}
+			slotNos[n] = i;
+			as[n] = sample.a;
+			bs[n] = sample.b;
+			cs[n] = sample.c;
+			++n;
+		}
+		if ( n > 0 )
+		{
+			Map<String, Object> dic = new HashMap<String, Object> ();
+			dic.put ( "method", "progressBatch" );
+			dic.put ( "slotNo", Arrays.copyOf ( slotNos, n ) );
+			if ( keyA != null )
+				dic.put ( keyA, Arrays.copyOf ( as, n ) );
+			if ( keyB != null )
+				dic.put ( keyB, Arrays.copyOf ( bs, n ) );
+			if ( keyC != null )
+				dic.put ( keyC, Arrays.copyOf ( cs, n ) );
+			channel.send ( dic );
+		}
+		TauSoundManager.mainHandler.postDelayed ( this, durationMs );
+	}
+}
@@ -20,6 +20,7 @@ package xyz.canardoux.tausound;
 
 import android.media.MediaRecorder;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,13 +35,26 @@ import xyz.canardoux.TauNative.Flauto;
 import xyz.canardoux.TauNative.Flauto.*;
 
 
-public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderCallback
+public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderCallback, TauSoundCoalescer.Sink, TauSoundVad.Listener
 {
 	static final String ERR_UNKNOWN           = "ERR_UNKNOWN";
 	static final String ERR_RECORDER_IS_NULL      = "ERR_RECORDER_IS_NULL";
 	static final String ERR_RECORDER_IS_RECORDING = "ERR_RECORDER_IS_RECORDING";
 	final static String             TAG                = "TauSoundRecorder";
 	FlautoRecorder m_recorder;
+	TauSoundStreamChannel m_streamChannel; // Not null when recording to a binary stream
+	TauSoundCoalescer m_coalescer; // Not null when the recorded data must be grouped in frames
+	TauSoundBufferPool m_bufferPool; // The frames used by m_coalescer
+	volatile long m_progressDuration; // The last progress received while the shared progress ticker runs
+	volatile double m_progressDbPeakLevel;
+	volatile boolean m_progressChanged = false;
+	TauSoundMeter m_meter; // Not null when the recorded data are metered
+	boolean m_meterOnly = false; // The recorded data are metered, but not sent to Dart
+	final TauSoundMeter.Values m_meterValues = new TauSoundMeter.Values();
+	TauSoundWavWriter m_wavWriter; // Not null when a pcm16WAV file is written by the plugin instead of the engine
+	volatile String m_wavPath; // The file of the last recording written by m_wavWriter : the engine does not know it
+	TauSoundVad m_vad; // Not null when only the voiced segments of the stream are sent
+	TauSoundStreamCodec m_streamCodec; // Not null when the stream is compressed before being sent
 
 // =============================================================  callback ===============================================================
 
@@ -55,6 +69,8 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
 	}
 	public void stopRecorderCompleted(boolean success, String url)
 	{
+		if (m_wavPath != null) // Sent by stopRecorder when the WAV file is complete, with its path
+			return;
 		invokeMethodWithString( "stopRecorderCompleted", success, url );
 	}
 	public void pauseRecorderCompleted(boolean success)
@@ -75,6 +91,30 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
 
 	public void updateRecorderProgressDbPeakLevel(double normalizedPeakLevel, long duration)
       {
+	      TauSoundMeter meter = m_meter;
+	      if (meter != null)
+	      {
+		      // The meter values fit neither in a compact record nor in the shared ticker : a metered recorder always sends the map
+		      meter.read(m_meterValues);
+		      Map<String, Object> dic = new HashMap<String, Object>();
+		      dic.put("duration", duration);
+		      dic.put("dbPeakLevel", normalizedPeakLevel);
+		      dic.put("rms", m_meterValues.rms);
+		      dic.put("peak", m_meterValues.peak);
+		      dic.put("truePeak", m_meterValues.truePeak);
+		      dic.put("loudness", m_meterValues.loudness);
+		      invokeMethodWithMap("updateRecorderProgress", true, dic);
+		      return;
+	      }
+	      if (getPlugin().isTickerRunning())
+	      {
+		      m_progressDuration = duration;
+		      m_progressDbPeakLevel = normalizedPeakLevel;
+		      m_progressChanged = true;
+		      return;
+	      }
+	      if (sendCompactEvent(TauSoundEventChannel.EVENT_RECORDER_PROGRESS, duration, 0, normalizedPeakLevel))
+		      return;
 	      Map<String, Object> dic = new HashMap<String, Object>();
 	      dic.put("duration", duration);
 	      dic.put("dbPeakLevel", normalizedPeakLevel);
@@ -82,16 +122,126 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
       }
 
       public void recordingData ( byte[] data)
+      {
+	      metrics.bytesRecorded.add(data.length);
+	      TauSoundMeter meter = m_meter;
+	      if (meter != null)
+	      {
+		      meter.process(data, 0, data.length);
+	      }
+	      TauSoundWavWriter wavWriter = m_wavWriter;
+	      if (wavWriter != null)
+	      {
+		      wavWriter.write(data, 0, data.length);
+		      return;
+	      }
+	      if (m_meterOnly)
+		      return;
+	      TauSoundVad vad = m_vad;
+	      if (vad != null)
+	      {
+		      vad.process(data, 0, data.length);
+		      return;
+	      }
+	      if (m_coalescer != null)
+	      {
+		      m_coalescer.push(data, 0, data.length);
+		      return;
+	      }
+	      deliver(data, 0, data.length);
+      }
+
+      // The voice activity gate always has a coalescer : the voiced frames are copied into pooled frames
+      public void onVoiced ( byte[] data, int offset, int length )
+      {
+	      TauSoundCoalescer coalescer = m_coalescer;
+	      if (coalescer != null)
+		      coalescer.push(data, offset, length);
+      }
+
+      public void onSpeechStart ( long positionMs, long preRollMs )
       {
 	      Map<String, Object> dic = new HashMap<String, Object>();
-	      dic.put("recordingData", data);
-	      invokeMethodWithMap("recordingData", true, dic);
+	      dic.put("position", positionMs);
+	      dic.put("preRoll", preRollMs);
+	      invokeMethodWithMap("speechStarted", true, dic);
+      }
+
+      public void onSpeechEnd ( long positionMs, long durationMs )
+      {
+	      flushRecordingData(); // The end of the segment is sent before the event
+	      final Map<String, Object> dic = new HashMap<String, Object>();
+	      dic.put("position", positionMs);
+	      dic.put("duration", durationMs);
+	      // Posted like the data, even from stopRecorder() on the platform thread
+	      TauSoundManager.mainHandler.post ( new Runnable()
+	      {
+		      @Override
+		      public void run ()
+		      {
+			      invokeMethodWithMap("speechEnded", true, dic);
+		      }
+	      } );
+      }
+
+      public void deliver ( final byte[] data, final int offset, int length)
+      {
+	      TauSoundStreamCodec streamCodec = m_streamCodec;
+	      if (streamCodec != null)
+		      length = streamCodec.encode(data, offset, length, data, offset); // In place : the frame belongs to us
+	      post(data, offset, length);
+      }
+
+      void post ( final byte[] data, final int offset, final int length)
+      {
+	      // The frame must not be given back to the pool before the channel has copied it.
+	      // Always posted, even on the platform thread : a frame flushed by stopRecorder() must not overtake the frames already queued
+	      TauSoundManager.mainHandler.post ( new Runnable()
+	      {
+		      @Override
+		      public void run ()
+		      {
+			      sendRecordingData(data, offset, length);
+		      }
+	      } );
+      }
+
+      void sendRecordingData ( byte[] data, int offset, int length)
+      {
+	      TauSoundStreamChannel streamChannel = m_streamChannel;
+	      if (streamChannel != null)
+	      {
+		      streamChannel.send(data, offset, length);
+	      } else
+	      {
+		      // The codec copies the array during invokeMethod() : a full array can be passed directly
+		      byte[] chunk = (offset == 0 && length == data.length) ? data : Arrays.copyOfRange(data, offset, offset + length);
+		      Map<String, Object> dic = new HashMap<String, Object>();
+		      dic.put("recordingData", chunk);
+		      invokeMethodWithMap("recordingData", true, dic);
+	      }
+	      TauSoundBufferPool bufferPool = m_bufferPool;
+	      if (bufferPool != null)
+	      {
+		      bufferPool.release(data);
+	      }
 
       }
 
 
 
 
+	boolean sampleProgress ( TauSoundProgressTicker.Sample sample )
+	{
+		if (!m_progressChanged)
+			return false;
+		m_progressChanged = false;
+		sample.a = m_progressDuration;
+		sample.c = m_progressDbPeakLevel;
+		return true;
+	}
+
+
 //-----------------------------------------------------------------------------------------------------------------------------------------------
 
 	/* ctor */ TauSoundRecorder (final MethodCall call)
@@ -139,13 +289,17 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
 
 	void closeRecorder ( final MethodCall call, final Result result )
 	{
+		m_streamChannel = null;
 		m_recorder.closeRecorder();
+		closeWavWriter(null);
 		result.success ( "closeRecorder" );
 
 	}
 	void reset(final MethodCall call, final MethodChannel.Result result)
 	{
+		m_streamChannel = null;
 		m_recorder.closeRecorder();
+		closeWavWriter(null);
 		result.success ( 0 );
 
 	}
@@ -154,7 +308,7 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
 	void isEncoderSupported ( final MethodCall call, final Result result )
 	{
 		int     _codec = call.argument ( "codec" );
-		boolean b      = m_recorder.isEncoderSupported(t_CODEC.values()[_codec]);
+		boolean b      = TauSoundCodecCapabilities.isEncoderSupported(_codec); // Asked to the engine only once
 		//if ( Build.VERSION.SDK_INT < 29 )
 		{
 			//if ( ( _codec == CODEC_OPUS ) || ( _codec == CODEC_VORBIS ) )
@@ -171,7 +325,7 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
 		dic.put ( "slotNo", slotNo );
 		dic.put ( "arg", arg );
 		dic.put ( "state", getStatus() );
-		getPlugin ().invokeMethod ( methodName, dic );
+		invoke ( methodName, dic );
 	}
 
 	void invokeMethodWithDouble ( String methodName, double arg )
@@ -180,7 +334,7 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
 		dic.put ( "slotNo", slotNo );
 		dic.put ( "arg", arg );
 		dic.put ( "state", getStatus() );
-		getPlugin ().invokeMethod ( methodName, dic );
+		invoke ( methodName, dic );
 	}
 
 	int getStatus()
@@ -256,8 +410,126 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
 			int                             _audioSource        = call.argument ( "audioSource" );
 			t_AUDIO_SOURCE                  audioSource         = t_AUDIO_SOURCE.values()[_audioSource];
 			int 				toStream	    = call.argument ( "toStream");
+			Boolean                         binaryStream        = call.argument ( "binaryStream" );
+
+			Integer                         coalesceMs          = call.argument ( "coalesceMs" );
+			Integer                         coalesceBytes       = call.argument ( "coalesceBytes" );
+			Boolean                         meter               = call.argument ( "meter" );
+			Boolean                         meterOnly           = call.argument ( "meterOnly" );
+			Boolean                         wavWriter           = call.argument ( "wavWriter" );
+			int                             _sampleRate         = ( sampleRate != null ) ? sampleRate : 16000;
+			int                             _numChannels        = ( numChannels != null ) ? numChannels : 1;
+
+			m_streamChannel = null;
+			if ( toStream != 0 && binaryStream != null && binaryStream )
+			{
+				int bytesPerSecond = _sampleRate * _numChannels * 2;
+				m_streamChannel = new TauSoundStreamChannel ( getPlugin ().messenger, slotNo, bytesPerSecond / 10 );
+			}
+
+			m_coalescer = null;
+			m_bufferPool = null;
+			if ( toStream != 0 )
+			{
+				int frameSize = 0;
+				if ( coalesceBytes != null && coalesceBytes > 0 )
+					frameSize = coalesceBytes - ( coalesceBytes % ( 2 * _numChannels ) );
+				else if ( coalesceMs != null && coalesceMs > 0 )
+					frameSize = TauSoundCoalescer.frameSizeFromDuration ( coalesceMs, _sampleRate, _numChannels );
+				if ( frameSize > 0 )
+				{
+					m_bufferPool = new TauSoundBufferPool ( frameSize, 4 );
+					m_coalescer = new TauSoundCoalescer ( m_bufferPool, this );
+				}
+			}
 
-			boolean r = m_recorder.startRecorder(codec, sampleRate, numChannels, bitRate, path, audioSource, toStream != 0);
+			// The stream can be compressed : 1 = μ-law, 2 = A-law, 3 = IMA ADPCM
+			Integer streamCodec = call.argument ( "streamCodec" );
+			m_streamCodec = null;
+			if ( toStream != 0 && streamCodec != null && streamCodec != TauSoundStreamCodec.PCM16 )
+			{
+				try
+				{
+					m_streamCodec = new TauSoundStreamCodec ( streamCodec, _numChannels );
+				} catch ( IllegalArgumentException e )
+				{
+					result.error ( "startRecorder", "startRecorder", e.getMessage () );
+					return;
+				}
+			}
+
+			// The voice activity gate sends only the voiced segments, in frames of `vadFrameMs` if there is no other coalescing
+			m_vad = null;
+			Boolean vad = call.argument ( "vad" );
+			if ( toStream != 0 && vad != null && vad )
+			{
+				Integer vadFrameMs = call.argument ( "vadFrameMs" );
+				Number  vadThresholdDb = call.argument ( "vadThresholdDb" );
+				Number  vadMinDb = call.argument ( "vadMinDb" );
+				Number  vadZcrMax = call.argument ( "vadZcrMax" );
+				Integer vadStartMs = call.argument ( "vadStartMs" );
+				Integer vadHangoverMs = call.argument ( "vadHangoverMs" );
+				Integer vadPreRollMs = call.argument ( "vadPreRollMs" );
+				int frameMs = ( vadFrameMs != null ) ? vadFrameMs : 20;
+				m_vad = new TauSoundVad
+					(
+						this,
+						_sampleRate,
+						_numChannels,
+						frameMs,
+						( vadThresholdDb != null ) ? vadThresholdDb.doubleValue () : 10.0,
+						( vadMinDb != null ) ? vadMinDb.doubleValue () : -55.0,
+						( vadZcrMax != null ) ? vadZcrMax.doubleValue () : 0.4,
+						( vadStartMs != null ) ? vadStartMs : 40,
+						( vadHangoverMs != null ) ? vadHangoverMs : 300,
+						( vadPreRollMs != null ) ? vadPreRollMs : 200
+					);
+				if ( m_coalescer == null )
+				{
+					m_bufferPool = new TauSoundBufferPool ( m_vad.frameSize, 4 );
+					m_coalescer = new TauSoundCoalescer ( m_bufferPool, this );
+				}
+			}
+
+			// The meter needs the PCM data : with `meterOnly`, the engine streams them to the plugin, but they are not sent to Dart
+			m_meterOnly = ( meterOnly != null && meterOnly );
+			m_meter = null;
+			if ( m_meterOnly || ( toStream != 0 && meter != null && meter ) )
+				m_meter = new TauSoundMeter ( _sampleRate, _numChannels );
+
+			// With `wavWriter`, the engine streams raw pcm16 to the plugin, which writes the WAV file itself
+			closeWavWriter();
+			if ( wavWriter != null && wavWriter && codec == t_CODEC.pcm16WAV && path != null && toStream == 0 )
+			{
+				Integer blockBytes  = call.argument ( "blockBytes" );
+				Integer extentBytes = call.argument ( "extentBytes" );
+				Integer fsyncMs     = call.argument ( "fsyncMs" );
+				long    fsyncBytes  = ( fsyncMs != null && fsyncMs > 0 ) ? (long)fsyncMs * _sampleRate * _numChannels * 2 / 1000 : 0;
+				String wavPath = m_recorder.temporayFile ( path );
+				try
+				{
+					m_wavWriter = new TauSoundWavWriter
+						(
+							wavPath,
+							_sampleRate,
+							_numChannels,
+							( blockBytes != null ) ? blockBytes : TauSoundWavWriter.DEFAULT_BLOCK_SIZE,
+							( extentBytes != null ) ? extentBytes : TauSoundWavWriter.DEFAULT_EXTENT_SIZE,
+							fsyncBytes
+						);
+				} catch ( IOException e )
+				{
+					result.error ( "startRecorder", "startRecorder", "Failure to open " + path + " : " + e.getMessage () );
+					return;
+				}
+			}
+			m_wavPath = ( m_wavWriter != null ) ? m_recorder.temporayFile ( path ) : null;
+
+			boolean r = ( m_wavWriter != null )
+				? m_recorder.startRecorder(t_CODEC.pcm16, sampleRate, numChannels, bitRate, null, audioSource, true)
+				: m_recorder.startRecorder(codec, sampleRate, numChannels, bitRate, path, audioSource, toStream != 0 || m_meterOnly);
+			if (!r)
+				closeWavWriter();
 			if (r)
 				result.success ( "Media Recorder is started" );
 			else
@@ -269,15 +541,77 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
 	}
 
 
+	void flushRecordingData()
+	{
+		if ( m_coalescer != null )
+		{
+			m_coalescer.flush ();
+		}
+	}
+
+	/**
+	 * Completes the WAV file, if any, without waiting for the writer executor. `listener` may be null.
+	 * Returns false if there is no WAV file.
+	 */
+	boolean closeWavWriter(TauSoundWavWriter.Listener listener)
+	{
+		TauSoundWavWriter wavWriter = m_wavWriter;
+		if ( wavWriter == null )
+			return false;
+		m_wavWriter = null;
+		wavWriter.close ( listener );
+		return true;
+	}
+
+	/**
+	 * Completes the WAV file, if any, and waits for it. Returns the first write error.
+	 */
+	IOException closeWavWriter()
+	{
+		TauSoundWavWriter wavWriter = m_wavWriter;
+		if ( wavWriter == null )
+			return null;
+		m_wavWriter = null;
+		return wavWriter.close ();
+	}
+
 	public void stopRecorder ( final MethodCall call, final Result result )
 	{
 		m_recorder.stopRecorder();
-		result.success ( "Media Recorder is closed" );
+		TauSoundVad vad = m_vad;
+		if ( vad != null )
+			vad.finish (); // Sends the end of an open segment
+		flushRecordingData();
+		TauSoundStreamCodec streamCodec = m_streamCodec;
+		if ( streamCodec != null )
+		{
+			byte[] tail = new byte[1]; // The last ADPCM nibble
+			if ( streamCodec.flush ( tail, 0 ) > 0 )
+				post ( tail, 0, 1 );
+		}
+		// The last write and the sync of the WAV file are done by its executor : the reply and stopRecorderCompleted are sent from there
+		final Result r = new TauSoundMainThreadResult ( result );
+		final String wavPath = m_wavPath;
+		boolean wav = closeWavWriter ( new TauSoundWavWriter.Listener()
+		{
+			@Override
+			public void onClosed ( IOException e )
+			{
+				if ( e != null )
+					r.error ( "stopRecorder", "stopRecorder", "Failure to write the record : " + e.getMessage () );
+				else
+					r.success ( "Media Recorder is closed" );
+				invokeMethodWithString ( "stopRecorderCompleted", e == null, wavPath );
+			}
+		} );
+		if ( !wav )
+			result.success ( "Media Recorder is closed" );
 	}
 
 	public void pauseRecorder( final MethodCall call, final MethodChannel.Result result )
 	{
 		m_recorder.pauseRecorder( );
+		flushRecordingData();
 		result.success( "Recorder is paused");
 	}
 
@@ -333,6 +667,33 @@ public class TauSoundRecorder extends TauSoundSession implements FlautoRecorderC
 		result.success( r );
 	}
 
+	Map<String, Object> getMetrics ()
+	{
+		Map<String, Object> dic = super.getMetrics();
+		TauSoundBufferPool bufferPool = m_bufferPool;
+		if (bufferPool != null)
+			dic.put("bufferPool", bufferPool.getStats());
+		TauSoundVad vad = m_vad;
+		if (vad != null)
+			dic.put("vad", vad.getStats());
+		return dic;
+	}
+
+	public void getVadStats (final MethodCall call, final MethodChannel.Result result )
+	{
+		TauSoundVad vad = m_vad;
+		Map<String, Object> dic = (vad != null) ? vad.getStats() : new HashMap<String, Object>();
+		dic.put ( "slotNo", slotNo);
+		result.success( dic );
+	}
+
+	public void getBufferPoolStats (final MethodCall call, final MethodChannel.Result result )
+	{
+		Map<String, Object> dic = (m_bufferPool != null) ? m_bufferPool.getStats() : new HashMap<String, Object>();
+		dic.put ( "slotNo", slotNo);
+		result.success( dic );
+	}
+
 	public void setLogLevel (final MethodCall call, final MethodChannel.Result result )
 	{
 	}
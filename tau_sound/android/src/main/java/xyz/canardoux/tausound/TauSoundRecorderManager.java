@@ -47,7 +47,7 @@ class TauSoundRecorderManager extends TauSoundManager
                         TauSoundRecorderPlugin = new TauSoundRecorderManager();
                 }
                 MethodChannel channel = new MethodChannel ( messenger, "xyz.canardoux.tau_recorder" );
-                TauSoundRecorderPlugin.init( channel);
+                TauSoundRecorderPlugin.init( messenger, channel);
                 channel.setMethodCallHandler ( TauSoundRecorderPlugin );
                 androidContext = ctx;
         }
@@ -65,20 +65,68 @@ class TauSoundRecorderManager extends TauSoundManager
         {
                 switch ( call.method )
                 {
+                        case "getCodecCapabilities":
+                        {
+                                TauSoundCodecCapabilities.getCodecCapabilities ( result );
+                                return;
+                        }
+
                         case "resetPlugin":
                         {
                                 resetPlugin(call, result);
                                 return;
                         }
+
+                        case "setExecutionMode":
+                        {
+                                setExecutionMode(call, result);
+                                return;
+                        }
+
+                        case "getMetrics":
+                        {
+                                getMetrics(call, result);
+                                return;
+                        }
+
+                        case "setProgressTicker":
+                        {
+                                setProgressTicker(call, result, "xyz.canardoux.tau_recorder/progress", "duration", null, "dbPeakLevel");
+                                return;
+                        }
+
+                        case "setCompactEvents":
+                        {
+                                setCompactEvents(call, result, "xyz.canardoux.tau_recorder/events");
+                                return;
+                        }
                 }
 
+                // The slots are always managed on the platform thread
                 TauSoundRecorder aRecorder = (TauSoundRecorder) getSession( call);
+                if ( call.method.equals ( "openRecorder" ) )
+                {
+                        aRecorder = new TauSoundRecorder ( call );
+                        initSession( call, aRecorder );
+                }
+
+                final TauSoundRecorder recorder = aRecorder;
+                execute ( call, result, new SlotCommand()
+                {
+                        @Override
+                        public void run ( Result r )
+                        {
+                                dispatch ( call, r, recorder );
+                        }
+                } );
+        }
+
+        void dispatch ( final MethodCall call, final Result result, TauSoundRecorder aRecorder )
+        {
                 switch ( call.method )
                 {
                         case "openRecorder":
                         {
-                                aRecorder = new TauSoundRecorder ( call );
-                                initSession( call, aRecorder );
                                 aRecorder.openRecorder ( call, result );
                         }
                         break;
@@ -145,6 +193,18 @@ class TauSoundRecorderManager extends TauSoundManager
                         }
                         break;
 
+                        case "getBufferPoolStats":
+                        {
+                                aRecorder.getBufferPoolStats ( call, result );
+                        }
+                        break;
+
+                        case "getVadStats":
+                        {
+                                aRecorder.getVadStats ( call, result );
+                        }
+                        break;
+
                         case "setLogLevel":
                         {
                                 aRecorder.setLogLevel ( call, result );
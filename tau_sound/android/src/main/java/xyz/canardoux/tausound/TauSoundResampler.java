@@ -0,0 +1,285 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+
+/**
+ * Converts interleaved 16 bits PCM from any sample rate and number of channels to another one.
+ *
+ * The rate ratio is reduced to L/M (L = outRate / gcd, M = inRate / gcd), and each output sample is computed by a polyphase FIR :
+ * a Blackman windowed sinc, precomputed for min(L, phases) fractional delays. The channels are mixed first,
+ * so that the filter runs on the output channels only (see `mixMatrix()`). Nothing is allocated after the constructor.
+ *
+ * Quality / CPU tradeoff (cost = taps multiply-adds per output sample and per channel) :
+ *   QUALITY_LOW    :  8 taps, 128 phases, passband 0.80 x Nyquist. Speech, TTS.
+ *   QUALITY_MEDIUM : 16 taps, 256 phases, passband 0.90 x Nyquist. The default.
+ *   QUALITY_HIGH   : 32 taps, 512 phases, passband 0.95 x Nyquist. Music.
+ * At 48 kHz stereo, MEDIUM is about 1.5 M multiply-adds per second.
+ */
+class TauSoundResampler
+{
+	static final int QUALITY_LOW    = 0;
+	static final int QUALITY_MEDIUM = 1;
+	static final int QUALITY_HIGH   = 2;
+
+	static final int[]   TAPS     = { 8, 16, 32 };
+	static final int[]   PHASES   = { 128, 256, 512 };
+	static final float[] PASSBAND = { 0.80f, 0.90f, 0.95f };
+
+	final int     inRate;
+	final int     inChannels;
+	final int     outRate;
+	final int     outChannels;
+	final int     inFrameSize;
+	final int     outFrameSize;
+	final int     L;
+	final int     M;
+	final int     taps;
+	final int     nbPhases;
+	final float[] bank;     // nbPhases x taps coefficients, in the order of the history window (oldest sample first)
+	final float[] history;  // outChannels x 2*taps : each sample is stored twice, so that the window is always contiguous
+	final float[] gains;    // outChannels x inChannels : the weight of each input channel in each output channel
+	final float[] frame;    // One mixed input frame
+	final byte[]  carry;    // An incomplete input frame, kept for the next call
+	int           carryLength = 0;
+	int           head = 0; // Where the next sample is stored in the history
+	int           phase = 0; // 0 <= phase < L : the time of the next output, after the last input frame, in 1/L input samples
+
+
+	/* ctor */ TauSoundResampler ( int aInRate, int aInChannels, int aOutRate, int aOutChannels, int quality )
+	{
+		inRate = aInRate;
+		inChannels = aInChannels;
+		outRate = aOutRate;
+		outChannels = aOutChannels;
+		inFrameSize = 2 * aInChannels;
+		outFrameSize = 2 * aOutChannels;
+		int g = gcd ( aInRate, aOutRate );
+		L = aOutRate / g;
+		M = aInRate / g;
+		quality = Math.max ( QUALITY_LOW, Math.min ( QUALITY_HIGH, quality ) );
+		taps = TAPS[quality];
+		nbPhases = Math.min ( L, PHASES[quality] );
+		bank = new float[nbPhases * taps];
+		history = new float[aOutChannels * 2 * taps];
+		gains = mixMatrix ( aInChannels, aOutChannels );
+		frame = new float[aOutChannels];
+		carry = new byte[inFrameSize];
+
+		// Downsampling : the cutoff follows the output Nyquist frequency
+		double fc = PASSBAND[quality] * Math.min ( 1.0, (double) L / M );
+		double half = taps / 2.0;
+		for ( int p = 0; p < nbPhases; ++p )
+		{
+			double f = (double) p / nbPhases;
+			double sum = 0;
+			for ( int j = 0; j < taps; ++j )
+			{
+				double t = j + 1 - half - f; // Distance between the sample j of the window and the output time
+				double x = Math.PI * fc * t;
+				double sinc = ( Math.abs ( x ) < 1e-9 ) ? 1.0 : Math.sin ( x ) / x;
+				double w = 0.42 + 0.5 * Math.cos ( Math.PI * t / half ) + 0.08 * Math.cos ( 2 * Math.PI * t / half );
+				double h = ( Math.abs ( t ) >= half ) ? 0.0 : fc * sinc * w;
+				bank[p * taps + j] = (float) h;
+				sum += h;
+			}
+			for ( int j = 0; j < taps; ++j ) // Unity gain at DC for every phase
+				bank[p * taps + j] /= sum;
+		}
+	}
+
+	static final float CENTER = 0.7071f; // -3 dB
+
+	/**
+	 * The channel mix :
+	 * - to mono : the average of all the channels
+	 * - to more channels : duplicated (or wrapped)
+	 * - to stereo, from the usual WAV layouts (3 : L R C, 4 : FL FR BL BR, 5 : FL FR C BL BR, 6 : 5.1, 8 : 7.1) :
+	 *   the front, back and side channels go to their side, the centre to both sides at -3 dB, the LFE is dropped
+	 * - otherwise : the input channel c goes to the output channel c % outChannels
+	 * Each output channel is normalized, so that a full scale input cannot clip.
+	 */
+	static float[] mixMatrix ( int inChannels, int outChannels )
+	{
+		float[] g = new float[outChannels * inChannels];
+		if ( outChannels == 2 && ( inChannels == 3 || inChannels == 4 || inChannels == 5 || inChannels == 6 || inChannels == 8 ) )
+		{
+			for ( int c = 0; c < inChannels; ++c )
+			{
+				boolean center = ( c == 2 && inChannels != 4 );
+				boolean lfe    = ( c == 3 && inChannels >= 6 );
+				if ( center )
+				{
+					g[c] = CENTER;
+					g[inChannels + c] = CENTER;
+				} else
+				if ( !lfe )
+				{
+					// After the front pair, the centre and the LFE, the channels still come by left / right pairs
+					int skipped = ( c < 2 || inChannels == 4 ) ? 0 : ( inChannels >= 6 ) ? 2 : 1;
+					int side = ( c - skipped ) % 2;
+					g[side * inChannels + c] = 1.0f;
+				}
+			}
+		} else
+		{
+			for ( int c = 0; c < Math.max ( inChannels, outChannels ); ++c )
+			{
+				if ( outChannels == 1 )
+					g[c % inChannels] = 1.0f;
+				else
+					g[( c % outChannels ) * inChannels + ( c % inChannels )] = 1.0f;
+			}
+		}
+		for ( int o = 0; o < outChannels; ++o )
+		{
+			float sum = 0;
+			for ( int c = 0; c < inChannels; ++c )
+				sum += g[o * inChannels + c];
+			for ( int c = 0; sum > 1.0f && c < inChannels; ++c )
+				g[o * inChannels + c] /= sum;
+		}
+		return g;
+	}
+
+	static int gcd ( int a, int b )
+	{
+		while ( b != 0 )
+		{
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	boolean isIdentity ()
+	{
+		return inRate == outRate && inChannels == outChannels;
+	}
+
+	/**
+	 * The number of output bytes produced by `inBytes` input bytes
+	 */
+	int outputSize ( int inBytes )
+	{
+		long n = ( carryLength + inBytes ) / inFrameSize;
+		long outFrames = Math.max ( 0, ( n * L - phase + M - 1 ) / M );
+		return (int) outFrames * outFrameSize;
+	}
+
+	/**
+	 * The largest number of input bytes which produce at most `outBytes` output bytes
+	 */
+	int inputSizeFor ( int outBytes )
+	{
+		long outFrames = outBytes / outFrameSize;
+		long n = ( outFrames * M + phase ) / L;
+		return (int) Math.max ( 0, n * inFrameSize - carryLength + ( inFrameSize - 1 ) );
+	}
+
+	/**
+	 * Converts `length` bytes of `in`, and writes the result in `out`, which must hold `outputSize(length)` bytes.
+	 * Returns the number of bytes written.
+	 */
+	int convert ( byte[] in, int offset, int length, byte[] out, int outOffset )
+	{
+		int o = outOffset;
+		int end = offset + length;
+		if ( carryLength > 0 )
+		{
+			int n = Math.min ( inFrameSize - carryLength, length );
+			System.arraycopy ( in, offset, carry, carryLength, n );
+			carryLength += n;
+			offset += n;
+			if ( carryLength < inFrameSize )
+				return 0;
+			o = processFrame ( carry, 0, out, o );
+			carryLength = 0;
+		}
+		while ( offset + inFrameSize <= end )
+		{
+			o = processFrame ( in, offset, out, o );
+			offset += inFrameSize;
+		}
+		carryLength = end - offset;
+		System.arraycopy ( in, offset, carry, 0, carryLength );
+		return o - outOffset;
+	}
+
+	int processFrame ( byte[] in, int offset, byte[] out, int o )
+	{
+		mix ( in, offset );
+		int window = 2 * taps;
+		for ( int c = 0; c < outChannels; ++c )
+		{
+			history[c * window + head] = frame[c];
+			history[c * window + head + taps] = frame[c];
+		}
+		head = ( head + 1 == taps ) ? 0 : head + 1; // The window now starts at `head`
+		while ( phase < L )
+		{
+			int coefs = (int) ( (long) phase * nbPhases / L ) * taps;
+			for ( int c = 0; c < outChannels; ++c )
+			{
+				int h = c * window + head;
+				float acc = 0;
+				for ( int j = 0; j < taps; ++j )
+					acc += bank[coefs + j] * history[h + j];
+				int v = Math.round ( acc );
+				if ( v > Short.MAX_VALUE )
+					v = Short.MAX_VALUE;
+				else if ( v < Short.MIN_VALUE )
+					v = Short.MIN_VALUE;
+				out[o++] = (byte) v;
+				out[o++] = (byte) ( v >> 8 );
+			}
+			phase += M;
+		}
+		phase -= L;
+		return o;
+	}
+
+	/**
+	 * Maps the input channels on the output channels, with the weights of `mixMatrix()`
+	 */
+	void mix ( byte[] in, int offset )
+	{
+		for ( int o = 0; o < outChannels; ++o )
+		{
+			float sum = 0;
+			for ( int c = 0; c < inChannels; ++c )
+			{
+				float w = gains[o * inChannels + c];
+				if ( w != 0 )
+					sum += w * (short) ( ( in[offset + 2 * c] & 0xFF ) | ( in[offset + 2 * c + 1] << 8 ) );
+			}
+			frame[o] = sum;
+		}
+	}
+
+	void reset ()
+	{
+		java.util.Arrays.fill ( history, 0 );
+		carryLength = 0;
+		head = 0;
+		phase = 0;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+
+/**
+ * A preallocated byte ring buffer, for exactly one producer thread and one consumer thread.
+ * No lock is used : each position is written by only one side and published with a volatile store.
+ */
+class TauSoundRingBuffer
+{
+	final byte[]  buffer;
+	final int     capacity;
+	volatile long writePos = 0; // Written only by the producer
+	volatile long readPos  = 0; // Written only by the consumer
+
+
+	/* ctor */ TauSoundRingBuffer ( int aCapacity )
+	{
+		capacity = aCapacity;
+		buffer = new byte[aCapacity];
+	}
+
+	int available ()
+	{
+		return (int) ( writePos - readPos );
+	}
+
+	int free ()
+	{
+		return capacity - available ();
+	}
+
+	/**
+	 * Producer side. Copies as many bytes as possible and returns the number of bytes copied.
+	 */
+	int write ( byte[] data, int offset, int length )
+	{
+		long w = writePos;
+		int n = Math.min ( length, capacity - (int) ( w - readPos ) );
+		int start = (int) ( w % capacity );
+		int first = Math.min ( n, capacity - start );
+		System.arraycopy ( data, offset, buffer, start, first );
+		System.arraycopy ( data, offset + first, buffer, 0, n - first );
+		writePos = w + n;
+		return n;
+	}
+
+	/**
+	 * Consumer side. Copies at most `length` bytes and returns the number of bytes copied.
+	 */
+	int read ( byte[] data, int offset, int length )
+	{
+		long r = readPos;
+		int n = Math.min ( length, (int) ( writePos - r ) );
+		int start = (int) ( r % capacity );
+		int first = Math.min ( n, capacity - start );
+		System.arraycopy ( buffer, start, data, offset, first );
+		System.arraycopy ( buffer, 0, data, offset + first, n - first );
+		readPos = r + n;
+		return n;
+	}
+
+	/**
+	 * Consumer side : drops everything which is currently in the ring.
+	 */
+	void clear ()
+	{
+		readPos = writePos;
+	}
+}
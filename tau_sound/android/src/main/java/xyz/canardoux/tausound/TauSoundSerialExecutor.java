@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Runs the tasks of one slot one after the other, in submission order.
+ * The tasks run on a thread pool shared by all the slots : two slots can execute in parallel.
+ */
+class TauSoundSerialExecutor implements Executor
+{
+	static final ExecutorService workers = Executors.newCachedThreadPool ();
+
+	final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable> ();
+	Runnable                   active;
+
+
+	@Override
+	public synchronized void execute ( final Runnable r )
+	{
+		tasks.add ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				try
+				{
+					r.run ();
+				} finally
+				{
+					scheduleNext ();
+				}
+			}
+		} );
+		if ( active == null )
+		{
+			scheduleNext ();
+		}
+	}
+
+	/**
+	 * True if no task is running or queued
+	 */
+	synchronized boolean isIdle ()
+	{
+		return active == null && tasks.isEmpty ();
+	}
+
+	synchronized void scheduleNext ()
+	{
+		active = tasks.poll ();
+		if ( active != null )
+		{
+			workers.execute ( active );
+		}
+	}
+}
@@ -40,23 +40,67 @@ import io.flutter.plugin.common.MethodChannel;
 public abstract class TauSoundSession
 {
 	int slotNo;
+	int handle = TauSoundSlotTable.NO_HANDLE; // NO_HANDLE until the session is stored in the slot table
+	TauSoundMetrics metrics = new TauSoundMetrics ();
 
-	void init( int slot)
+	void init( int aHandle)
 	{
-		slotNo = slot;
+		if ( handle != TauSoundSlotTable.NO_HANDLE ) // A pooled session, reused for a new slot
+			metrics = new TauSoundMetrics ();
+		handle = aHandle;
+		slotNo = TauSoundSlotTable.slotOf ( aHandle );
 	}
 
 	abstract TauSoundManager getPlugin ();
 
 	void releaseSession()
 	{
-		getPlugin().freeSlot(slotNo);
+		getPlugin().freeSlot(handle);
+	}
+
+	/**
+	 * True if this session is still the one of its slot. The events of a stale session are dropped.
+	 */
+	boolean isLive()
+	{
+		return getPlugin().slots.isCurrent ( handle );
+	}
+
+	void invoke ( String methodName, Map<String, Object> dic )
+	{
+		if ( isLive () )
+			getPlugin ().invokeMethod ( methodName, dic, metrics );
+	}
+
+	Map<String, Object> getMetrics ()
+	{
+		Map<String, Object> dic = metrics.toMap ();
+		dic.put ( "slotNo", slotNo );
+		dic.put ( "pluginAttachUs", TauSoundLazyChannel.attachTimeUs );
+		dic.put ( "managerInitUs", getPlugin ().initTimeUs );
+		return dic;
 	}
 
 	abstract int getStatus();
 
 	abstract void reset(final MethodCall call, final MethodChannel.Result result);
 
+	/**
+	 * Called by the shared progress ticker, on the platform thread.
+	 * Returns false if the slot is not active, or if its values did not change since the previous tick.
+	 */
+	boolean sampleProgress ( TauSoundProgressTicker.Sample sample )
+	{
+		return false;
+	}
+
+	/**
+	 * Called when the shared progress ticker is started or stopped.
+	 */
+	void onTickerChanged ( boolean running )
+	{
+	}
+
 	void invokeMethodWithString ( String methodName, boolean success, String arg )
 	{
 		Map<String, Object> dic = new HashMap<String, Object>();
@@ -64,7 +108,7 @@ public abstract class TauSoundSession
 		dic.put ( "state", getStatus() );
 		dic.put ( "arg", arg );
 		dic.put ( "success", success );
-		getPlugin ().invokeMethod ( methodName, dic );
+		invoke ( methodName, dic );
 	}
 
 	void invokeMethodWithDouble ( String methodName, boolean success, double arg )
@@ -74,7 +118,7 @@ public abstract class TauSoundSession
 		dic.put ( "state", getStatus() );
 		dic.put ( "arg", arg );
 		dic.put ( "success", success );
-		getPlugin ().invokeMethod ( methodName, dic );
+		invoke ( methodName, dic );
 	}
 
 
@@ -85,7 +129,7 @@ public abstract class TauSoundSession
 		dic.put ( "state", getStatus() );
 		dic.put ( "arg", arg );
 		dic.put ( "success", success );
-		getPlugin ().invokeMethod ( methodName, dic );
+		invoke ( methodName, dic );
 	}
 
 
@@ -96,7 +140,7 @@ public abstract class TauSoundSession
 		dic.put ( "state", getStatus() );
 		dic.put ( "arg", arg );
 		dic.put ( "success", success );
-		getPlugin ().invokeMethod ( methodName, dic );
+		invoke ( methodName, dic );
 	}
 
 	void invokeMethodWithMap ( String methodName, boolean success, Map<String, Object>  dic )
@@ -104,7 +148,22 @@ public abstract class TauSoundSession
 		dic.put ( "slotNo", slotNo );
 		dic.put ( "state", getStatus() );
 		dic.put ( "success", success );
-		getPlugin ().invokeMethod ( methodName, dic );
+		invoke ( methodName, dic );
+	}
+
+	/**
+	 * Sends a high frequency event with the compact binary format, if it is enabled.
+	 * Returns false if the caller must use the map based event instead.
+	 */
+	boolean sendCompactEvent ( int eventId, long a, long b, double c )
+	{
+		TauSoundEventChannel eventChannel = getPlugin ().eventChannel;
+		if ( eventChannel == null )
+			return false;
+		if ( !isLive () )
+			return true;
+		eventChannel.send ( eventId, slotNo, getStatus (), true, a, b, c );
+		return true;
 	}
 
 	public void log(xyz.canardoux.TauNative.Flauto.t_LOG_LEVEL level, String msg)
@@ -115,7 +174,7 @@ public abstract class TauSoundSession
 		dic.put ( "level", level.ordinal() );
 		dic.put ("msg", msg);
 		dic.put ( "success", true );
-		getPlugin ().invokeMethod ( "log", dic );
+		invoke ( "log", dic );
 
 	}
 
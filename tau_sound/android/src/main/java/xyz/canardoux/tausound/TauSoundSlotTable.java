@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * The sessions of a manager, indexed by the slot number chosen by Dart.
+ *
+ * The table has a fixed capacity and is thread safe without lock : the platform thread
+ * updates it, and the engine callbacks may read it from their own threads.
+ * Each slot has a generation counter, incremented each time the slot is set or freed.
+ * A session keeps a handle (generation + slot number) : a handle whose generation
+ * is not the current one is stale, and is rejected.
+ */
+class TauSoundSlotTable
+{
+	static final int SLOT_BITS = 8;
+	static final int CAPACITY  = 1 << SLOT_BITS;
+	static final int SLOT_MASK = CAPACITY - 1;
+	static final int NO_HANDLE = -1;
+
+	final AtomicReferenceArray<TauSoundSession> sessions    = new AtomicReferenceArray<TauSoundSession> ( CAPACITY );
+	final AtomicIntegerArray                    generations = new AtomicIntegerArray ( CAPACITY );
+	volatile int                                highWater   = 0; // All the slots >= highWater are empty
+
+
+	static int slotOf ( int handle )
+	{
+		return handle & SLOT_MASK;
+	}
+
+	static void checkSlot ( int slotNo )
+	{
+		if ( ( slotNo < 0 ) || ( slotNo >= CAPACITY ) )
+			throw new RuntimeException ( "Invalid slot number : " + slotNo );
+	}
+
+	int highWater ()
+	{
+		return highWater;
+	}
+
+	TauSoundSession get ( int slotNo )
+	{
+		checkSlot ( slotNo );
+		return sessions.get ( slotNo );
+	}
+
+	/**
+	 * Stores a session in a slot, and returns its new handle.
+	 */
+	int put ( int slotNo, TauSoundSession session )
+	{
+		checkSlot ( slotNo );
+		int generation = generations.incrementAndGet ( slotNo );
+		sessions.set ( slotNo, session );
+		if ( slotNo >= highWater )
+			highWater = slotNo + 1;
+		return ( generation << SLOT_BITS ) | slotNo;
+	}
+
+	/**
+	 * Frees the slot of `handle`, if this handle is still the current one.
+	 */
+	void free ( int handle )
+	{
+		if ( !isCurrent ( handle ) )
+			return;
+		int slotNo = slotOf ( handle );
+		generations.incrementAndGet ( slotNo );
+		sessions.set ( slotNo, null );
+	}
+
+	boolean isCurrent ( int handle )
+	{
+		if ( handle == NO_HANDLE )
+			return false;
+		return ( generations.get ( slotOf ( handle ) ) << SLOT_BITS ) == ( handle & ~SLOT_MASK );
+	}
+
+	/**
+	 * Returns the session of `handle`, or null if the handle is stale.
+	 */
+	TauSoundSession lookup ( int handle )
+	{
+		if ( !isCurrent ( handle ) )
+			return null;
+		return sessions.get ( slotOf ( handle ) );
+	}
+
+	void clear ()
+	{
+		int n = highWater;
+		for ( int i = 0; i < n; ++i )
+		{
+			generations.incrementAndGet ( i );
+			sessions.set ( i, null );
+		}
+		highWater = 0;
+	}
+}
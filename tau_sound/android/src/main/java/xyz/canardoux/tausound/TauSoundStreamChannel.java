@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import android.os.SystemClock;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+
+
+/**
+ * A per-slot binary channel used by the recorder `toStream` mode.
+ *
+ * Each message is a 16 bytes little-endian header followed by the raw PCM data :
+ * - int32 : slotNo
+ * - int32 : sequence number (starts at 0 for each startRecorder)
+ * - int64 : timestamp in micro-seconds (SystemClock.elapsedRealtimeNanos()/1000)
+ *
+ * The channel name is "xyz.canardoux.tau_recorder/stream/<slotNo>".
+ */
+class TauSoundStreamChannel
+{
+	static final String CHANNEL_PREFIX = "xyz.canardoux.tau_recorder/stream/";
+	static final int    HEADER_SIZE    = 16;
+
+	final BasicMessageChannel<ByteBuffer> channel;
+	final int                             slotNo;
+	ByteBuffer                            buffer;
+	int                                   sequence = 0;
+
+
+	/* ctor */ TauSoundStreamChannel ( BinaryMessenger messenger, int slot, int initialSize )
+	{
+		slotNo = slot;
+		channel = new BasicMessageChannel<ByteBuffer> ( messenger, CHANNEL_PREFIX + slot, BinaryCodec.INSTANCE );
+		buffer = allocate ( initialSize );
+	}
+
+	static ByteBuffer allocate ( int dataSize )
+	{
+		return ByteBuffer.allocateDirect ( HEADER_SIZE + dataSize ).order ( ByteOrder.LITTLE_ENDIAN );
+	}
+
+	void send ( byte[] data, int offset, int length )
+	{
+		if ( buffer.capacity () < HEADER_SIZE + length )
+		{
+			buffer = allocate ( length );
+		}
+		buffer.clear ();
+		buffer.putInt ( slotNo );
+		buffer.putInt ( sequence++ );
+		buffer.putLong ( SystemClock.elapsedRealtimeNanos () / 1000 );
+		buffer.put ( data, offset, length );
+		// The messenger uses the buffer position as the message size, and copies the content
+		// before returning : the same direct buffer can be reused for the next chunk.
+		channel.send ( buffer );
+	}
+
+	void send ( byte[] data )
+	{
+		send ( data, 0, data.length );
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+
+/**
+ * Pure Java voice codecs for the pcm16 streams : G.711 μ-law and A-law (2:1), and IMA ADPCM (4:1).
+ * One instance encodes or decodes one stream : it keeps the ADPCM state and the incomplete samples between the calls.
+ * Encoding can be done in place (`out == in`), since the output is always behind the input.
+ *
+ * The IMA ADPCM stream is headerless : 4 bits per sample, the first sample in the low nibble,
+ * the channels interleaved sample by sample, and every channel starts with a predictor of 0 and a step index of 0.
+ */
+class TauSoundStreamCodec
+{
+	static final int PCM16     = 0;
+	static final int ULAW      = 1;
+	static final int ALAW      = 2;
+	static final int IMA_ADPCM = 3;
+
+	static final int[] IMA_INDEX = { -1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8 };
+	static final int[] IMA_STEP =
+	{
+		7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+		50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+		337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+		2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+		15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+	};
+
+	final int   type;
+	final int   numChannels;
+	final int[] predictor;   // IMA ADPCM state, per channel
+	final int[] index;
+	int         channel = 0; // The channel of the next sample
+	int         carry = -1;  // The low byte of an incomplete input sample (encoder), or -1
+	int         nibble = -1; // A pending ADPCM nibble (encoder), or -1
+
+
+	/* ctor */ TauSoundStreamCodec ( int aType, int aNumChannels )
+	{
+		if ( aType < ULAW || aType > IMA_ADPCM )
+			throw new IllegalArgumentException ( "Unknown stream codec : " + aType );
+		type = aType;
+		numChannels = aNumChannels;
+		predictor = new int[aNumChannels];
+		index = new int[aNumChannels];
+	}
+
+	/**
+	 * An upper bound of the number of bytes produced by `encode()` for `pcmBytes` bytes
+	 */
+	int encodedSize ( int pcmBytes )
+	{
+		int samples = ( pcmBytes + ( ( carry >= 0 ) ? 1 : 0 ) ) / 2;
+		return ( type == IMA_ADPCM ) ? ( samples + 1 ) / 2 + 1 : samples;
+	}
+
+	int decodedSize ( int codedBytes )
+	{
+		return ( type == IMA_ADPCM ) ? 4 * codedBytes : 2 * codedBytes;
+	}
+
+	/**
+	 * The largest number of coded bytes which decode to at most `pcmBytes` bytes
+	 */
+	int inputSizeFor ( int pcmBytes )
+	{
+		return ( type == IMA_ADPCM ) ? pcmBytes / 4 : pcmBytes / 2;
+	}
+
+	/**
+	 * Encodes little endian pcm16. Returns the number of bytes written in `out`.
+	 */
+	synchronized int encode ( byte[] in, int offset, int length, byte[] out, int outOffset )
+	{
+		int o = outOffset;
+		int end = offset + length;
+		while ( offset < end )
+		{
+			int sample;
+			if ( carry >= 0 )
+			{
+				sample = (short) ( carry | ( in[offset++] << 8 ) );
+				carry = -1;
+			} else
+			if ( offset + 1 < end )
+			{
+				sample = (short) ( ( in[offset] & 0xFF ) | ( in[offset + 1] << 8 ) );
+				offset += 2;
+			} else
+			{
+				carry = in[offset++] & 0xFF;
+				break;
+			}
+			switch ( type )
+			{
+				case ULAW:
+					out[o++] = linearToUlaw ( sample );
+					break;
+				case ALAW:
+					out[o++] = linearToAlaw ( sample );
+					break;
+				default:
+					int code = imaEncode ( channel, sample );
+					channel = ( channel + 1 == numChannels ) ? 0 : channel + 1;
+					if ( nibble < 0 )
+					{
+						nibble = code;
+					} else
+					{
+						out[o++] = (byte) ( nibble | ( code << 4 ) );
+						nibble = -1;
+					}
+					break;
+			}
+		}
+		return o - outOffset;
+	}
+
+	/**
+	 * Writes a pending ADPCM nibble, at the end of the stream. Returns the number of bytes written (0 or 1).
+	 */
+	synchronized int flush ( byte[] out, int outOffset )
+	{
+		carry = -1;
+		if ( nibble < 0 )
+			return 0;
+		out[outOffset] = (byte) nibble;
+		nibble = -1;
+		return 1;
+	}
+
+	/**
+	 * Decodes to little endian pcm16. `out` must hold `decodedSize(length)` bytes. Returns the number of bytes written.
+	 */
+	synchronized int decode ( byte[] in, int offset, int length, byte[] out, int outOffset )
+	{
+		int o = outOffset;
+		int end = offset + length;
+		for ( int i = offset; i < end; ++i )
+		{
+			switch ( type )
+			{
+				case ULAW:
+					o = putSample ( out, o, ulawToLinear ( in[i] ) );
+					break;
+				case ALAW:
+					o = putSample ( out, o, alawToLinear ( in[i] ) );
+					break;
+				default:
+					o = putSample ( out, o, imaDecode ( in[i] & 0x0F ) );
+					o = putSample ( out, o, imaDecode ( ( in[i] >> 4 ) & 0x0F ) );
+					break;
+			}
+		}
+		return o - outOffset;
+	}
+
+	static int putSample ( byte[] out, int o, int sample )
+	{
+		out[o] = (byte) sample;
+		out[o + 1] = (byte) ( sample >> 8 );
+		return o + 2;
+	}
+
+	int imaDecode ( int code )
+	{
+		int c = channel;
+		channel = ( channel + 1 == numChannels ) ? 0 : channel + 1;
+		return imaUpdate ( c, code );
+	}
+
+	// ------------------------------------------------------------- G.711 (the CCITT reference algorithm) -----------------------------------------
+
+	static byte linearToUlaw ( int pcm )
+	{
+		int mask;
+		pcm >>= 2; // 14 bits
+		if ( pcm < 0 )
+		{
+			pcm = -pcm;
+			mask = 0x7F;
+		} else
+		{
+			mask = 0xFF;
+		}
+		if ( pcm > 8159 )
+			pcm = 8159;
+		pcm += 0x21;
+		int seg = 32 - Integer.numberOfLeadingZeros ( pcm ) - 6; // 0x3F -> 0, 0x7F -> 1, ...
+		if ( seg < 0 )
+			seg = 0;
+		if ( seg >= 8 )
+			return (byte) ( 0x7F ^ mask );
+		return (byte) ( ( ( seg << 4 ) | ( ( pcm >> ( seg + 1 ) ) & 0x0F ) ) ^ mask );
+	}
+
+	static int ulawToLinear ( byte b )
+	{
+		int u = ~b & 0xFF;
+		int t = ( ( u & 0x0F ) << 3 ) + 0x84;
+		t <<= ( u & 0x70 ) >> 4;
+		return ( ( u & 0x80 ) != 0 ) ? ( 0x84 - t ) : ( t - 0x84 );
+	}
+
+	static byte linearToAlaw ( int pcm )
+	{
+		int mask;
+		pcm >>= 3; // 13 bits
+		if ( pcm >= 0 )
+		{
+			mask = 0xD5;
+		} else
+		{
+			mask = 0x55;
+			pcm = -pcm - 1;
+		}
+		int seg = 32 - Integer.numberOfLeadingZeros ( pcm ) - 5; // 0x1F -> 0, 0x3F -> 1, ...
+		if ( seg < 0 )
+			seg = 0;
+		if ( seg >= 8 )
+			return (byte) ( 0x7F ^ mask );
+		int aval = seg << 4;
+		aval |= ( seg < 2 ) ? ( pcm >> 1 ) & 0x0F : ( pcm >> seg ) & 0x0F;
+		return (byte) ( aval ^ mask );
+	}
+
+	static int alawToLinear ( byte b )
+	{
+		int a = ( b ^ 0x55 ) & 0xFF;
+		int t = ( a & 0x0F ) << 4;
+		int seg = ( a & 0x70 ) >> 4;
+		if ( seg == 0 )
+			t += 8;
+		else
+			t = ( t + 0x108 ) << ( seg - 1 );
+		return ( ( a & 0x80 ) != 0 ) ? t : -t;
+	}
+
+	// ------------------------------------------------------------- IMA ADPCM (the IMA/DVI reference algorithm) -----------------------------------
+
+	int imaEncode ( int c, int sample )
+	{
+		int step = IMA_STEP[index[c]];
+		int diff = sample - predictor[c];
+		int code = 0;
+		if ( diff < 0 )
+		{
+			code = 8;
+			diff = -diff;
+		}
+		if ( diff >= step )
+		{
+			code |= 4;
+			diff -= step;
+		}
+		if ( diff >= ( step >> 1 ) )
+		{
+			code |= 2;
+			diff -= step >> 1;
+		}
+		if ( diff >= ( step >> 2 ) )
+			code |= 1;
+		imaUpdate ( c, code ); // The encoder tracks the decoder
+		return code;
+	}
+
+	int imaUpdate ( int c, int code )
+	{
+		int step = IMA_STEP[index[c]];
+		int vpdiff = step >> 3;
+		if ( ( code & 4 ) != 0 )
+			vpdiff += step;
+		if ( ( code & 2 ) != 0 )
+			vpdiff += step >> 1;
+		if ( ( code & 1 ) != 0 )
+			vpdiff += step >> 2;
+		int p = predictor[c] + ( ( ( code & 8 ) != 0 ) ? -vpdiff : vpdiff );
+		predictor[c] = Math.max ( Short.MIN_VALUE, Math.min ( Short.MAX_VALUE, p ) );
+		index[c] = Math.max ( 0, Math.min ( IMA_STEP.length - 1, index[c] + IMA_INDEX[code] ) );
+		return predictor[c];
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * A voice activity gate for the recorded pcm16 stream : only the voiced segments are passed to the listener.
+ *
+ * The stream is cut in analysis frames. A frame is speech when its energy is `thresholdDb` above an adaptive noise floor
+ * (and above `minDb`), with a zero-crossing rate below `zcrMax` (broadband noise crosses zero at about every other sample).
+ * A segment starts after `startFrames` speech frames, and stays open with a lower threshold (half of `thresholdDb`)
+ * until `hangoverMs` of silence. The `preRollMs` before the start are kept and passed first, so that the attack is not cut.
+ */
+class TauSoundVad
+{
+	interface Listener
+	{
+		void onVoiced ( byte[] data, int offset, int length ); // The data must be copied
+		void onSpeechStart ( long positionMs, long preRollMs );
+		void onSpeechEnd ( long positionMs, long durationMs );
+	}
+
+	static final double FLOOR_DB = -90.0;
+
+	final Listener listener;
+	final int      sampleRate;
+	final int      numChannels;
+	final int      frameSize;     // In bytes
+	final double   frameMs;
+	final double   thresholdDb;
+	final double   minDb;
+	final double   zcrMax;
+	final int      startFrames;
+	final int      hangoverFrames;
+	final byte[]   frame;
+	int            fill = 0;
+	final byte[]   preRoll;       // A ring of the last frames before a segment
+	int            preRollHead = 0;
+	int            preRollFill = 0;
+
+	// State and statistics
+	boolean        inSpeech = false;
+	int            speechRun = 0;  // Consecutive speech frames
+	int            silenceRun = 0; // Consecutive silent frames in a segment
+	double         noiseFloorDb = Double.NaN;
+	double         lastEnergyDb = FLOOR_DB;
+	double         lastZcr = 0;
+	long           frames = 0;
+	long           speechFrames = 0;
+	long           segments = 0;
+	long           bytesIn = 0;
+	long           bytesPassed = 0;
+	long           segmentStart = 0; // In frames
+	double         speechEnergySum = 0;
+	double         silenceEnergySum = 0;
+
+
+	/* ctor */ TauSoundVad ( Listener aListener, int aSampleRate, int aNumChannels, int aFrameMs, double aThresholdDb, double aMinDb,
+		double aZcrMax, int startMs, int hangoverMs, int preRollMs )
+	{
+		listener = aListener;
+		sampleRate = aSampleRate;
+		numChannels = aNumChannels;
+		frameSize = TauSoundCoalescer.frameSizeFromDuration ( aFrameMs, aSampleRate, aNumChannels );
+		frameMs = frameSize * 1000.0 / ( 2.0 * aNumChannels * aSampleRate );
+		thresholdDb = aThresholdDb;
+		minDb = aMinDb;
+		zcrMax = aZcrMax;
+		startFrames = Math.max ( 1, (int) Math.round ( startMs / frameMs ) );
+		hangoverFrames = Math.max ( 1, (int) Math.round ( hangoverMs / frameMs ) );
+		frame = new byte[frameSize];
+		preRoll = new byte[(int) Math.round ( preRollMs / frameMs ) * frameSize];
+	}
+
+	/**
+	 * Called on the engine thread with each recorded chunk
+	 */
+	synchronized void process ( byte[] data, int offset, int length )
+	{
+		bytesIn += length;
+		while ( length > 0 )
+		{
+			int n = Math.min ( length, frameSize - fill );
+			System.arraycopy ( data, offset, frame, fill, n );
+			fill += n;
+			offset += n;
+			length -= n;
+			if ( fill == frameSize )
+			{
+				analyse ();
+				fill = 0;
+			}
+		}
+	}
+
+	void analyse ()
+	{
+		// Energy on all the channels, zero crossings on the first one
+		long sum = 0;
+		int crossings = 0;
+		int previous = 0;
+		int nbSamples = frameSize / 2;
+		for ( int i = 0; i < nbSamples; ++i )
+		{
+			int s = (short) ( ( frame[2 * i] & 0xFF ) | ( frame[2 * i + 1] << 8 ) );
+			sum += (long) s * s;
+			if ( i % numChannels == 0 )
+			{
+				if ( ( s ^ previous ) < 0 )
+					++crossings;
+				previous = s;
+			}
+		}
+		double energy = ( sum == 0 ) ? FLOOR_DB : Math.max ( FLOOR_DB, 10.0 * Math.log10 ( (double) sum / nbSamples / ( 32768.0 * 32768.0 ) ) );
+		double zcr = (double) crossings / ( nbSamples / numChannels );
+		if ( Double.isNaN ( noiseFloorDb ) )
+			noiseFloorDb = energy;
+		lastEnergyDb = energy;
+		lastZcr = zcr;
+		++frames;
+
+		double threshold = Math.max ( minDb, noiseFloorDb + ( inSpeech ? thresholdDb / 2 : thresholdDb ) );
+		boolean speech = ( energy >= threshold ) && ( zcr <= zcrMax );
+		if ( speech )
+		{
+			++speechFrames;
+			speechEnergySum += energy;
+		} else
+		{
+			silenceEnergySum += energy;
+			// The floor follows a quieter background at once, and a louder one slowly
+			noiseFloorDb = ( energy < noiseFloorDb ) ? energy : noiseFloorDb + 0.02 * ( energy - noiseFloorDb );
+		}
+
+		if ( !inSpeech )
+		{
+			speechRun = speech ? speechRun + 1 : 0;
+			if ( speechRun < startFrames )
+			{
+				keep ();
+				return;
+			}
+			inSpeech = true;
+			silenceRun = 0;
+			++segments;
+			long preRollFrames = preRollFill / frameSize;
+			segmentStart = frames - 1 - preRollFrames;
+			listener.onSpeechStart ( (long) ( segmentStart * frameMs ), (long) ( preRollFrames * frameMs ) );
+			flushPreRoll ();
+		} else
+		{
+			silenceRun = speech ? 0 : silenceRun + 1;
+		}
+		pass ( frame, 0, frameSize );
+		if ( silenceRun >= hangoverFrames )
+			end ();
+	}
+
+	void end ()
+	{
+		inSpeech = false;
+		speechRun = 0;
+		listener.onSpeechEnd ( (long) ( frames * frameMs ), (long) ( ( frames - segmentStart ) * frameMs ) );
+	}
+
+	/**
+	 * Closes the current segment, at the end of the recording
+	 */
+	synchronized void finish ()
+	{
+		if ( inSpeech )
+		{
+			if ( fill > 0 )
+				pass ( frame, 0, fill );
+			end ();
+		}
+		fill = 0;
+		preRollFill = 0;
+	}
+
+	void pass ( byte[] data, int offset, int length )
+	{
+		bytesPassed += length;
+		listener.onVoiced ( data, offset, length );
+	}
+
+	void keep ()
+	{
+		if ( preRoll.length == 0 )
+			return;
+		System.arraycopy ( frame, 0, preRoll, preRollHead, frameSize );
+		preRollHead = ( preRollHead + frameSize ) % preRoll.length;
+		preRollFill = Math.min ( preRollFill + frameSize, preRoll.length );
+	}
+
+	void flushPreRoll ()
+	{
+		// The frames before the current one, oldest first. The last started frame is the current one : it is not in the ring
+		int start = ( preRollHead - preRollFill + preRoll.length ) % Math.max ( 1, preRoll.length );
+		int n = Math.min ( preRollFill, preRoll.length - start );
+		if ( n > 0 )
+			pass ( preRoll, start, n );
+		if ( preRollFill > n )
+			pass ( preRoll, 0, preRollFill - n );
+		preRollFill = 0;
+	}
+
+	synchronized Map<String, Object> getStats ()
+	{
+		Map<String, Object> dic = new HashMap<String, Object> ();
+		dic.put ( "inSpeech", inSpeech );
+		dic.put ( "frames", frames );
+		dic.put ( "speechFrames", speechFrames );
+		dic.put ( "segments", segments );
+		dic.put ( "bytesIn", bytesIn );
+		dic.put ( "bytesPassed", bytesPassed );
+		dic.put ( "noiseFloorDb", Double.isNaN ( noiseFloorDb ) ? FLOOR_DB : noiseFloorDb );
+		dic.put ( "lastEnergyDb", lastEnergyDb );
+		dic.put ( "lastZcr", lastZcr );
+		dic.put ( "meanSpeechEnergyDb", ( speechFrames > 0 ) ? speechEnergySum / speechFrames : FLOOR_DB );
+		dic.put ( "meanSilenceEnergyDb", ( frames > speechFrames ) ? silenceEnergySum / ( frames - speechFrames ) : FLOOR_DB );
+		dic.put ( "thresholdDb", thresholdDb );
+		dic.put ( "minDb", minDb );
+		dic.put ( "zcrMax", zcrMax );
+		return dic;
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2021 Canardoux.
+ *
+ * This file is part of the τ Sound project.
+ *
+ * τ Sound is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Public License version 3 (GPL3.0),
+ * as published by the Free Software Foundation.
+ *
+ * τ Sound is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * This Source Code Form is subject to the terms of the GNU Public
+ * License, v. 3.0. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at https://www.gnu.org/licenses/.
+ */
+
+package xyz.canardoux.tausound;
+
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CountDownLatch;
+
+
+/**
+ * A pcm16 WAV file sink for long recordings.
+ *
+ * The recorded data are grouped in large blocks, written by a background executor through a `FileChannel`,
+ * at block-aligned file offsets (the 44 bytes header is the beginning of the first block).
+ * The file space is preallocated by extents, and the data are synced every `fsyncBytes` : the RIFF sizes are then patched,
+ * so that an interrupted recording is still readable.
+ * `close()` only writes the last block, patches the header in place and truncates the unused preallocated space :
+ * nothing is rewritten, whatever the length of the recording.
+ */
+class TauSoundWavWriter
+{
+	static final int HEADER_SIZE         = 44;
+	static final int PAGE_SIZE           = 4096;
+	static final int DEFAULT_BLOCK_SIZE  = 64 * 1024;
+	static final int DEFAULT_EXTENT_SIZE = 8 * 1024 * 1024;
+
+	final RandomAccessFile       file;
+	final FileChannel            channel;
+	final int                    sampleRate;
+	final int                    numChannels;
+	final int                    blockSize;
+	final long                   extentSize;
+	final long                   fsyncBytes; // 0 : only at close
+	final TauSoundBufferPool     pool;
+	final TauSoundSerialExecutor executor = new TauSoundSerialExecutor ();
+	final ByteBuffer             header   = ByteBuffer.allocate ( HEADER_SIZE ).order ( ByteOrder.LITTLE_ENDIAN );
+
+	// Producer side (the engine thread)
+	byte[]                       block;
+	int                          fill;
+	long                         blockOffset = 0; // File offset of `block`
+	long                         dataSize    = 0;
+
+	// Executor side
+	long                         allocated   = 0;
+	long                         unsynced    = 0;
+	volatile IOException         error;
+
+
+	/* ctor */ TauSoundWavWriter ( String path, int aSampleRate, int aNumChannels, int aBlockSize, int aExtentSize, long aFsyncBytes ) throws IOException
+	{
+		sampleRate = aSampleRate;
+		numChannels = aNumChannels;
+		blockSize = Math.max ( PAGE_SIZE, ( aBlockSize + PAGE_SIZE - 1 ) / PAGE_SIZE * PAGE_SIZE );
+		extentSize = Math.max ( blockSize, aExtentSize );
+		fsyncBytes = aFsyncBytes;
+		pool = new TauSoundBufferPool ( blockSize, 4 );
+		file = new RandomAccessFile ( path, "rw" );
+		file.setLength ( 0 );
+		channel = file.getChannel ();
+		preallocate ( extentSize );
+		block = pool.acquire ();
+		putHeader ( 0 );
+		System.arraycopy ( header.array (), 0, block, 0, HEADER_SIZE ); // Patched later
+		fill = HEADER_SIZE;
+	}
+
+	/**
+	 * Called on the engine thread : only copies the data, the file is written by the executor.
+	 */
+	synchronized void write ( byte[] data, int offset, int length )
+	{
+		if ( block == null ) // Already closed
+			return;
+		while ( length > 0 )
+		{
+			int n = Math.min ( length, blockSize - fill );
+			System.arraycopy ( data, offset, block, fill, n );
+			fill += n;
+			offset += n;
+			length -= n;
+			dataSize += n;
+			if ( fill == blockSize )
+			{
+				submit ( block, fill, blockOffset );
+				blockOffset += blockSize;
+				block = pool.acquire ();
+				fill = 0;
+			}
+		}
+	}
+
+	void submit ( final byte[] b, final int length, final long position )
+	{
+		executor.execute ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				try
+				{
+					if ( error != null )
+						return;
+					preallocate ( position + length );
+					ByteBuffer buf = ByteBuffer.wrap ( b, 0, length );
+					long p = position;
+					while ( buf.hasRemaining () )
+						p += channel.write ( buf, p );
+					unsynced += length;
+					if ( fsyncBytes > 0 && unsynced >= fsyncBytes )
+					{
+						patchHeader ( position + length - HEADER_SIZE );
+						channel.force ( false );
+						unsynced = 0;
+					}
+				} catch ( IOException e )
+				{
+					error = e;
+				} finally
+				{
+					pool.release ( b );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Reserves the file space up to `end`, by extents. Called by the constructor, then by the executor.
+	 */
+	void preallocate ( long end ) throws IOException
+	{
+		while ( allocated < end )
+		{
+			if ( Build.VERSION.SDK_INT >= 21 )
+				Fallocate.extent ( file.getFD (), allocated, extentSize );
+			else
+				file.setLength ( allocated + extentSize ); // No real reservation, but the file does not grow with each write
+			allocated += extentSize;
+		}
+	}
+
+	/**
+	 * posix_fallocate() is API 21 : kept out of the classes loaded by older devices
+	 */
+	static class Fallocate
+	{
+		static void extent ( FileDescriptor fd, long offset, long length )
+		{
+			try
+			{
+				Os.posix_fallocate ( fd, offset, length );
+			} catch ( ErrnoException e )
+			{
+				// Not supported by this file system : the file just grows with each write
+			}
+		}
+	}
+
+	void putHeader ( long size )
+	{
+		int n = (int) Math.min ( size, 0xFFFFFFFFL - 36 );
+		header.clear ();
+		header.put ( (byte) 'R' ).put ( (byte) 'I' ).put ( (byte) 'F' ).put ( (byte) 'F' );
+		header.putInt ( 36 + n );
+		header.put ( (byte) 'W' ).put ( (byte) 'A' ).put ( (byte) 'V' ).put ( (byte) 'E' );
+		header.put ( (byte) 'f' ).put ( (byte) 'm' ).put ( (byte) 't' ).put ( (byte) ' ' );
+		header.putInt ( 16 );
+		header.putShort ( (short) 1 ); // PCM
+		header.putShort ( (short) numChannels );
+		header.putInt ( sampleRate );
+		header.putInt ( sampleRate * numChannels * 2 );
+		header.putShort ( (short) ( numChannels * 2 ) );
+		header.putShort ( (short) 16 );
+		header.put ( (byte) 'd' ).put ( (byte) 'a' ).put ( (byte) 't' ).put ( (byte) 'a' );
+		header.putInt ( n );
+		header.flip ();
+	}
+
+	void patchHeader ( long size ) throws IOException
+	{
+		putHeader ( size );
+		while ( header.hasRemaining () )
+			channel.write ( header, header.position () );
+	}
+
+	/**
+	 * Called on the executor thread when the file is complete
+	 */
+	interface Listener
+	{
+		void onClosed ( IOException error );
+	}
+
+	/**
+	 * Writes the last block, patches the header, and releases the preallocated space which was not used.
+	 * Does not wait for the executor : `listener` (may be null) is called when the file is complete, with the first write error if any.
+	 */
+	synchronized void close ( final Listener listener )
+	{
+		if ( block == null ) // Already closed : the listener is called after the pending close
+		{
+			if ( listener != null )
+				executor.execute ( new Runnable()
+				{
+					@Override
+					public void run ()
+					{
+						listener.onClosed ( error );
+					}
+				} );
+			return;
+		}
+		final long size = dataSize;
+		submit ( block, fill, blockOffset );
+		block = null;
+		executor.execute ( new Runnable()
+		{
+			@Override
+			public void run ()
+			{
+				try
+				{
+					if ( error == null )
+					{
+						patchHeader ( size );
+						channel.truncate ( HEADER_SIZE + size );
+						channel.force ( false );
+					}
+				} catch ( IOException e )
+				{
+					error = e;
+				} finally
+				{
+					try
+					{
+						file.close ();
+					} catch ( IOException e )
+					{
+					}
+					if ( listener != null )
+						listener.onClosed ( error );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Like `close ( listener )`, but waits for the executor : returns when the file is complete, with the first write error if any.
+	 */
+	IOException close ()
+	{
+		final CountDownLatch done = new CountDownLatch ( 1 );
+		close ( new Listener()
+		{
+			@Override
+			public void onClosed ( IOException e )
+			{
+				done.countDown ();
+			}
+		} );
+		try
+		{
+			done.await ();
+		} catch ( InterruptedException e )
+		{
+			Thread.currentThread ().interrupt ();
+		}
+		return error;
+	}
+}
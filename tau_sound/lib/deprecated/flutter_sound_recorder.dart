@@ -230,6 +230,18 @@ class FlutterSoundRecorder implements TauRecorderCallback {
     _logger.d('<--- closeRecorderCompleted');
   }
 
+  /// Callback from the &tau; Core. Must not be called by the App
+  /// @nodoc
+  @deprecated
+  @override
+  void speechStarted({required int position, required int preRoll}) {} // The voice activity gate is only available with [TauRecorder]
+
+  /// Callback from the &tau; Core. Must not be called by the App
+  /// @nodoc
+  @deprecated
+  @override
+  void speechEnded({required int position, required int duration}) {}
+
   /// Callback from the &tau; Core. Must not be called by the App
   /// @nodoc
   @deprecated
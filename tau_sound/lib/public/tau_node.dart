@@ -32,6 +32,10 @@ import '../tau_sound.dart';
 /// Tau nodes
 abstract class TauNode {
   TauCodec codec = DefaultCodec();
+
+  /// Android only : arguments passed as is to the native `startPlayer` or `startRecorder`.
+  /// For example `{'ringBufferSize': 65536}` for an [InputStreamNode], or `{'binaryStream': true, 'vad': true}` for an [OutputStreamNode].
+  Map<String, dynamic> options = {};
 }
 
 // ------------------------------------------------- Input Node -------------------------------------------------------
@@ -106,6 +110,12 @@ class InputAssetNode extends InputNode {
   /* ctor */ InputAssetNode(this.path);
 }
 
+/// A sound decoded once by [TauPlayer.preloadSound()] is a possible source for a player playback (Android only)
+class InputCacheNode extends InputNode {
+  String key;
+  /* ctor */ InputCacheNode(this.key);
+}
+
 /// An InputDevice can be the Mic, The Blutooth mic, ...
 class InputDeviceNode extends InputNode {
   InputDeviceNode(AudioSource audioSource) {
@@ -553,6 +553,202 @@ class TauPlayer implements TauPlayerCallback {
     return TauPlayerPlatform.instance.getProgress(this);
   }
 
+  //-------------------------------------------------- Android only --------------------------------------------------------
+
+  /// Run the commands of each player on its own thread, instead of the platform thread.
+  ///
+  /// The mode is global to all the players.
+  Future<void> setExecutionMode({required bool perSlotExecutor}) async {
+    await _checkOpen();
+    await TauPlayerPlatform.instance
+        .setExecutionMode(this, perSlotExecutor: perSlotExecutor);
+  }
+
+  /// Get the counters of this player : bytes fed, underruns, command and callback latencies, ...
+  Future<Map<String, dynamic>> getMetrics() async {
+    await _checkOpen();
+    return TauPlayerPlatform.instance.getMetrics(this);
+  }
+
+  /// Get the codecs supported by this device.
+  ///
+  /// It returns a `Map` of parallel lists indexed by the [Codec] values : `'names'`, `'decoder'`, `'encoder'` and `'audioRecorder'`.
+  Future<Map<String, dynamic>> getCodecCapabilities() async {
+    await _checkOpen();
+    return TauPlayerPlatform.instance.getCodecCapabilities(this);
+  }
+
+  /// Replace the progress events of all the players by one message every [period].
+  ///
+  /// The events are still posted on [onProgress]. A null [period] goes back to one event per player.
+  Future<void> setProgressTicker(Duration? period) async {
+    await _checkOpen();
+    await TauPlayerPlatform.instance.setProgressTicker(this, duration: period);
+  }
+
+  /// Send the progress and needSomeFood events of all the players as fixed size binary records.
+  Future<void> setCompactEvents(bool enabled) async {
+    await _checkOpen();
+    await TauPlayerPlatform.instance.setCompactEvents(this, enabled: enabled);
+  }
+
+  /// Feed several buffers with only one call to the platform.
+  ///
+  /// It returns the number of bytes accepted for each buffer.
+  /// When a buffer is not completely accepted, the following ones are not fed :
+  /// the App feeds the remaining data with [feedFromStream()].
+  Future<List<int>> feedBatch(List<Uint8List> chunks) async {
+    await _checkOpen();
+    if (isStopped) {
+      return List<int>.filled(chunks.length, 0);
+    }
+    return TauPlayerPlatform.instance.feedBatch(this, chunks: chunks);
+  }
+
+  /// Decode a sound once, and keep it in memory.
+  ///
+  /// It returns the key of the sound, for an [InputCacheNode] or [playVoice()].
+  /// [fromBuffer] is a key returned by [registerBuffer()].
+  Future<String> preloadSound({
+    TauCodec? codec,
+    String? fromURI,
+    Uint8List? fromDataBuffer,
+    String? fromBuffer,
+    int? sampleRate,
+    int? numChannels,
+  }) async {
+    await _checkOpen();
+    return TauPlayerPlatform.instance.preloadSound(this,
+        codec: codec?.deprecatedCodec,
+        fromURI: fromURI,
+        fromDataBuffer: fromDataBuffer,
+        fromBuffer: fromBuffer,
+        sampleRate: sampleRate,
+        numChannels: numChannels);
+  }
+
+  /// Set the size in bytes of the memory used by the preloaded sounds. Null restores the default size.
+  Future<void> setPcmCacheBudget(int? budget) async {
+    await _checkOpen();
+    await TauPlayerPlatform.instance.setPcmCacheBudget(this, budget: budget);
+  }
+
+  /// Get the counters of the preloaded sounds : `'budget'`, `'size'`, `'hits'`, `'misses'` and `'evictions'`.
+  Future<Map<String, dynamic>> getPcmCacheStats() async {
+    await _checkOpen();
+    return TauPlayerPlatform.instance.getPcmCacheStats(this);
+  }
+
+  /// Send a buffer to the platform once.
+  ///
+  /// It returns its key, for `options: {'fromBuffer': key}` or [preloadSound()].
+  Future<String> registerBuffer(Uint8List data) async {
+    await _checkOpen();
+    return TauPlayerPlatform.instance.registerBuffer(this, data: data);
+  }
+
+  /// True if the buffer of this key is still registered.
+  Future<bool> isBufferRegistered(String key) async {
+    await _checkOpen();
+    return TauPlayerPlatform.instance.isBufferRegistered(this, key: key);
+  }
+
+  /// Free a buffer registered with [registerBuffer()].
+  Future<void> releaseBuffer(String key) async {
+    await _checkOpen();
+    await TauPlayerPlatform.instance.releaseBuffer(this, key: key);
+  }
+
+  /// Set the size in bytes of the memory used by the registered buffers. Null restores the default size.
+  Future<void> setBufferRegistryBudget(int? budget) async {
+    await _checkOpen();
+    await TauPlayerPlatform.instance
+        .setBufferRegistryBudget(this, budget: budget);
+  }
+
+  /// Get the counters of the registered buffers.
+  Future<Map<String, dynamic>> getBufferRegistryStats() async {
+    await _checkOpen();
+    return TauPlayerPlatform.instance.getBufferRegistryStats(this);
+  }
+
+  /// Start the sound effects mode : this player mixes up to [maxVoices] preloaded sounds, started with [playVoice()].
+  Future<void> startEffects({int? maxVoices, int? sampleRate, int? blockSize}) async {
+    await _checkOpen();
+    var state = await TauPlayerPlatform.instance.startEffects(this,
+        maxVoices: maxVoices, sampleRate: sampleRate, blockSize: blockSize);
+    _playerState = PlayerState.values[state];
+  }
+
+  /// Play a preloaded sound on a free voice.
+  ///
+  /// It returns the voice number, for [stopVoice()], or -1 if all the voices are busy.
+  Future<int> playVoice(String key,
+      {double gain = 1.0, double pan = 0.0, bool loop = false}) async {
+    await _checkOpen();
+    return TauPlayerPlatform.instance
+        .playVoice(this, key: key, gain: gain, pan: pan, loop: loop);
+  }
+
+  /// Stop a voice, or all the voices if [voice] is null.
+  Future<void> stopVoice([int? voice]) async {
+    await _checkOpen();
+    var state = await TauPlayerPlatform.instance.stopVoice(this, voice: voice);
+    _playerState = PlayerState.values[state];
+  }
+
+  /// This player plays the mix of all the players attached with [attachToBus()].
+  Future<void> openMixerBus({int? sampleRate, int? blockSize}) async {
+    await _checkOpen();
+    var state = await TauPlayerPlatform.instance
+        .openMixerBus(this, sampleRate: sampleRate, blockSize: blockSize);
+    _playerState = PlayerState.values[state];
+  }
+
+  /// Stop the mix. The attached players are detached.
+  Future<void> closeMixerBus() async {
+    await _checkOpen();
+    var state = await TauPlayerPlatform.instance.closeMixerBus(this);
+    _playerState = PlayerState.values[state];
+  }
+
+  /// The data fed to this player (pcm16, at the sample rate of the bus) are mixed by the player which opened the bus.
+  Future<void> attachToBus({
+    int? ringBufferSize,
+    int? numChannels,
+    int? lowWatermark,
+    int? highWatermark,
+  }) async {
+    await _checkOpen();
+    var state = await TauPlayerPlatform.instance.attachToBus(this,
+        ringBufferSize: ringBufferSize,
+        numChannels: numChannels,
+        lowWatermark: lowWatermark,
+        highWatermark: highWatermark);
+    _playerState = PlayerState.values[state];
+  }
+
+  /// This player is no longer mixed by the bus.
+  Future<void> detachFromBus() async {
+    await _checkOpen();
+    var state = await TauPlayerPlatform.instance.detachFromBus(this);
+    _playerState = PlayerState.values[state];
+  }
+
+  /// Mute this player in the mix of the bus.
+  Future<void> setBusMute(bool mute) async {
+    await _checkOpen();
+    var state = await TauPlayerPlatform.instance.setBusMute(this, mute: mute);
+    _playerState = PlayerState.values[state];
+  }
+
+  /// When at least one attached player is solo, only the solo players are mixed.
+  Future<void> setBusSolo(bool solo) async {
+    await _checkOpen();
+    var state = await TauPlayerPlatform.instance.setBusSolo(this, solo: solo);
+    _playerState = PlayerState.values[state];
+  }
+
 //--------------------------------------------- Locals --------------------------------------------------------------------
 
   /// Private variables
@@ -665,6 +861,13 @@ class TauPlayer implements TauPlayerCallback {
     _playerController = null;
   }
 
+  Future<void> _checkOpen() async {
+    await _waitOpen();
+    if (!_isInited) {
+      throw Exception('Player is not open');
+    }
+  }
+
   Future<void> _waitOpen() async {
     while (_openPlayerCompleter != null) {
       _logger.d('Waiting for the player being opened');
@@ -808,6 +1011,7 @@ class TauPlayer implements TauPlayerCallback {
     OutputDeviceNode to, ) async {
     var uri = fromURI.uri;
     var codec = fromURI.codec;
+    var options = fromURI.options;
     if (codec is Pcm && codec.audioFormat == AudioFormat.raw) {
       fromURI = await fromURI.toWave();
       uri = fromURI.uri;
@@ -821,6 +1025,7 @@ class TauPlayer implements TauPlayerCallback {
         codec: codec.deprecatedCodec,
         fromURI: uri,
         fromDataBuffer: null,
+        options: options,
       );
 
     return PlayerState.values[state];
@@ -833,6 +1038,7 @@ class TauPlayer implements TauPlayerCallback {
     var assetBuffer = byteData.buffer.asUint8List();
     var bufferNode = InputBufferNode(assetBuffer,
         codec: fromAsset.codec, );
+    bufferNode.options = fromAsset.options;
     return await _startPlayerFromBuffer(
       bufferNode,
       to,
@@ -844,6 +1050,7 @@ class TauPlayer implements TauPlayerCallback {
     OutputDeviceNode to, ) async {
     var buffer = fromBuffer.inputBuffer;
     var codec = fromBuffer.codec;
+    var options = fromBuffer.options;
     if (codec is Pcm && codec.audioFormat == AudioFormat.raw) {
       fromBuffer = await fromBuffer.toWave();
       buffer = fromBuffer.inputBuffer;
@@ -857,6 +1064,23 @@ class TauPlayer implements TauPlayerCallback {
         codec: codec.deprecatedCodec,
         fromDataBuffer: buffer,
         fromURI: null,
+        options: options,
+      );
+
+    return PlayerState.values[state];
+  }
+
+  Future<PlayerState> _startPlayerFromCache(
+    InputCacheNode fromCache,
+    OutputDeviceNode to, ) async {
+    var options = Map<String, dynamic>.from(fromCache.options);
+    options['fromCache'] = fromCache.key;
+    var state = await TauPlayerPlatform.instance.startPlayer(
+        this,
+        codec: Codec.pcm16, // The sound is already decoded
+        fromDataBuffer: null,
+        fromURI: null,
+        options: options,
       );
 
     return PlayerState.values[state];
@@ -915,7 +1139,8 @@ class TauPlayer implements TauPlayerCallback {
         fromDataBuffer: null,
         fromURI: null,
         numChannels: codec.nbrChannels(),
-        sampleRate: codec.sampleRate);
+        sampleRate: codec.sampleRate,
+        options: stream.options);
     _playerState = PlayerState.values[state];
     _logger.d('FS:<--- startPlayerFromStream ');
     return PlayerState.values[state];
@@ -1002,6 +1227,12 @@ class TauPlayer implements TauPlayerCallback {
             _to!,
           );
           break;
+        case InputCacheNode:
+          state = await _startPlayerFromCache(
+            _from as InputCacheNode,
+            _to!,
+          );
+          break;
         case InputStreamNode:
           state = await _startPlayerFromStream(
             _from as InputStreamNode,
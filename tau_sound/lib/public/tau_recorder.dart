@@ -92,6 +92,11 @@ class TauRecorder implements TauRecorderCallback {
   Stream<RecordingDisposition>? get onProgress =>
       (_recorderController != null) ? _recorderController!.stream : null;
 
+  /// A stream on which the voice activity gate posts the start and the end of each speech segment.
+  ///
+  /// Android only : the gate is enabled with `options: {'vad': true}` on the [OutputStreamNode].
+  Stream<SpeechEvent> get onSpeech => _speechController.stream;
+
   /// True if `recorderState.isRecording`
   bool get isRecording => (_recorderState == RecorderState.isRecording);
 
@@ -415,6 +420,57 @@ class TauRecorder implements TauRecorderCallback {
     return url;
   }
 
+  //-------------------------------------------------- Android only --------------------------------------------------------
+
+  /// Run the commands of each recorder on its own thread, instead of the platform thread.
+  ///
+  /// The mode is global to all the recorders.
+  Future<void> setExecutionMode({required bool perSlotExecutor}) async {
+    await _waitOpen();
+    await TauRecorderPlatform.instance
+        .setExecutionMode(this, perSlotExecutor: perSlotExecutor);
+  }
+
+  /// Get the counters of this recorder : recorded bytes, command and callback latencies, ...
+  Future<Map<String, dynamic>> getMetrics() async {
+    await _waitOpen();
+    return TauRecorderPlatform.instance.getMetrics(this);
+  }
+
+  /// Get the codecs supported by this device.
+  ///
+  /// It returns a `Map` of parallel lists indexed by the [Codec] values : `'names'`, `'decoder'`, `'encoder'` and `'audioRecorder'`.
+  Future<Map<String, dynamic>> getCodecCapabilities() async {
+    await _waitOpen();
+    return TauRecorderPlatform.instance.getCodecCapabilities(this);
+  }
+
+  /// Replace the progress events of all the recorders by one message every [period].
+  ///
+  /// The events are still posted on [onProgress]. A null [period] goes back to one event per recorder.
+  Future<void> setProgressTicker(Duration? period) async {
+    await _waitOpen();
+    await TauRecorderPlatform.instance.setProgressTicker(this, duration: period);
+  }
+
+  /// Send the progress events of all the recorders as fixed size binary records.
+  Future<void> setCompactEvents(bool enabled) async {
+    await _waitOpen();
+    await TauRecorderPlatform.instance.setCompactEvents(this, enabled: enabled);
+  }
+
+  /// Get the counters of the frames recycled when recording to a stream.
+  Future<Map<String, dynamic>> getBufferPoolStats() async {
+    await _waitOpen();
+    return TauRecorderPlatform.instance.getBufferPoolStats(this);
+  }
+
+  /// Get the counters of the voice activity gate.
+  Future<Map<String, dynamic>> getVadStats() async {
+    await _waitOpen();
+    return TauRecorderPlatform.instance.getVadStats(this);
+  }
+
   //--------------------------------------------- Locals --------------------------------------------------------------------
 
   /// Locals
@@ -446,6 +502,8 @@ class TauRecorder implements TauRecorderCallback {
   /// A reference to the User Sink during `StartRecorder(toStream:...)`
   StreamSink<TauFood>? _userStreamSink;
   StreamController<RecordingDisposition>? _recorderController;
+  final StreamController<SpeechEvent> _speechController =
+      StreamController<SpeechEvent>.broadcast();
 
   Future<void> _waitOpen() async {
     while (_openRecorderCompleter != null) {
@@ -591,6 +649,7 @@ class TauRecorder implements TauRecorderCallback {
         codec: codec.deprecatedCodec,
         toStream: false,
         audioSource: from.audioSource,
+        options: outputFile.options,
         sampleRate: c.sampleRate,
         numChannels: c.nbrChannels(),
       );
@@ -601,6 +660,7 @@ class TauRecorder implements TauRecorderCallback {
         codec: codec.deprecatedCodec,
         toStream: false,
         audioSource: from.audioSource,
+        options: outputFile.options,
       );
     }
   }
@@ -624,6 +684,7 @@ class TauRecorder implements TauRecorderCallback {
       codec: outputStream.codec.deprecatedCodec,
       toStream: true,
       audioSource: from.audioSource,
+      options: outputStream.options,
       numChannels: codec.nbrChannels(),
       sampleRate: codec.sampleRate,
     );
@@ -792,6 +853,22 @@ class TauRecorder implements TauRecorderCallback {
     ));
   }
 
+  /// Callback from the &tau; Core. Must not be called by the App
+  /// @nodoc
+  @override
+  void speechStarted({required int position, required int preRoll}) {
+    _speechController.add(SpeechEvent(true, Duration(milliseconds: position),
+        Duration(milliseconds: preRoll)));
+  }
+
+  /// Callback from the &tau; Core. Must not be called by the App
+  /// @nodoc
+  @override
+  void speechEnded({required int position, required int duration}) {
+    _speechController.add(SpeechEvent(false, Duration(milliseconds: position),
+        Duration(milliseconds: duration)));
+  }
+
   /// Callback from the &tau; Core. Must not be called by the App
   /// @nodoc
   @override
@@ -985,3 +1062,25 @@ class RecordingDisposition {
     return 'duration: $duration decibels: $decibels';
   }
 }
+
+/// The start or the end of a speech segment, posted on [TauRecorder.onSpeech]
+class SpeechEvent {
+  /// True at the start of the segment, false at its end
+  final bool started;
+
+  /// The recording position of the event
+  final Duration position;
+
+  /// At the start : the recorded data sent before the start of the speech.
+  /// At the end : the duration of the segment.
+  final Duration length;
+
+  /// ctor
+  SpeechEvent(this.started, this.position, this.length);
+
+  /// Return a String representation of the event
+  @override
+  String toString() {
+    return 'started: $started position: $position length: $length';
+  }
+}
@@ -259,7 +259,7 @@ class TauPlayerWeb extends TauPlayerPlatform //implements TauPlayerCallback
         }
 
         @override
-        Future<int> startPlayer(TauPlayerCallback callback,  {Codec? codec, Uint8List? fromDataBuffer, String?  fromURI, int? numChannels, int? sampleRate}) async
+        Future<int> startPlayer(TauPlayerCallback callback,  {Codec? codec, Uint8List? fromDataBuffer, String?  fromURI, int? numChannels, int? sampleRate, Map<String, dynamic>? options}) async
         {
                 // startPlayerCompleter = new Completer<Map>();
                 // await invokeMethod( callback, 'startPlayer', {'codec': codec.index, 'fromDataBuffer': fromDataBuffer, 'fromURI': fromURI, 'numChannels': numChannels, 'sampleRate': sampleRate},) ;
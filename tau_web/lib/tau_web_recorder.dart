@@ -187,6 +187,7 @@ class TauRecorderWeb extends TauRecorderPlatform //implements TauRecorderCallbac
                     Codec? codec,
                     bool? toStream,
                     AudioSource? audioSource,
+                    Map<String, dynamic>? options,
             }) async
         {
                 getWebSession(callback)!.startRecorder(path, sampleRate, numChannels, bitRate, codec!.index, toStream, audioSource!.index,);